@@ -0,0 +1,111 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Adds indexes for lookups by name and for reverse lookups along foreign keys (PostgreSQL does not index
+ * referencing columns by itself), and unique constraints for names and feature tags. Duplicates that the
+ * application should not have created are resolved first: duplicate tags and feature tags are merged, features
+ * with duplicate names are renamed (all but the one created first), as their content may differ. Name searches
+ * are case-insensitive substring matches (LIKE '%...%'), which no b-tree index serves, so there are no indexes
+ * for them.
+ */
+public class V10__add_lookup_indexes implements JdbcMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(V10__add_lookup_indexes.class);
+    private static final int MAX_NAME_LENGTH = 256;
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        renameDuplicateFeatures(connection);
+        try (Statement statement = connection.createStatement()) {
+            // Duplicate tags are merged into the one created first
+            statement.execute("UPDATE FEATURE_TAGS SET TAGS_ID = (SELECT MIN(T.ID) FROM TAG T JOIN TAG D ON D.TAG_NAME = T.TAG_NAME " +
+                    "WHERE D.ID = FEATURE_TAGS.TAGS_ID) WHERE TAGS_ID IS NOT NULL");
+            statement.execute("DELETE FROM TAG WHERE ID > (SELECT MIN(T.ID) FROM TAG T WHERE T.TAG_NAME = TAG.TAG_NAME)");
+            statement.execute("DELETE FROM FEATURE_TAGS WHERE ID > (SELECT MIN(T.ID) FROM FEATURE_TAGS T " +
+                    "WHERE T.FEATURE_ID = FEATURE_TAGS.FEATURE_ID AND T.TAGS_ID = FEATURE_TAGS.TAGS_ID)");
+
+            statement.execute("CREATE UNIQUE INDEX FEATURE_NAME_UNIQUE ON FEATURE (FEATURE_NAME)");
+            statement.execute("CREATE UNIQUE INDEX TAG_NAME_UNIQUE ON TAG (TAG_NAME)");
+            statement.execute("CREATE UNIQUE INDEX FEATURE_TAGS_UNIQUE ON FEATURE_TAGS (FEATURE_ID, TAGS_ID)");
+
+            statement.execute("CREATE INDEX FEATURE_TAGS_TAG_IDX ON FEATURE_TAGS (TAGS_ID)");
+            statement.execute("CREATE INDEX FEATURE_DEPENDENCY_DEPENDENCY_IDX ON FEATURE_DEPENDENCY (DEPENDENCY_FEATURE_ID, FEATURE_ID)");
+            // Snippet rows are deleted when unreferenced, foreign key checks look these up
+            statement.execute("CREATE INDEX FEATURE_DOCKER_DATA_IDX ON FEATURE (DOCKER_DATA_HASH)");
+            statement.execute("CREATE INDEX FEATURE_TEST_INSTRUCTION_IDX ON FEATURE (TEST_INSTRUCTION_HASH)");
+            statement.execute("CREATE INDEX FEATURE_DESCRIPTION_IDX ON FEATURE (DESCRIPTION_HASH)");
+            statement.execute("CREATE INDEX CHANGE_LOG_KIND_NAME_IDX ON CHANGE_LOG (KIND, NAME)");
+        }
+    }
+
+    /**
+     * Renames features that share name with one created before to "name-ID". Dependencies and tags refer to
+     * features by id, so they stay as they are. Renamed and kept features are recorded in change log, so that
+     * clients that sync from it see the new names.
+     */
+    private static void renameDuplicateFeatures(Connection connection) throws Exception {
+        final Set<String> names = new HashSet<>();
+        try (Statement select = connection.createStatement();
+             ResultSet rows = select.executeQuery("SELECT FEATURE_NAME FROM FEATURE")) {
+            while (rows.next()) {
+                names.add(rows.getString(1));
+            }
+        }
+        try (Statement select = connection.createStatement();
+             ResultSet rows = select.executeQuery("SELECT ID, FEATURE_NAME FROM FEATURE WHERE FEATURE_NAME IN " +
+                     "(SELECT FEATURE_NAME FROM FEATURE GROUP BY FEATURE_NAME HAVING COUNT(*) > 1) ORDER BY FEATURE_NAME, ID");
+             PreparedStatement rename = connection.prepareStatement("UPDATE FEATURE SET FEATURE_NAME = ? WHERE ID = ?")) {
+            String previous = null;
+            while (rows.next()) {
+                final int id = rows.getInt(1);
+                final String name = rows.getString(2);
+                if (!name.equals(previous)) {
+                    previous = name;
+                    recordChange(connection, name);
+                    continue;
+                }
+                final String newName = uniqueName(name, id, names);
+                names.add(newName);
+                rename.setString(1, newName);
+                rename.setInt(2, id);
+                rename.executeUpdate();
+                recordChange(connection, newName);
+                LOG.warn("Feature {} with duplicate name {} is renamed to {}", id, name, newName);
+            }
+        }
+    }
+
+    private static String uniqueName(String name, int id, Set<String> taken) {
+        for (int attempt = 1; ; ++attempt) {
+            final String suffix = "-" + id + (attempt > 1 ? "-" + attempt : "");
+            final String candidate = name.substring(0, Math.min(name.length(), MAX_NAME_LENGTH - suffix.length())) + suffix;
+            if (!taken.contains(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void recordChange(Connection connection, String name) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE CHANGE_COUNTER SET LAST_ID = LAST_ID + 1");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO CHANGE_LOG (ID, KIND, NAME, ACTION, CHANGED_AT) " +
+                "SELECT LAST_ID, 'FEATURE', ?, 'UPSERT', ? FROM CHANGE_COUNTER")) {
+            insert.setString(1, name);
+            insert.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+            insert.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Moves docker data, test instruction and description of features to content addressed SNIPPET table. Hashes
+ * and compression are computed in Java, by a copy of the encoding of the Snippet entity as it was when this
+ * migration was written: a migration must not change when the entity does.
+ */
+public class V6__add_snippet_storage implements JdbcMigration {
+
+    private static final String[] COLUMNS = {"DOCKER_DATA", "TEST_INSTRUCTION", "DESCRIPTION"};
+    private static final int COMPRESSION_THRESHOLD = 256;
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        final String binaryType = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                ? "BYTEA" : "VARBINARY(16777216)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE SNIPPET (" +
+                    "HASH VARCHAR(64) PRIMARY KEY, " +
+                    "CONTENT " + binaryType + " NOT NULL, " +
+                    "COMPRESSED BOOLEAN NOT NULL, " +
+                    "CONTENT_LENGTH INT NOT NULL, " +
+                    "REF_COUNT INT NOT NULL)");
+            for (String column : COLUMNS) {
+                statement.execute("ALTER TABLE FEATURE ADD " + column + "_HASH VARCHAR(64)");
+            }
+        }
+
+        final Map<String, EncodedSnippet> snippets = new HashMap<>();
+        final Map<String, Integer> references = new HashMap<>();
+        try (Statement select = connection.createStatement();
+             ResultSet features = select.executeQuery("SELECT ID, " + String.join(", ", COLUMNS) + " FROM FEATURE");
+             PreparedStatement update = connection.prepareStatement("UPDATE FEATURE SET DOCKER_DATA_HASH = ?, " +
+                     "TEST_INSTRUCTION_HASH = ?, DESCRIPTION_HASH = ? WHERE ID = ?")) {
+            while (features.next()) {
+                for (int i = 0; i < COLUMNS.length; ++i) {
+                    final String text = features.getString(COLUMNS[i]);
+                    String hash = null;
+                    if (null != text) {
+                        hash = hash(text);
+                        snippets.computeIfAbsent(hash, h -> new EncodedSnippet(text));
+                        references.merge(hash, 1, Integer::sum);
+                    }
+                    update.setString(i + 1, hash);
+                }
+                update.setInt(COLUMNS.length + 1, features.getInt("ID"));
+                update.addBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO SNIPPET " +
+                    "(HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) VALUES (?, ?, ?, ?, ?)")) {
+                for (Map.Entry<String, EncodedSnippet> snippet : snippets.entrySet()) {
+                    insert.setString(1, snippet.getKey());
+                    insert.setBytes(2, snippet.getValue().content);
+                    insert.setBoolean(3, snippet.getValue().compressed);
+                    insert.setInt(4, snippet.getValue().contentLength);
+                    insert.setInt(5, references.get(snippet.getKey()));
+                    insert.addBatch();
+                }
+                if (!snippets.isEmpty()) {
+                    insert.executeBatch();
+                    update.executeBatch();
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String column : COLUMNS) {
+                statement.execute("ALTER TABLE FEATURE ADD FOREIGN KEY (" + column + "_HASH) REFERENCES SNIPPET (HASH)");
+                statement.execute("ALTER TABLE FEATURE DROP COLUMN " + column);
+            }
+            statement.execute("ALTER TABLE FEATURE ALTER COLUMN DOCKER_DATA_HASH SET NOT NULL");
+        }
+    }
+
+    private static String hash(String text) throws Exception {
+        final byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder result = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length / 2);
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static final class EncodedSnippet {
+        private final byte[] content;
+        private final boolean compressed;
+        private final int contentLength;
+
+        private EncodedSnippet(String text) {
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            final byte[] deflated = bytes.length >= COMPRESSION_THRESHOLD ? deflate(bytes) : bytes;
+            this.compressed = deflated.length < bytes.length;
+            this.content = compressed ? deflated : bytes;
+            this.contentLength = bytes.length;
+        }
+    }
+}
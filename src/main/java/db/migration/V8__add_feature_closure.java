@@ -0,0 +1,76 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+import org.zalando.pazuzu.sort.TopologicalSortLinear;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds FEATURE_CLOSURE, transitive closure of FEATURE_DEPENDENCY: every feature is ancestor of itself (depth 0),
+ * dependencies of its dependencies are ancestors with depth 2 and so on. Depth is the length of the shortest path.
+ * Existing rows are computed in Java, recursive queries are not available in all supported databases.
+ */
+public class V8__add_feature_closure implements JdbcMigration {
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE FEATURE_CLOSURE (" +
+                    "ANCESTOR_ID INT NOT NULL REFERENCES FEATURE (ID), " +
+                    "DESCENDANT_ID INT NOT NULL REFERENCES FEATURE (ID), " +
+                    "DEPTH INT NOT NULL, " +
+                    "PRIMARY KEY (ANCESTOR_ID, DESCENDANT_ID))");
+            statement.execute("CREATE INDEX FEATURE_CLOSURE_DESCENDANT_IDX ON FEATURE_CLOSURE (DESCENDANT_ID, ANCESTOR_ID)");
+        }
+
+        final Set<Integer> features = new HashSet<>();
+        final Map<Integer, Set<Integer>> dependencies = new HashMap<>();
+        try (Statement select = connection.createStatement()) {
+            try (ResultSet rows = select.executeQuery("SELECT ID FROM FEATURE")) {
+                while (rows.next()) {
+                    features.add(rows.getInt(1));
+                }
+            }
+            try (ResultSet rows = select.executeQuery("SELECT FEATURE_ID, DEPENDENCY_FEATURE_ID FROM FEATURE_DEPENDENCY")) {
+                while (rows.next()) {
+                    dependencies.computeIfAbsent(rows.getInt(1), id -> new HashSet<>()).add(rows.getInt(2));
+                }
+            }
+        }
+        if (features.isEmpty()) {
+            return;
+        }
+
+        // Dependencies first, so that closure of a feature is built from closures of its dependencies
+        final List<Integer> order = new TopologicalSortLinear<>(features,
+                id -> dependencies.getOrDefault(id, Collections.emptySet())).getTopSorted();
+        final Map<Integer, Map<Integer, Integer>> closures = new HashMap<>();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO FEATURE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH) VALUES (?, ?, ?)")) {
+            for (Integer id : order) {
+                final Map<Integer, Integer> closure = new HashMap<>();
+                closure.put(id, 0);
+                for (Integer dependency : dependencies.getOrDefault(id, Collections.emptySet())) {
+                    closures.get(dependency).forEach((ancestor, depth) -> closure.merge(ancestor, depth + 1, Math::min));
+                }
+                closures.put(id, closure);
+                for (Map.Entry<Integer, Integer> entry : closure.entrySet()) {
+                    insert.setInt(1, entry.getKey());
+                    insert.setInt(2, id);
+                    insert.setInt(3, entry.getValue());
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+}
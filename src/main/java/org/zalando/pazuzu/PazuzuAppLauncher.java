@@ -1,15 +1,32 @@
 package org.zalando.pazuzu;
 
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.zalando.pazuzu.serving.SnapshotServingLauncher;
 import org.zalando.twintip.spring.SchemaResource;
 
-@SpringBootApplication
+@Configuration
+@EnableAutoConfiguration
+// Snapshot serving is a separate application without database
+@ComponentScan(excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org\\.zalando\\.pazuzu\\.serving\\..*"))
 @Import(SchemaResource.class)
+@EnableScheduling
 public class PazuzuAppLauncher {
 
     public static void main(final String[] args) {
-        SpringApplication.run(PazuzuAppLauncher.class, args);
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+        if (environment.acceptsProfiles(SnapshotServingLauncher.PROFILE)) {
+            SnapshotServingLauncher.main(args);
+        } else {
+            SpringApplication.run(PazuzuAppLauncher.class, args);
+        }
     }
 }
@@ -0,0 +1,96 @@
+package org.zalando.pazuzu.admission;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.ServiceUnavailableException;
+import org.zalando.pazuzu.exception.TooManyRequestsException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Admits requests of a client if its token bucket is not empty and the bulkhead of the request kind has a free
+ * slot. Metrics are counted per bulkhead and outcome (admission.bulkhead.*), not per client: client names are
+ * not bounded, throttled clients are logged instead.
+ */
+public class AdmissionControl {
+
+    public enum Kind {
+        READ, RESOLUTION, WRITE
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final long BULKHEAD_RETRY_AFTER_SECONDS = 1;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final AdmissionProperties properties;
+    private final CounterService counterService;
+    private final GaugeService gaugeService;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Kind, Bulkhead> bulkheads = new EnumMap<>(Kind.class);
+
+    public AdmissionControl(AdmissionProperties properties, CounterService counterService, GaugeService gaugeService,
+                            LongSupplier clock) {
+        this.properties = properties;
+        this.counterService = counterService;
+        this.gaugeService = gaugeService;
+        this.clock = clock;
+        bulkheads.put(Kind.READ, new Bulkhead("read", properties.getMaxConcurrentReads()));
+        bulkheads.put(Kind.RESOLUTION, new Bulkhead("resolution", properties.getMaxConcurrentResolutions()));
+        bulkheads.put(Kind.WRITE, new Bulkhead("write", properties.getMaxConcurrentWrites()));
+    }
+
+    /**
+     * @param client Principal name, null for anonymous requests
+     * @return bulkhead that has to be released when request is completed
+     */
+    public Bulkhead admit(String client, Kind kind) throws TooManyRequestsException, ServiceUnavailableException {
+        final String name = null == client ? properties.getAnonymousClient() : client;
+        final long now = clock.getAsLong();
+        final TokenBucket bucket = buckets
+                .computeIfAbsent(name, n -> new TokenBucket(properties.getRequestsPerSecond(), properties.getBurst(), now));
+        final long waitNanos = bucket.tryAcquire(now);
+        final Bulkhead bulkhead = bulkheads.get(kind);
+        if (waitNanos > 0) {
+            counterService.increment("admission.bulkhead." + bulkhead.getName() + ".throttled");
+            if (bucket.reportRejection()) {
+                LOG.info("Client {} exceeds rate limit of {} requests per second", name, properties.getRequestsPerSecond());
+            }
+            throw new TooManyRequestsException(Error.TOO_MANY_REQUESTS, "Rate limit of client " + name + " is exceeded",
+                    (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+        }
+        if (!bulkhead.tryAcquire()) {
+            counterService.increment("admission.bulkhead." + bulkhead.getName() + ".rejected");
+            throw new ServiceUnavailableException(Error.SERVICE_OVERLOADED,
+                    "Too many concurrent " + bulkhead.getName() + " requests", BULKHEAD_RETRY_AFTER_SECONDS);
+        }
+        counterService.increment("admission.bulkhead." + bulkhead.getName() + ".admitted");
+        gaugeService.submit("admission.bulkhead." + bulkhead.getName() + ".active", bulkhead.getActive());
+        return bulkhead;
+    }
+
+    public void release(Bulkhead bulkhead) {
+        bulkhead.release();
+        gaugeService.submit("admission.bulkhead." + bulkhead.getName() + ".active", bulkhead.getActive());
+    }
+
+    public Bulkhead getBulkhead(Kind kind) {
+        return bulkheads.get(kind);
+    }
+
+    /**
+     * Forgets clients that are idle long enough to have full buckets.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void removeIdleClients() {
+        final long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+}
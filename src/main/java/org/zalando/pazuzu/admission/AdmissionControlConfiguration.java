@@ -0,0 +1,41 @@
+package org.zalando.pazuzu.admission;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Rate limits and bulkheads for the API (pazuzu.admission). Clients are told apart by OAuth principal, so the
+ * interceptor runs after OAuthConfiguration authenticated the request. Change stream is long lived and is
+ * not counted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pazuzu.admission.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionControlConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private AdmissionProperties properties;
+    @Autowired
+    private CounterService counterService;
+    @Autowired
+    private GaugeService gaugeService;
+
+    @Bean
+    public AdmissionControl admissionControl() {
+        return new AdmissionControl(properties, counterService, gaugeService, System::nanoTime);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionControlInterceptor(admissionControl()))
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/health", "/api/changes/stream");
+    }
+}
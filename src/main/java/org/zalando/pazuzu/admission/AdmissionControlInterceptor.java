@@ -0,0 +1,60 @@
+package org.zalando.pazuzu.admission;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+
+/**
+ * Applies {@link AdmissionControl} to API requests. Requests with "sorted" parameter, feature levels,
+ * Dockerfile generation and snapshot export are expensive and are limited separately from plain reads.
+ */
+public class AdmissionControlInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String BULKHEAD_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".bulkhead";
+
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    static AdmissionControl.Kind classify(HttpServletRequest request) {
+        final String method = request.getMethod();
+        final String path = request.getRequestURI().substring(request.getContextPath().length());
+        // Batch resolution is posted, but does not change anything
+        if (path.equals("/api/resolutions")) {
+            return AdmissionControl.Kind.RESOLUTION;
+        }
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return AdmissionControl.Kind.WRITE;
+        }
+        if (path.startsWith("/api/dockerfile") || path.equals("/api/feature-levels") || path.equals("/api/snapshot")
+                || (path.startsWith("/api/features") && null != request.getParameter("sorted"))) {
+            return AdmissionControl.Kind.RESOLUTION;
+        }
+        return AdmissionControl.Kind.READ;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (HttpMethod.OPTIONS.matches(request.getMethod()) || null != request.getAttribute(BULKHEAD_ATTRIBUTE)) {
+            return true;
+        }
+        final Principal principal = request.getUserPrincipal();
+        final Bulkhead bulkhead = admissionControl.admit(null == principal ? null : principal.getName(), classify(request));
+        request.setAttribute(BULKHEAD_ATTRIBUTE, bulkhead);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        final Bulkhead bulkhead = (Bulkhead) request.getAttribute(BULKHEAD_ATTRIBUTE);
+        if (null != bulkhead) {
+            request.removeAttribute(BULKHEAD_ATTRIBUTE);
+            admissionControl.release(bulkhead);
+        }
+    }
+}
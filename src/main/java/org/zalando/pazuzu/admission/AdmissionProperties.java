@@ -0,0 +1,80 @@
+package org.zalando.pazuzu.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "pazuzu.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    /**
+     * Sustained request rate of one client.
+     */
+    private double requestsPerSecond = 20;
+    /**
+     * Number of requests a client may send at once after being idle.
+     */
+    private int burst = 100;
+    /**
+     * Client name used for requests without principal (no OAuth in dev profile).
+     */
+    private String anonymousClient = "anonymous";
+    private int maxConcurrentReads = 64;
+    private int maxConcurrentResolutions = 8;
+    private int maxConcurrentWrites = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public String getAnonymousClient() {
+        return anonymousClient;
+    }
+
+    public void setAnonymousClient(String anonymousClient) {
+        this.anonymousClient = anonymousClient;
+    }
+
+    public int getMaxConcurrentReads() {
+        return maxConcurrentReads;
+    }
+
+    public void setMaxConcurrentReads(int maxConcurrentReads) {
+        this.maxConcurrentReads = maxConcurrentReads;
+    }
+
+    public int getMaxConcurrentResolutions() {
+        return maxConcurrentResolutions;
+    }
+
+    public void setMaxConcurrentResolutions(int maxConcurrentResolutions) {
+        this.maxConcurrentResolutions = maxConcurrentResolutions;
+    }
+
+    public int getMaxConcurrentWrites() {
+        return maxConcurrentWrites;
+    }
+
+    public void setMaxConcurrentWrites(int maxConcurrentWrites) {
+        this.maxConcurrentWrites = maxConcurrentWrites;
+    }
+}
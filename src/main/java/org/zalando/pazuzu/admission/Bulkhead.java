@@ -0,0 +1,46 @@
+package org.zalando.pazuzu.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits number of concurrently executed requests of one kind, requests above the limit are rejected at once
+ * instead of waiting for a thread or a connection.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int limit;
+    private final Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, int limit) {
+        this.name = name;
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return limit - permits.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,57 @@
+package org.zalando.pazuzu.admission;
+
+/**
+ * Token bucket of one client: holds up to burst tokens, refilled at constant rate. Time is passed in by the
+ * caller (nanoseconds, as of {@link System#nanoTime()}).
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long updated;
+    // Rejections since the last taken token were reported
+    private boolean reported;
+
+    TokenBucket(double tokensPerSecond, int burst, long now) {
+        this.capacity = burst;
+        this.tokensPerNano = tokensPerSecond / 1e9;
+        this.tokens = burst;
+        this.updated = now;
+    }
+
+    /**
+     * @return 0 if token was taken, otherwise nanoseconds until one is available
+     */
+    synchronized long tryAcquire(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            reported = false;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * @return true for the first caller after a rejection, until a token is taken again
+     */
+    synchronized boolean reportRejection() {
+        final boolean first = !reported;
+        reported = true;
+        return first;
+    }
+
+    /**
+     * @return true if bucket is full, so it can be dropped and created again when needed
+     */
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - updated) * tokensPerNano);
+        updated = now;
+    }
+}
@@ -0,0 +1,65 @@
+package org.zalando.pazuzu.change;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.zalando.pazuzu.feature.FeatureDto;
+
+import java.util.List;
+import java.util.Locale;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeDto {
+    @JsonProperty("cursor")
+    private long cursor;
+    @JsonProperty("kind")
+    private String kind;
+    @JsonProperty("name")
+    private String name;
+    @JsonProperty("action")
+    private String action;
+    @JsonProperty("feature")
+    private FeatureDto feature;
+    @JsonProperty("dependencies")
+    private List<String> dependencies;
+
+    public static ChangeDto of(ChangeLogEntry entry, ChangeLogEntry.Action action) {
+        final ChangeDto result = new ChangeDto();
+        result.cursor = entry.getId();
+        result.kind = entry.getKind().name().toLowerCase(Locale.ROOT);
+        result.name = entry.getName();
+        result.action = action.name().toLowerCase(Locale.ROOT);
+        return result;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public FeatureDto getFeature() {
+        return feature;
+    }
+
+    public void setFeature(FeatureDto feature) {
+        this.feature = feature;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public void setDependencies(List<String> dependencies) {
+        this.dependencies = dependencies;
+    }
+}
@@ -0,0 +1,111 @@
+package org.zalando.pazuzu.change;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.feature.Feature;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Monotonic log of feature and tag modifications, used by clients to keep local mirror of the registry.
+ * <p>
+ * Ids are taken from single counter row within the modifying transaction. Row stays locked until commit, so
+ * transactions that record changes commit in id order and a reader never sees id N before all ids below N.
+ */
+@Service
+public class ChangeLog {
+
+    private final ChangeLogRepository changeLogRepository;
+    private final FeatureRepository featureRepository;
+    private final EntityManager entityManager;
+
+    @Autowired
+    public ChangeLog(ChangeLogRepository changeLogRepository, FeatureRepository featureRepository, EntityManager entityManager) {
+        this.changeLogRepository = changeLogRepository;
+        this.featureRepository = featureRepository;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(ChangeLogEntry.Kind kind, String name, ChangeLogEntry.Action action) {
+        recordAll(kind, Collections.singletonList(name), action);
+    }
+
+    /**
+     * Records the same action for several objects, ids are reserved with single counter update.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(ChangeLogEntry.Kind kind, List<String> names, ChangeLogEntry.Action action) {
+        if (names.isEmpty()) {
+            return;
+        }
+        changeLogRepository.advanceCounter(names.size());
+        long id = changeLogRepository.findCounter().longValue() - names.size();
+        for (String name : names) {
+            entityManager.persist(new ChangeLogEntry(++id, kind, name, action));
+        }
+    }
+
+    /**
+     * Returns changes after given cursor. Several changes of the same object are reported once, with the latest
+     * cursor and current state of the object. Upsert of a feature that does not exist anymore is reported as
+     * delete (the actual tombstone may be beyond the limit).
+     *
+     * @param since Last cursor seen by client, 0 to read from the beginning
+     * @param limit Max number of log entries to read
+     */
+    // Not read-only on purpose: replica may lag behind cursor that client got from primary
+    @Transactional
+    public ChangesDto getChanges(long since, int limit) throws BadRequestException {
+        final List<ChangeLogEntry> entries = changeLogRepository.findSince(since, new PageRequest(0, limit));
+        if (entries.isEmpty()) {
+            if (since > changeLogRepository.findCounter().longValue()) {
+                throw new BadRequestException(Error.CHANGE_CURSOR_UNKNOWN);
+            }
+            return new ChangesDto(new ArrayList<>(), since);
+        }
+        final Map<String, ChangeLogEntry> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry entry : entries) {
+            final String key = entry.getKind() + ":" + entry.getName();
+            latest.remove(key);
+            latest.put(key, entry);
+        }
+        final List<String> featureNames = latest.values().stream()
+                .filter(e -> e.getKind() == ChangeLogEntry.Kind.FEATURE && e.getAction() == ChangeLogEntry.Action.UPSERT)
+                .map(ChangeLogEntry::getName).collect(Collectors.toList());
+        final Map<String, Feature> features = featureNames.isEmpty() ? new LinkedHashMap<>()
+                : featureRepository.findByNameIn(featureNames).stream().collect(Collectors.toMap(Feature::getName, Function.identity()));
+
+        final List<ChangeDto> changes = new ArrayList<>(latest.size());
+        for (ChangeLogEntry entry : latest.values()) {
+            if (entry.getKind() != ChangeLogEntry.Kind.FEATURE || entry.getAction() == ChangeLogEntry.Action.DELETE) {
+                changes.add(ChangeDto.of(entry, entry.getAction()));
+                continue;
+            }
+            final Feature feature = features.get(entry.getName());
+            if (null == feature) {
+                changes.add(ChangeDto.of(entry, ChangeLogEntry.Action.DELETE));
+                continue;
+            }
+            final ChangeDto change = ChangeDto.of(entry, ChangeLogEntry.Action.UPSERT);
+            change.setFeature(FeatureDto.ofShort(feature));
+            change.setDependencies(feature.getDependencies().stream().map(Feature::getName).sorted().collect(Collectors.toList()));
+            changes.add(change);
+        }
+        return new ChangesDto(changes, entries.get(entries.size() - 1).getId());
+    }
+}
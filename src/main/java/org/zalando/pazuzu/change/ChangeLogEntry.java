@@ -0,0 +1,66 @@
+package org.zalando.pazuzu.change;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Single record of the change log. Id is the cursor clients use for delta sync, it is assigned by {@link ChangeLog}
+ * and grows in commit order.
+ */
+@Entity
+@Table(name = "change_log")
+public class ChangeLogEntry {
+
+    public enum Kind {
+        FEATURE, TAG
+    }
+
+    public enum Action {
+        UPSERT, DELETE
+    }
+
+    @Id
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 16)
+    private Kind kind;
+    @Column(name = "name", nullable = false, length = 256)
+    private String name;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 16)
+    private Action action;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "changed_at", nullable = false)
+    private Date changedAt;
+
+    protected ChangeLogEntry() {
+    }
+
+    public ChangeLogEntry(long id, Kind kind, String name, Action action) {
+        this.id = id;
+        this.kind = kind;
+        this.name = name;
+        this.action = action;
+        this.changedAt = new Date();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,25 @@
+package org.zalando.pazuzu.change;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ChangeLogRepository extends CrudRepository<ChangeLogEntry, Long> {
+
+    @Query(value = "SELECT c FROM ChangeLogEntry c WHERE c.id > :since ORDER BY c.id")
+    List<ChangeLogEntry> findSince(@Param("since") long since, Pageable page);
+
+    @Query(value = "SELECT COALESCE(MAX(c.id), 0) FROM ChangeLogEntry c")
+    long findLastId();
+
+    @Modifying
+    @Query(value = "UPDATE CHANGE_COUNTER SET LAST_ID = LAST_ID + :count", nativeQuery = true)
+    int advanceCounter(@Param("count") int count);
+
+    @Query(value = "SELECT LAST_ID FROM CHANGE_COUNTER", nativeQuery = true)
+    Number findCounter();
+}
@@ -0,0 +1,150 @@
+package org.zalando.pazuzu.change;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes change log entries to server-sent event subscribers. Log is polled once for all subscribers, starting
+ * from the oldest subscriber cursor, so the cost of a poll does not depend on the number of subscribers. Besides
+ * scheduled polls, log is read as soon as invalidation bus reports a change.
+ */
+@Component
+public class ChangeStream implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeStream.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final ChangeLog changeLog;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService wakeUpExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "change-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private long lastHeartbeat = System.currentTimeMillis();
+
+    @Autowired
+    public ChangeStream(ChangeLog changeLog, InvalidationBus invalidationBus,
+                        @Value("${pazuzu.changes.stream-timeout-ms:1800000}") long timeoutMillis,
+                        @Value("${pazuzu.changes.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.changeLog = changeLog;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        invalidationBus.subscribe(event -> wakeUp());
+    }
+
+    @Override
+    public void destroy() {
+        wakeUpExecutor.shutdownNow();
+    }
+
+    public SseEmitter subscribe(long since) {
+        final Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), since);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        wakeUp();
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void wakeUp() {
+        if (!subscribers.isEmpty() && wakeUpPending.compareAndSet(false, true)) {
+            wakeUpExecutor.execute(() -> {
+                wakeUpPending.set(false);
+                poll();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pazuzu.changes.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        boolean sent = false;
+        boolean advanced;
+        do {
+            final long since = subscribers.stream().mapToLong(s -> s.cursor).min().orElse(0);
+            final ChangesDto batch;
+            try {
+                batch = changeLog.getChanges(since, BATCH_SIZE);
+            } catch (ServiceException e) {
+                // Cursor from the future (e.g. database was restored from backup), client has to resync
+                subscribers.stream().filter(s -> s.cursor == since).forEach(s -> s.emitter.completeWithError(e));
+                subscribers.removeIf(s -> s.cursor == since);
+                return;
+            }
+            for (Subscriber subscriber : subscribers) {
+                sent |= send(subscriber, batch);
+            }
+            // Repeated changes of a name are reported once, a full page of log may give a single change
+            advanced = batch.getNextCursor() > since;
+        } while (advanced && !subscribers.isEmpty());
+
+        if (!sent && System.currentTimeMillis() - lastHeartbeat >= heartbeatMillis) {
+            subscribers.forEach(s -> s.heartbeat());
+            lastHeartbeat = System.currentTimeMillis();
+        }
+    }
+
+    private boolean send(Subscriber subscriber, ChangesDto batch) {
+        boolean sent = false;
+        try {
+            for (ChangeDto change : batch.getChanges()) {
+                if (change.getCursor() > subscriber.cursor) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.getCursor()))
+                            .name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                    sent = true;
+                }
+            }
+            subscriber.cursor = Math.max(subscriber.cursor, batch.getNextCursor());
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("Change subscriber is gone: {}", e.getMessage());
+            subscribers.remove(subscriber);
+        }
+        return sent;
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private volatile long cursor;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        private void heartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.zalando.pazuzu.change;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class ChangesDto {
+    @JsonProperty("changes")
+    private List<ChangeDto> changes;
+    @JsonProperty("next_cursor")
+    private long nextCursor;
+
+    public ChangesDto() {
+    }
+
+    public ChangesDto(List<ChangeDto> changes, long nextCursor) {
+        this.changes = changes;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ChangeDto> getChanges() {
+        return changes;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,44 @@
+package org.zalando.pazuzu.change;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.zalando.pazuzu.exception.ServiceException;
+
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/changes")
+public class ChangesResource {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private final ChangeLog changeLog;
+    private final ChangeStream changeStream;
+
+    @Autowired
+    public ChangesResource(ChangeLog changeLog, ChangeStream changeStream) {
+        this.changeLog = changeLog;
+        this.changeStream = changeStream;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChangesDto getChanges(
+            @RequestParam(required = false, name = "since") Long since,
+            @RequestParam(required = false, name = "limit") Integer limit) throws ServiceException {
+        final int actualLimit = null == limit ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, limit));
+        return changeLog.getChanges(null == since ? 0 : since, actualLimit);
+    }
+
+    /**
+     * Live changes as server-sent events. Event id is the change cursor, so reconnecting client continues from
+     * the last received event.
+     */
+    @RequestMapping(value = "/stream", method = RequestMethod.GET, produces = "text/event-stream")
+    public SseEmitter streamChanges(
+            @RequestParam(required = false, name = "since") Long since,
+            @RequestHeader(required = false, name = LAST_EVENT_ID) Long lastEventId) {
+        return changeStream.subscribe(null != lastEventId ? lastEventId : null == since ? 0 : since);
+    }
+}
@@ -0,0 +1,87 @@
+package org.zalando.pazuzu.concurrent;
+
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.zalando.pazuzu.exception.ServiceException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent computations with equal keys: the first caller computes, callers arriving while it is
+ * in flight wait for it and get the same result (or exception). Nothing is cached, computation that has
+ * completed is never shared with later callers. Results are shared between threads, so they must not be
+ * entities or be modified by callers. Owners call {@link #forgetInFlight()} when data changes, so that a caller
+ * that has just seen its write committed does not get the result of a computation that started before it.
+ * <p>
+ * Counts computations and coalesced calls as counter.coalescing.{name}.computed and .coalesced metrics.
+ */
+public class SingleFlight<K, V> {
+
+    @FunctionalInterface
+    public interface Computation<V> {
+        V compute() throws ServiceException;
+    }
+
+    private final String name;
+    private final CounterService counterService;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SingleFlight(String name, CounterService counterService) {
+        this.name = name;
+        this.counterService = counterService;
+    }
+
+    public V execute(K key, Computation<V> computation) throws ServiceException {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (null != existing) {
+            coalesced.incrementAndGet();
+            counterService.increment("coalescing." + name + ".coalesced");
+            return await(existing);
+        }
+        counterService.increment("coalescing." + name + ".computed");
+        try {
+            final V result = computation.compute();
+            future.complete(result);
+            return result;
+        } catch (ServiceException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Computations in flight complete for their current callers, later callers start new ones.
+     */
+    public void forgetInFlight() {
+        inFlight.clear();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws ServiceException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ServiceException) {
+                throw (ServiceException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
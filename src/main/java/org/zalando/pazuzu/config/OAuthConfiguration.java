@@ -1,6 +1,7 @@
 package org.zalando.pazuzu.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -25,6 +26,10 @@ public class OAuthConfiguration extends ResourceServerConfigurerAdapter {
     @Autowired
     private AccessTokensBeanProperties accessTokensBeanProperties;
 
+    // Registry-wide operations under /api/admin change features of all clients
+    @Value("${pazuzu.admin-scope:pazuzu.admin}")
+    private String adminScope;
+
     @Override
     public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
         // here is the important part for stups-expression-handler
@@ -44,6 +49,7 @@ public class OAuthConfiguration extends ResourceServerConfigurerAdapter {
                 .and()
                 .authorizeRequests()
                 .antMatchers("/api/health").permitAll()
+                .antMatchers("/api/admin/**").access("#oauth2.hasScope('uid') and #oauth2.hasScope('" + adminScope + "')")
                 .antMatchers("/api/**").access("#oauth2.hasScope('uid')");
         // @formatter:on
     }
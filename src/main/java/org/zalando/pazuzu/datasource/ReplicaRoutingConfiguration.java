@@ -0,0 +1,57 @@
+package org.zalando.pazuzu.datasource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Replaces the data source with one that sends read-only transactions to replicas
+ * (pazuzu.datasource.routing.enabled=true). Primary is still configured with spring.datasource.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pazuzu.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource")
+    public DataSource primaryDataSource(DataSourceProperties properties) {
+        return DataSourceBuilder.create(properties.getClassLoader())
+                .driverClassName(properties.getDriverClassName())
+                .url(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                             ReplicaRoutingProperties properties) {
+        final List<DataSource> replicas = properties.getReplicas().stream()
+                .map(r -> DataSourceBuilder.create()
+                        .driverClassName(r.getDriverClassName())
+                        .url(r.getUrl())
+                        .username(r.getUsername())
+                        .password(r.getPassword())
+                        .build())
+                .collect(Collectors.toList());
+        return new ReplicaRoutingDataSource(primary, replicas, properties.getLagQuery(), properties.getMaxLagSeconds());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,129 @@
+package org.zalando.pazuzu.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives connections of read-only transactions to replicas (round robin), everything else goes to primary.
+ * Replicas that are unreachable or lag behind more than allowed are skipped until the next successful check,
+ * without healthy replicas reads go to primary as well.
+ * <p>
+ * Transaction managers take connection before transaction is marked read-only, so this data source has to be
+ * wrapped with {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements InitializingBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    // Age of the last replayed transaction, so a replica that lost primary keeps aging. NULL (unhealthy) when
+    // replica never received anything from primary. %s is the receive position function, renamed in 10.
+    private static final String POSTGRESQL_LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN %s() IS NULL THEN NULL "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, String lagQuery, double maxLagSeconds) {
+        this.primary = primary;
+        replicas.forEach(r -> this.replicas.add(new Replica(r)));
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        checkReplicas();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !replicas.isEmpty()) {
+            final int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); ++i) {
+                final Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.healthy) {
+                    try {
+                        return replica.dataSource.getConnection();
+                    } catch (SQLException e) {
+                        LOG.warn("Replica is not available, skipping it until next check", e);
+                        replica.healthy = false;
+                    }
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Checks that replicas are reachable and close enough to primary.
+     */
+    @Scheduled(fixedDelayString = "${pazuzu.datasource.routing.check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            final boolean healthy = isHealthy(replica);
+            if (healthy != replica.healthy) {
+                LOG.info("Replica {} is {}", replicas.indexOf(replica), healthy ? "in use" : "skipped");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public int getHealthyReplicaCount() {
+        return (int) replicas.stream().filter(r -> r.healthy).count();
+    }
+
+    private boolean isHealthy(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            final String query = null != lagQuery ? lagQuery
+                    : "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                    ? postgresqlLagQuery(connection.getMetaData().getDatabaseMajorVersion()) : null;
+            if (null == query) {
+                return connection.isValid(5);
+            }
+            try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(query)) {
+                if (!result.next()) {
+                    return false;
+                }
+                final double lag = result.getDouble(1);
+                return !result.wasNull() && lag <= maxLagSeconds;
+            }
+        } catch (SQLException e) {
+            LOG.debug("Replica check failed", e);
+            return false;
+        }
+    }
+
+    static String postgresqlLagQuery(int majorVersion) {
+        return String.format(POSTGRESQL_LAG_QUERY, majorVersion >= 10 ? "pg_last_wal_receive_lsn" : "pg_last_xlog_receive_location");
+    }
+
+    private static final class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.zalando.pazuzu.docker;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DockerfileDto {
+    @JsonProperty("features")
+    private List<String> features;
+    @JsonProperty("dockerfile")
+    private String dockerfile;
+    @JsonProperty("report")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LayerReportDto report;
+    @JsonProperty("order_report")
+    private OrderReportDto orderReport;
+    @JsonProperty("stages")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<DockerfileStageDto> stages;
+
+    public List<String> getFeatures() {
+        if (null == features) {
+            features = new ArrayList<>();
+        }
+        return features;
+    }
+
+    public void setFeatures(List<String> features) {
+        this.features = features;
+    }
+
+    public String getDockerfile() {
+        return dockerfile;
+    }
+
+    public void setDockerfile(String dockerfile) {
+        this.dockerfile = dockerfile;
+    }
+
+    public LayerReportDto getReport() {
+        return report;
+    }
+
+    public void setReport(LayerReportDto report) {
+        this.report = report;
+    }
+
+    public List<DockerfileStageDto> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<DockerfileStageDto> stages) {
+        this.stages = stages;
+    }
+
+    public OrderReportDto getOrderReport() {
+        return orderReport;
+    }
+
+    public void setOrderReport(OrderReportDto orderReport) {
+        this.orderReport = orderReport;
+    }
+}
@@ -0,0 +1,73 @@
+package org.zalando.pazuzu.docker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Single logical Dockerfile instruction, with line continuations already joined.
+ */
+public class DockerfileInstruction {
+
+    public static final String RUN = "RUN";
+    public static final String ENV = "ENV";
+    public static final String SHELL = "SHELL";
+    public static final String FROM = "FROM";
+    public static final String ADD = "ADD";
+    public static final String COPY = "COPY";
+
+    private final String keyword;
+    private final String arguments;
+    // Original text, null if instruction was produced or modified by optimizer
+    private final String source;
+    private final List<String> comments = new ArrayList<>();
+
+    public DockerfileInstruction(String keyword, String arguments, String source) {
+        this.keyword = keyword.toUpperCase(Locale.ROOT);
+        this.arguments = arguments;
+        this.source = source;
+    }
+
+    public DockerfileInstruction(String keyword, String arguments) {
+        this(keyword, arguments, null);
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String getArguments() {
+        return arguments;
+    }
+
+    public List<String> getComments() {
+        return comments;
+    }
+
+    public boolean is(String keyword) {
+        return this.keyword.equals(keyword);
+    }
+
+    /**
+     * @return true for RUN instructions in shell form without build flags (e.g. --mount), the only ones that can
+     * be chained into single shell command.
+     */
+    public boolean isShellFormRun() {
+        return is(RUN) && !arguments.startsWith("[") && !arguments.startsWith("--") && !arguments.contains("<<");
+    }
+
+    /**
+     * @return true for comment-only entry that does not carry an instruction
+     */
+    public boolean isCommentOnly() {
+        return keyword.isEmpty();
+    }
+
+    public String render() {
+        final List<String> lines = new ArrayList<>(comments);
+        if (!isCommentOnly()) {
+            lines.add(null != source ? source : keyword + " " + arguments);
+        }
+        return String.join("\n", lines);
+    }
+}
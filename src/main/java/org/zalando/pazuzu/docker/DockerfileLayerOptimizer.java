@@ -0,0 +1,256 @@
+package org.zalando.pazuzu.docker;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reduces number of layers of Dockerfile assembled from feature snippets. Instructions are never reordered, so
+ * dependency order of features is kept:
+ * <ul>
+ * <li>package index refreshes (apt-get update, apk update) are dropped while index from previous refresh is still
+ * in the image. Index is considered stale after FROM, after RUN that is not a plain shell command, and after
+ * ADD or COPY into package manager directories;</li>
+ * <li>adjacent shell form RUN instructions are chained with &amp;&amp; into single RUN;</li>
+ * <li>adjacent ENV instructions are collapsed into single ENV, unless value refers to variable set in the same
+ * instruction.</li>
+ * </ul>
+ */
+public class DockerfileLayerOptimizer {
+
+    private static final String CONTINUATION = " \\\n    ";
+
+    private final LayerReportDto report = new LayerReportDto();
+    private final Set<PackageIndex> freshIndexes = EnumSet.noneOf(PackageIndex.class);
+
+    public List<DockerfileInstruction> optimize(List<DockerfileInstruction> instructions) {
+        report.setLayersBefore(countLayers(instructions));
+        final List<DockerfileInstruction> result = mergeAdjacent(removeIndexRefreshes(instructions));
+        report.setLayersAfter(countLayers(result));
+        return result;
+    }
+
+    public LayerReportDto getReport() {
+        return report;
+    }
+
+    private static int countLayers(List<DockerfileInstruction> instructions) {
+        return (int) instructions.stream().filter(i -> !i.isCommentOnly()).count();
+    }
+
+    private List<DockerfileInstruction> removeIndexRefreshes(List<DockerfileInstruction> instructions) {
+        final List<DockerfileInstruction> result = new ArrayList<>();
+        final List<String> orphanComments = new ArrayList<>();
+        for (DockerfileInstruction instruction : instructions) {
+            DockerfileInstruction current = instruction;
+            if (instruction.isShellFormRun()) {
+                final ShellCommand command = new ShellCommand(instruction.getArguments());
+                if (command.isAndList()) {
+                    final List<String> kept = command.getParts().stream()
+                            .filter(this::keepAndTrack).collect(Collectors.toList());
+                    if (kept.isEmpty()) {
+                        orphanComments.addAll(instruction.getComments());
+                        continue;
+                    }
+                    if (kept.size() != command.getParts().size()) {
+                        current = copyComments(instruction, new DockerfileInstruction(DockerfileInstruction.RUN, ShellCommand.join(kept)));
+                    }
+                } else {
+                    command.getParts().forEach(this::track);
+                }
+            } else if (instruction.is(DockerfileInstruction.RUN) || instruction.is(DockerfileInstruction.FROM)) {
+                // Exec form or build flags hide the command, new stage starts from another image
+                freshIndexes.clear();
+            } else if (instruction.is(DockerfileInstruction.ADD) || instruction.is(DockerfileInstruction.COPY)) {
+                final String destination = destination(instruction.getArguments());
+                freshIndexes.removeIf(index -> index.isOverwrittenBy(destination));
+            }
+            current.getComments().addAll(0, orphanComments);
+            orphanComments.clear();
+            result.add(current);
+        }
+        if (!orphanComments.isEmpty()) {
+            final DockerfileInstruction trailer = new DockerfileInstruction("", "", "");
+            trailer.getComments().addAll(orphanComments);
+            result.add(trailer);
+        }
+        return result;
+    }
+
+    private boolean keepAndTrack(String command) {
+        for (PackageIndex index : PackageIndex.values()) {
+            if (index.isRefresh(command)) {
+                if (!freshIndexes.add(index)) {
+                    report.setRemovedIndexRefreshes(report.getRemovedIndexRefreshes() + 1);
+                    return false;
+                }
+                return true;
+            }
+        }
+        track(command);
+        return true;
+    }
+
+    private void track(String command) {
+        for (PackageIndex index : PackageIndex.values()) {
+            if (index.isRefresh(command)) {
+                freshIndexes.add(index);
+            } else if (index.makesStale(command)) {
+                freshIndexes.remove(index);
+            }
+        }
+    }
+
+    /**
+     * @return last path of ADD or COPY, in shell or exec form, without surrounding quotes
+     */
+    static String destination(String arguments) {
+        final String trimmed = arguments.trim();
+        final String last;
+        if (trimmed.startsWith("[") && trimmed.endsWith("]")) {
+            final String[] paths = trimmed.substring(1, trimmed.length() - 1).split(",");
+            last = paths[paths.length - 1];
+        } else {
+            final String[] words = trimmed.split("\\s+");
+            last = words[words.length - 1];
+        }
+        return last.trim().replaceAll("^\"|\"$", "");
+    }
+
+    private List<DockerfileInstruction> mergeAdjacent(List<DockerfileInstruction> instructions) {
+        final List<DockerfileInstruction> result = new ArrayList<>();
+        final List<DockerfileInstruction> group = new ArrayList<>();
+        final List<String> pendingComments = new ArrayList<>();
+        boolean customShell = false;
+        for (DockerfileInstruction instruction : instructions) {
+            if (instruction.isCommentOnly()) {
+                pendingComments.addAll(instruction.getComments());
+                continue;
+            }
+            instruction.getComments().addAll(0, pendingComments);
+            pendingComments.clear();
+            // Commands can not be chained with && once shell is replaced
+            customShell |= instruction.is(DockerfileInstruction.SHELL);
+            if (!group.isEmpty() && !canJoin(group, instruction, customShell)) {
+                result.add(flush(group));
+            }
+            group.add(instruction);
+        }
+        if (!group.isEmpty()) {
+            result.add(flush(group));
+        }
+        if (!pendingComments.isEmpty()) {
+            final DockerfileInstruction trailer = new DockerfileInstruction("", "", "");
+            trailer.getComments().addAll(pendingComments);
+            result.add(trailer);
+        }
+        return result;
+    }
+
+    private static boolean canJoin(List<DockerfileInstruction> group, DockerfileInstruction next, boolean customShell) {
+        final DockerfileInstruction head = group.get(0);
+        if (head.isShellFormRun()) {
+            return !customShell && next.isShellFormRun();
+        }
+        if (head.is(DockerfileInstruction.ENV) && next.is(DockerfileInstruction.ENV)) {
+            final Map<String, String> defined = new LinkedHashMap<>();
+            for (DockerfileInstruction instruction : group) {
+                final Map<String, String> pairs = EnvPairs.parse(instruction.getArguments());
+                if (null == pairs) {
+                    return false;
+                }
+                defined.putAll(pairs);
+            }
+            final Map<String, String> nextPairs = EnvPairs.parse(next.getArguments());
+            return null != nextPairs && !EnvPairs.refersTo(nextPairs, defined.keySet());
+        }
+        return false;
+    }
+
+    private DockerfileInstruction flush(List<DockerfileInstruction> group) {
+        final DockerfileInstruction head = group.get(0);
+        final DockerfileInstruction result;
+        if (group.size() == 1) {
+            result = head;
+        } else if (head.is(DockerfileInstruction.RUN)) {
+            report.setMergedRunInstructions(report.getMergedRunInstructions() + group.size() - 1);
+            result = mergeComments(group, new DockerfileInstruction(DockerfileInstruction.RUN, group.stream()
+                    .map(DockerfileInstruction::getArguments)
+                    .map(command -> new ShellCommand(command).needsGrouping() ? "(" + command + ")" : command)
+                    .collect(Collectors.joining(CONTINUATION + ShellCommand.AND + " "))));
+        } else {
+            report.setCollapsedEnvInstructions(report.getCollapsedEnvInstructions() + group.size() - 1);
+            result = mergeComments(group, new DockerfileInstruction(DockerfileInstruction.ENV, group.stream()
+                    .map(i -> EnvPairs.parse(i.getArguments()))
+                    .flatMap(pairs -> pairs.entrySet().stream())
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining(CONTINUATION))));
+        }
+        group.clear();
+        return result;
+    }
+
+    private static DockerfileInstruction copyComments(DockerfileInstruction from, DockerfileInstruction to) {
+        to.getComments().addAll(from.getComments());
+        return to;
+    }
+
+    private static DockerfileInstruction mergeComments(List<DockerfileInstruction> from, DockerfileInstruction to) {
+        from.forEach(i -> to.getComments().addAll(i.getComments()));
+        return to;
+    }
+
+    private enum PackageIndex {
+        APT("^(sudo\\s+)?apt(-get)?(\\s+-\\S+)*\\s+update(\\s+-\\S+)*$",
+                "add-apt-repository|apt-key|sources\\.list|/etc/apt/|dpkg\\s+--add-architecture|/var/lib/apt/lists",
+                "/etc/apt", "/var/lib/apt/lists"),
+        APK("^(sudo\\s+)?apk(\\s+-\\S+)*\\s+update$",
+                "/etc/apk/repositories|/var/cache/apk",
+                "/etc/apk", "/var/cache/apk");
+
+        private final Pattern refresh;
+        // Commands that change package sources or remove downloaded index
+        private final Pattern stale;
+        // Directories with package sources and downloaded index
+        private final String[] directories;
+
+        PackageIndex(String refresh, String stale, String... directories) {
+            this.refresh = Pattern.compile(refresh);
+            this.stale = Pattern.compile(stale);
+            this.directories = directories;
+        }
+
+        /**
+         * @return true if files copied to destination may land in one of the directories. Relative destinations
+         * depend on WORKDIR and are only trusted when they do not go up, variables are never trusted.
+         */
+        boolean isOverwrittenBy(String destination) {
+            if (destination.contains("$")) {
+                return true;
+            }
+            if (!destination.startsWith("/")) {
+                return destination.startsWith("..") || destination.contains("/..");
+            }
+            final String path = destination.replaceAll("/+", "/").replaceAll("(.)/$", "$1");
+            for (String directory : directories) {
+                if (path.equals("/") || directory.equals(path) || directory.startsWith(path + "/") || path.startsWith(directory + "/")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isRefresh(String command) {
+            return refresh.matcher(command.trim()).matches();
+        }
+
+        boolean makesStale(String command) {
+            return stale.matcher(command).find();
+        }
+    }
+}
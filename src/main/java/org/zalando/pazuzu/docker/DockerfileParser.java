@@ -0,0 +1,78 @@
+package org.zalando.pazuzu.docker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits docker_data snippets into instructions. Only the parts of Dockerfile syntax that matter for
+ * layer optimization are interpreted: line continuations, comments and the instruction keyword.
+ */
+public final class DockerfileParser {
+
+    private DockerfileParser() {
+    }
+
+    /**
+     * @param snippet Dockerfile fragment, may be null
+     * @return instructions in order of appearance. Comments are attached to the following instruction,
+     * trailing comments are returned as instruction with empty keyword.
+     */
+    public static List<DockerfileInstruction> parse(String snippet) {
+        final List<DockerfileInstruction> result = new ArrayList<>();
+        if (null == snippet) {
+            return result;
+        }
+        final List<String> comments = new ArrayList<>();
+        final StringBuilder logical = new StringBuilder();
+        final StringBuilder source = new StringBuilder();
+        for (String line : snippet.split("\r?\n", -1)) {
+            final String trimmed = line.trim();
+            if (logical.length() == 0) {
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (trimmed.startsWith("#")) {
+                    comments.add(trimmed);
+                    continue;
+                }
+            } else if (trimmed.startsWith("#")) {
+                // Docker drops comment lines inside continued instruction
+                source.append('\n').append(line);
+                continue;
+            }
+            if (source.length() > 0) {
+                source.append('\n');
+            }
+            source.append(line);
+            if (trimmed.endsWith("\\")) {
+                logical.append(trimmed.substring(0, trimmed.length() - 1).trim()).append(' ');
+                continue;
+            }
+            logical.append(trimmed);
+            result.add(instruction(logical.toString(), source.toString(), comments));
+            logical.setLength(0);
+            source.setLength(0);
+            comments.clear();
+        }
+        if (logical.length() > 0) {
+            result.add(instruction(logical.toString(), source.toString(), comments));
+        } else if (!comments.isEmpty()) {
+            final DockerfileInstruction trailer = new DockerfileInstruction("", "", "");
+            trailer.getComments().addAll(comments);
+            result.add(trailer);
+        }
+        return result;
+    }
+
+    private static DockerfileInstruction instruction(String logicalLine, String source, List<String> comments) {
+        final String line = logicalLine.trim();
+        int split = 0;
+        while (split < line.length() && !Character.isWhitespace(line.charAt(split))) {
+            ++split;
+        }
+        final DockerfileInstruction result = new DockerfileInstruction(
+                line.substring(0, split), line.substring(split).trim().replaceAll("\\s+$", ""), source);
+        result.getComments().addAll(comments);
+        return result;
+    }
+}
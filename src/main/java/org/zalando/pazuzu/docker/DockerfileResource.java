@@ -0,0 +1,70 @@
+package org.zalando.pazuzu.docker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.zalando.pazuzu.concurrent.SingleFlight;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/dockerfile")
+public class DockerfileResource {
+
+    private static final String X_LAYERS_SAVED = "X-Layers-Saved";
+    private static final Integer LAYER_OPTIMIZATION = 1;
+    private static final Integer GROUP_BRANCHES = 1;
+    private final DockerfileService dockerfileService;
+    private final SingleFlight<List<Object>, DockerfileDto> dockerfiles;
+
+    @Autowired
+    public DockerfileResource(DockerfileService dockerfileService, CounterService counterService, InvalidationBus invalidationBus) {
+        this.dockerfileService = dockerfileService;
+        this.dockerfiles = new SingleFlight<>("dockerfile", counterService);
+        invalidationBus.subscribe(event -> dockerfiles.forgetInFlight());
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DockerfileDto getDockerfile(
+            @RequestParam(name = "name") String[] featureNames,
+            @RequestParam(required = false, name = "optimize") Integer optimize,
+            @RequestParam(required = false, name = "stages") Integer stages,
+            @RequestParam(required = false, name = "base") String baseImage,
+            @RequestParam(required = false, name = "order") String order) throws ServiceException {
+        final Set<String> names = new TreeSet<>(Arrays.asList(featureNames));
+        final boolean optimizeLayers = LAYER_OPTIMIZATION.equals(optimize);
+        final ResolutionOrder resolutionOrder = ResolutionOrder.of(order);
+        if (!GROUP_BRANCHES.equals(stages)) {
+            return dockerfiles.execute(Arrays.asList(names, optimizeLayers, resolutionOrder),
+                    () -> dockerfileService.generate(new ArrayList<>(names), optimizeLayers, resolutionOrder));
+        }
+        return dockerfiles.execute(Arrays.asList(names, optimizeLayers, resolutionOrder, GROUP_BRANCHES, baseImage),
+                () -> dockerfileService.generateStages(new ArrayList<>(names), optimizeLayers, baseImage, resolutionOrder));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> getDockerfileText(
+            @RequestParam(name = "name") String[] featureNames,
+            @RequestParam(required = false, name = "optimize") Integer optimize,
+            @RequestParam(required = false, name = "stages") Integer stages,
+            @RequestParam(required = false, name = "base") String baseImage,
+            @RequestParam(required = false, name = "order") String order) throws ServiceException {
+        final DockerfileDto dockerfile = getDockerfile(featureNames, optimize, stages, baseImage, order);
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (null != dockerfile.getReport()) {
+            response.header(X_LAYERS_SAVED, Integer.toString(dockerfile.getReport().getLayersSaved()))
+                    .header("Access-Control-Expose-Headers", X_LAYERS_SAVED);
+        }
+        return response.body(dockerfile.getDockerfile() + "\n");
+    }
+}
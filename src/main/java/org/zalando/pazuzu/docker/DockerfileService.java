@@ -0,0 +1,149 @@
+package org.zalando.pazuzu.docker;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.Feature;
+import org.zalando.pazuzu.feature.FeatureService;
+import org.zalando.pazuzu.feature.FeatureUsage;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class DockerfileService {
+
+    private static final String BASE_IMAGE_ARG = "BASE_IMAGE";
+    private static final String COMMON_GROUP = "common";
+
+    private final FeatureService featureService;
+    private final FeatureUsage featureUsage;
+
+    @Autowired
+    public DockerfileService(FeatureService featureService, FeatureUsage featureUsage) {
+        this.featureService = featureService;
+        this.featureUsage = featureUsage;
+    }
+
+    /**
+     * Builds Dockerfile from snippets of requested features and all their dependencies, in dependency order.
+     *
+     * @param featureNames Names of requested features
+     * @param optimize     Whether to reduce number of layers, see {@link DockerfileLayerOptimizer}
+     * @param order        Order of features that do not depend on each other
+     */
+    @Transactional(readOnly = true)
+    public DockerfileDto generate(List<String> featureNames, boolean optimize, ResolutionOrder order) throws ServiceException {
+        return assemble(featureService.getSortedFeatures(featureService.loadFeatures(featureNames), order), optimize, order);
+    }
+
+    /**
+     * Builds Dockerfile from snippets of already resolved features.
+     *
+     * @param features Features with all their dependencies, in the order of their snippets
+     */
+    @Transactional(readOnly = true)
+    public DockerfileDto assemble(List<Feature> features, boolean optimize, ResolutionOrder order) {
+        final DockerfileDto result = new DockerfileDto();
+        result.setFeatures(features.stream().map(Feature::getName).collect(Collectors.toList()));
+        result.setOrderReport(orderReport(features, order));
+        if (optimize) {
+            final DockerfileLayerOptimizer optimizer = new DockerfileLayerOptimizer();
+            final List<DockerfileInstruction> instructions = optimizer.optimize(features.stream()
+                    .flatMap(f -> DockerfileParser.parse(f.getDockerData()).stream())
+                    .collect(Collectors.toList()));
+            result.setDockerfile(render(instructions));
+            result.setReport(optimizer.getReport());
+        } else {
+            result.setDockerfile(features.stream().map(Feature::getDockerData)
+                    .filter(s -> null != s && !s.isEmpty()).collect(Collectors.joining("\n")));
+        }
+        return result;
+    }
+
+    /**
+     * Builds Dockerfile with independent branches of the dependency graph grouped. Features needed by more than
+     * one requested feature go first ("common"), then the rest of each requested feature's closure, one group
+     * after another. Groups are built sequentially in a single stage: file systems of parallel stages can not be
+     * merged with COPY, as package databases, users and package indexes of later branches overwrite the ones of
+     * earlier branches and files deleted in a branch come back.
+     *
+     * @param baseImage Base image, null to require BASE_IMAGE build argument
+     * @param order     Order of features within groups
+     */
+    @Transactional(readOnly = true)
+    public DockerfileDto generateStages(List<String> featureNames, boolean optimize, String baseImage, ResolutionOrder order) throws ServiceException {
+        final Set<Feature> requested = featureService.loadFeatures(featureNames);
+        final List<Feature> features = featureService.getSortedFeatures(requested, order);
+
+        // Dependencies go first, so closures of dependencies are known when feature is reached
+        final Map<Feature, Set<Feature>> closures = new HashMap<>();
+        for (Feature feature : features) {
+            final Set<Feature> closure = new HashSet<>();
+            closure.add(feature);
+            feature.getDependencies().forEach(d -> closure.addAll(closures.get(d)));
+            closures.put(feature, closure);
+        }
+        final List<Feature> roots = requested.stream()
+                .filter(r -> requested.stream().noneMatch(o -> o != r && closures.get(o).contains(r)))
+                .sorted(Comparator.comparing(Feature::getName))
+                .collect(Collectors.toList());
+        final Map<Feature, Integer> owners = new HashMap<>();
+        roots.forEach(r -> closures.get(r).forEach(f -> owners.merge(f, 1, Integer::sum)));
+
+        final Map<String, List<Feature>> groups = new LinkedHashMap<>();
+        final List<Feature> common = features.stream().filter(f -> owners.get(f) > 1).collect(Collectors.toList());
+        if (!common.isEmpty()) {
+            groups.put(COMMON_GROUP, common);
+        }
+        for (Feature root : roots) {
+            final Set<Feature> closure = closures.get(root);
+            String name = groupName(root.getName());
+            for (int i = 2; groups.containsKey(name); ++i) {
+                name = groupName(root.getName()) + "-" + i;
+            }
+            groups.put(name, features.stream().filter(f -> owners.get(f) == 1 && closure.contains(f)).collect(Collectors.toList()));
+        }
+        // Common features come first, then every branch depends only on them and on itself
+        final List<Feature> grouped = groups.values().stream().flatMap(List::stream).collect(Collectors.toList());
+
+        final DockerfileDto result = assemble(grouped, optimize, order);
+        result.setStages(groups.entrySet().stream()
+                .map(g -> new DockerfileStageDto(g.getKey(), names(g.getValue())))
+                .collect(Collectors.toList()));
+        final String from = "ARG " + BASE_IMAGE_ARG + (null == baseImage ? "" : "=" + baseImage) + "\n\n"
+                + "FROM ${" + BASE_IMAGE_ARG + "}";
+        result.setDockerfile(result.getDockerfile().isEmpty() ? from : from + "\n" + result.getDockerfile());
+        return result;
+    }
+
+    private OrderReportDto orderReport(List<Feature> features, ResolutionOrder order) {
+        final OrderReportDto report = new OrderReportDto();
+        report.setOrder(order.getName());
+        report.setSharedPrefixRatio(featureUsage.getSharedPrefixRatio(features));
+        report.setCanonicalSharedPrefixRatio(order == ResolutionOrder.CANONICAL ? report.getSharedPrefixRatio()
+                : featureUsage.getSharedPrefixRatio(featureService.sort(features, ResolutionOrder.CANONICAL)));
+        return report;
+    }
+
+    private static List<String> names(List<Feature> features) {
+        return features.stream().map(Feature::getName).collect(Collectors.toList());
+    }
+
+    static String groupName(String featureName) {
+        return "feature-" + featureName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]", "-");
+    }
+
+    static String render(List<DockerfileInstruction> instructions) {
+        return instructions.stream().map(DockerfileInstruction::render).collect(Collectors.joining("\n"));
+    }
+}
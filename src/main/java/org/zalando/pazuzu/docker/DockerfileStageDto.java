@@ -0,0 +1,40 @@
+package org.zalando.pazuzu.docker;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DockerfileStageDto {
+    @JsonProperty("name")
+    private String name;
+    @JsonProperty("features")
+    private List<String> features;
+
+    public DockerfileStageDto() {
+    }
+
+    public DockerfileStageDto(String name, List<String> features) {
+        this.name = name;
+        this.features = features;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<String> getFeatures() {
+        if (null == features) {
+            features = new ArrayList<>();
+        }
+        return features;
+    }
+
+    public void setFeatures(List<String> features) {
+        this.features = features;
+    }
+}
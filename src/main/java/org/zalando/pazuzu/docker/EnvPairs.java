@@ -0,0 +1,90 @@
+package org.zalando.pazuzu.docker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parser for arguments of ENV instruction, both "key=value ..." and legacy "key value" forms.
+ */
+final class EnvPairs {
+
+    private static final Pattern KEY = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private EnvPairs() {
+    }
+
+    /**
+     * @return variables with raw (still quoted) values in "key=value" form, null if arguments can not be safely
+     * rewritten
+     */
+    static Map<String, String> parse(String arguments) {
+        final List<String> tokens = tokenize(arguments);
+        if (null == tokens || tokens.isEmpty()) {
+            return null;
+        }
+        final Map<String, String> result = new LinkedHashMap<>();
+        if (!tokens.get(0).contains("=")) {
+            // Legacy form: everything after the key is value
+            final String key = tokens.get(0);
+            final String value = arguments.trim().substring(key.length()).trim();
+            if (!KEY.matcher(key).matches() || value.isEmpty() || value.matches(".*[\"'\\\\].*")) {
+                return null;
+            }
+            result.put(key, "\"" + value + "\"");
+            return result;
+        }
+        for (String token : tokens) {
+            final int split = token.indexOf('=');
+            if (split <= 0 || !KEY.matcher(token.substring(0, split)).matches()) {
+                return null;
+            }
+            result.put(token.substring(0, split), token.substring(split + 1));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if any value refers to one of given variables. ENV substitutes values that were set before
+     * the instruction, so such pairs can not be moved into instruction that defines the variable.
+     */
+    static boolean refersTo(Map<String, String> pairs, Collection<String> variables) {
+        return pairs.values().stream().anyMatch(value -> variables.stream().anyMatch(
+                variable -> Pattern.compile("\\$(\\{" + variable + "[}:]|" + variable + "(\\W|$))").matcher(value).find()));
+    }
+
+    private static List<String> tokenize(String arguments) {
+        final List<String> result = new ArrayList<>();
+        final StringBuilder current = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < arguments.length(); ++i) {
+            final char c = arguments.charAt(i);
+            if (c == '\\' && i + 1 < arguments.length()) {
+                current.append(c).append(arguments.charAt(++i));
+            } else if (quote != 0) {
+                current.append(c);
+                quote = c == quote ? 0 : quote;
+            } else if (c == '"' || c == '\'') {
+                current.append(c);
+                quote = c;
+            } else if (Character.isWhitespace(c)) {
+                if (current.length() > 0) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (quote != 0) {
+            return null;
+        }
+        if (current.length() > 0) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+}
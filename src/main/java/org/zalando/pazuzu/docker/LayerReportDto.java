@@ -0,0 +1,61 @@
+package org.zalando.pazuzu.docker;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class LayerReportDto {
+    @JsonProperty("layers_before")
+    private int layersBefore;
+    @JsonProperty("layers_after")
+    private int layersAfter;
+    @JsonProperty("merged_run_instructions")
+    private int mergedRunInstructions;
+    @JsonProperty("collapsed_env_instructions")
+    private int collapsedEnvInstructions;
+    @JsonProperty("removed_index_refreshes")
+    private int removedIndexRefreshes;
+
+    @JsonProperty("layers_saved")
+    public int getLayersSaved() {
+        return layersBefore - layersAfter;
+    }
+
+    public int getLayersBefore() {
+        return layersBefore;
+    }
+
+    public void setLayersBefore(int layersBefore) {
+        this.layersBefore = layersBefore;
+    }
+
+    public int getLayersAfter() {
+        return layersAfter;
+    }
+
+    public void setLayersAfter(int layersAfter) {
+        this.layersAfter = layersAfter;
+    }
+
+    public int getMergedRunInstructions() {
+        return mergedRunInstructions;
+    }
+
+    public void setMergedRunInstructions(int mergedRunInstructions) {
+        this.mergedRunInstructions = mergedRunInstructions;
+    }
+
+    public int getCollapsedEnvInstructions() {
+        return collapsedEnvInstructions;
+    }
+
+    public void setCollapsedEnvInstructions(int collapsedEnvInstructions) {
+        this.collapsedEnvInstructions = collapsedEnvInstructions;
+    }
+
+    public int getRemovedIndexRefreshes() {
+        return removedIndexRefreshes;
+    }
+
+    public void setRemovedIndexRefreshes(int removedIndexRefreshes) {
+        this.removedIndexRefreshes = removedIndexRefreshes;
+    }
+}
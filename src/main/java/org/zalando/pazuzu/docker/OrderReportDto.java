@@ -0,0 +1,39 @@
+package org.zalando.pazuzu.docker;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Expected layer reuse of the generated Dockerfile, see {@link org.zalando.pazuzu.feature.FeatureUsage}.
+ */
+public class OrderReportDto {
+    @JsonProperty("order")
+    private String order;
+    @JsonProperty("shared_prefix_ratio")
+    private double sharedPrefixRatio;
+    @JsonProperty("canonical_shared_prefix_ratio")
+    private double canonicalSharedPrefixRatio;
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+
+    public double getSharedPrefixRatio() {
+        return sharedPrefixRatio;
+    }
+
+    public void setSharedPrefixRatio(double sharedPrefixRatio) {
+        this.sharedPrefixRatio = sharedPrefixRatio;
+    }
+
+    public double getCanonicalSharedPrefixRatio() {
+        return canonicalSharedPrefixRatio;
+    }
+
+    public void setCanonicalSharedPrefixRatio(double canonicalSharedPrefixRatio) {
+        this.canonicalSharedPrefixRatio = canonicalSharedPrefixRatio;
+    }
+}
@@ -0,0 +1,133 @@
+package org.zalando.pazuzu.docker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shell command line split into top-level command lists. Quotes, escapes, command substitution and sub-shells
+ * are respected, so only operators that would be seen by the shell itself are used as separators.
+ */
+class ShellCommand {
+
+    static final String AND = "&&";
+
+    // Builtins that change state of the shell and would leak into chained commands
+    private static final Set<String> STATEFUL_BUILTINS = new HashSet<>(Arrays.asList(
+            "cd", "pushd", "popd", "export", "unset", "set", "source", ".", "umask", "alias", "shopt", "trap", "exec"));
+
+    private final List<String> parts = new ArrayList<>();
+    private final List<String> operators = new ArrayList<>();
+
+    ShellCommand(String command) {
+        parse(command);
+    }
+
+    /**
+     * @return commands between top-level operators
+     */
+    List<String> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * @return true if all top-level commands are joined with &amp;&amp;, so any of them can be dropped safely
+     */
+    boolean isAndList() {
+        return operators.stream().allMatch(AND::equals);
+    }
+
+    /**
+     * @return true if command can not be chained with &amp;&amp; as is, either because of operator precedence
+     * or because it changes shell state that would be seen by following commands
+     */
+    boolean needsGrouping() {
+        return !isAndList() || parts.stream().anyMatch(ShellCommand::isStateful);
+    }
+
+    static String join(List<String> commands) {
+        return String.join(" " + AND + " ", commands);
+    }
+
+    private static boolean isStateful(String command) {
+        final String[] words = command.trim().split("\\s+");
+        int i = 0;
+        // Skip variable assignments and sudo prefix
+        while (i < words.length && (words[i].matches("\\w+=.*") || "sudo".equals(words[i]))) {
+            ++i;
+        }
+        return i < words.length && STATEFUL_BUILTINS.contains(words[i]);
+    }
+
+    private void parse(String command) {
+        final StringBuilder current = new StringBuilder();
+        boolean singleQuoted = false;
+        boolean doubleQuoted = false;
+        int depth = 0;
+        for (int i = 0; i < command.length(); ++i) {
+            final char c = command.charAt(i);
+            final char next = i + 1 < command.length() ? command.charAt(i + 1) : 0;
+            final char prev = i > 0 ? command.charAt(i - 1) : 0;
+            if (singleQuoted) {
+                singleQuoted = c != '\'';
+            } else if (c == '\\' && next != 0) {
+                current.append(c);
+                current.append(next);
+                ++i;
+                continue;
+            } else if (c == '"') {
+                doubleQuoted = !doubleQuoted;
+            } else if (doubleQuoted) {
+                depth += c == '(' && prev == '$' ? 1 : c == ')' && depth > 0 ? -1 : 0;
+            } else if (c == '\'') {
+                singleQuoted = true;
+            } else if (c == '(' || (c == '{' && prev == '$')) {
+                ++depth;
+            } else if ((c == ')' || c == '}') && depth > 0) {
+                --depth;
+            } else if (depth == 0) {
+                final String operator = operatorAt(c, next, prev);
+                if (null != operator) {
+                    addPart(current, operator);
+                    i += operator.length() - 1;
+                    continue;
+                }
+            }
+            current.append(c);
+        }
+        addPart(current, null);
+    }
+
+    private static String operatorAt(char c, char next, char prev) {
+        switch (c) {
+            case '&':
+                if (next == '&') {
+                    return AND;
+                }
+                // Redirections like 2>&1, &> and |& are not list operators
+                return prev == '>' || prev == '<' || prev == '|' || next == '>' ? null : "&";
+            case '|':
+                return next == '|' ? "||" : null;
+            case ';':
+            case '\n':
+                return String.valueOf(c);
+            default:
+                return null;
+        }
+    }
+
+    private void addPart(StringBuilder current, String operator) {
+        final String part = current.toString().trim();
+        current.setLength(0);
+        if (part.isEmpty() && null == operator) {
+            return;
+        }
+        parts.add(part);
+        if (null != operator) {
+            operators.add(operator);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.zalando.pazuzu.exception;
+
+public class ConflictException extends ServiceException {
+    public ConflictException(Error error) {
+        super(error);
+    }
+
+    public ConflictException(Error error, String details) {
+        super(error, details);
+    }
+}
@@ -0,0 +1,34 @@
+package org.zalando.pazuzu.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Tells which constraint a failed statement violated. Constraint names are the ones from migrations, databases
+ * may report them in different case. Hibernate does not extract the name from all HSQLDB messages, then the
+ * message of the driver is searched for it.
+ */
+public final class ConstraintViolations {
+
+    public static final String FEATURE_NAME_UNIQUE = "FEATURE_NAME_UNIQUE";
+    public static final String TAG_NAME_UNIQUE = "TAG_NAME_UNIQUE";
+
+    private ConstraintViolations() {
+    }
+
+    public static boolean isViolated(DataIntegrityViolationException exception, String constraint) {
+        for (Throwable cause = exception; null != cause; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                final ConstraintViolationException violation = (ConstraintViolationException) cause;
+                if (null != violation.getConstraintName()) {
+                    return constraint.equalsIgnoreCase(violation.getConstraintName());
+                }
+                final String message = violation.getSQLException().getMessage();
+                return null != message && message.toUpperCase(Locale.ROOT).contains(constraint);
+            }
+        }
+        return false;
+    }
+}
@@ -4,13 +4,22 @@ package org.zalando.pazuzu.exception;
 public enum Error {
 
     BAD_JSON("json_not_parsable", "Failed to parse incoming json"),
+    CHANGE_CURSOR_UNKNOWN("change_cursor_unknown", "Change cursor is ahead of the change log"),
+    CONCURRENT_MODIFICATION("concurrent_modification", "Conflicting concurrent modification, retry the request"),
     CONTAINER_NOT_FOUND("container_not_found", "Container was not found"),
     FEATURE_DUPLICATE("feature_duplicate", "Feature with this name already exists"),
     FEATURE_NAME_EMPTY("feature_name_empty", "Feature name is empty"),
     FEATURE_NOT_FOUND("feature_not_found", "Feature was not found"),
     FEATURE_NOT_DELETABLE_DUE_TO_REFERENCES("feature_not_deletable_due_to_references", "Can't delete feature because it still has references"),
     FEATURE_HAS_RECURSIVE_DEPENDENCY("feature_has_recursive_dependency", "Recursive dependencies found"),
-    INTERNAL_SERVER_ERROR("internal_server_error", "An internal server error has occurred");
+    IDEMPOTENCY_KEY_INVALID("idempotency_key_invalid", "Idempotency key must be 1 to 256 characters long"),
+    IDEMPOTENCY_KEY_REUSED("idempotency_key_reused", "Idempotency key was already used with a different request"),
+    INTERNAL_SERVER_ERROR("internal_server_error", "An internal server error has occurred"),
+    REGISTRY_READ_ONLY("registry_read_only", "Registry instance is read-only"),
+    RESOLUTION_BATCH_TOO_LARGE("resolution_batch_too_large", "Too many feature sets in one request"),
+    RESOLUTION_ORDER_UNKNOWN("resolution_order_unknown", "Resolution order is not supported"),
+    SERVICE_OVERLOADED("service_overloaded", "Too many requests are being processed, retry later"),
+    TOO_MANY_REQUESTS("too_many_requests", "Request rate limit is exceeded, retry later");
 
     private final String code;
     private final String message;
@@ -2,6 +2,8 @@ package org.zalando.pazuzu.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -9,6 +11,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import javax.servlet.http.HttpServletResponse;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -28,6 +32,45 @@ public class GlobalExceptionHandler {
         return new ErrorDto(exception.getError(), exception.getDetailedMessage());
     }
 
+    @ResponseStatus(HttpStatus.METHOD_NOT_ALLOWED)
+    @ExceptionHandler(MethodNotAllowedException.class)
+    @ResponseBody
+    public ErrorDto methodNotAllowedException(MethodNotAllowedException exception, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ALLOW, "GET, HEAD, OPTIONS");
+        return new ErrorDto(exception.getError(), exception.getDetailedMessage());
+    }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(ConflictException.class)
+    @ResponseBody
+    public ErrorDto conflictException(ConflictException exception) {
+        return new ErrorDto(exception.getError(), exception.getDetailedMessage());
+    }
+
+    // Feature was changed by another transaction since it was read, see Feature#revision
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    public ErrorDto optimisticLockingFailureException(OptimisticLockingFailureException exception) {
+        return new ErrorDto(Error.CONCURRENT_MODIFICATION);
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseBody
+    public ErrorDto tooManyRequestsException(TooManyRequestsException exception, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(exception.getRetryAfterSeconds()));
+        return new ErrorDto(exception.getError(), exception.getDetailedMessage());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseBody
+    public ErrorDto serviceUnavailableException(ServiceUnavailableException exception, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(exception.getRetryAfterSeconds()));
+        return new ErrorDto(exception.getError(), exception.getDetailedMessage());
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(HttpMessageNotReadableException.class)
     @ResponseBody
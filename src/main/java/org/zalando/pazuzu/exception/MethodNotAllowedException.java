@@ -0,0 +1,11 @@
+package org.zalando.pazuzu.exception;
+
+public class MethodNotAllowedException extends ServiceException {
+    public MethodNotAllowedException(Error error) {
+        super(error);
+    }
+
+    public MethodNotAllowedException(Error error, String details) {
+        super(error, details);
+    }
+}
@@ -0,0 +1,15 @@
+package org.zalando.pazuzu.exception;
+
+
+public class ServiceUnavailableException extends ServiceException {
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(Error error, String details, long retryAfterSeconds) {
+        super(error, details);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,5 +1,6 @@
 package org.zalando.pazuzu.feature;
 
+import org.zalando.pazuzu.feature.snippet.Snippet;
 import org.zalando.pazuzu.feature.tag.Tag;
 
 import javax.persistence.*;
@@ -23,12 +24,19 @@ public class Feature {
     private Integer id;
     @Column(name = "feature_name", nullable = false, length = 256)
     private String name;
-    @Column(name = "docker_data", nullable = false, length = 4096)
-    private String dockerData;
-    @Column(name = "test_instruction", nullable = true, length = 4096)
-    private String testInstruction;
-    @Column(name = "description", nullable = true, length = 4096)
-    private String description;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "docker_data_hash", nullable = false)
+    private Snippet dockerData;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "test_instruction_hash", nullable = true)
+    private Snippet testInstruction;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "description_hash", nullable = true)
+    private Snippet description;
+    // Also bumped by changes of tags and dependencies, as those collections are owned by the feature
+    @Version
+    @Column(name = "revision", nullable = false)
+    private int revision;
 
     public List<Tag> getTags() {
         return tags;
@@ -46,6 +54,10 @@ public class Feature {
         this.id = id;
     }
 
+    public int getRevision() {
+        return revision;
+    }
+
     public String getName() {
         return name;
     }
@@ -55,10 +67,14 @@ public class Feature {
     }
 
     public String getDockerData() {
+        return Snippet.text(dockerData);
+    }
+
+    public Snippet getDockerDataSnippet() {
         return dockerData;
     }
 
-    public void setDockerData(String dockerData) {
+    public void setDockerDataSnippet(Snippet dockerData) {
         this.dockerData = dockerData;
     }
 
@@ -73,26 +89,27 @@ public class Feature {
         this.dependencies = dependencies;
     }
 
-    public boolean containsDependencyRecursively(Feature f) {
-        if (this == f) {
-            return true;
-        }
-        return getDependencies().stream().filter(item -> item.containsDependencyRecursively(f)).findAny().isPresent();
+    public String getTestInstruction() {
+        return Snippet.text(testInstruction);
     }
 
-    public String getTestInstruction() {
+    public Snippet getTestInstructionSnippet() {
         return testInstruction;
     }
 
-    public void setTestInstruction(String testInstruction) {
+    public void setTestInstructionSnippet(Snippet testInstruction) {
         this.testInstruction = testInstruction;
     }
 
     public String getDescription() {
+        return Snippet.text(description);
+    }
+
+    public Snippet getDescriptionSnippet() {
         return description;
     }
 
-    public void setDescription(String description) {
+    public void setDescriptionSnippet(Snippet description) {
         this.description = description;
     }
 
@@ -0,0 +1,167 @@
+package org.zalando.pazuzu.feature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+import org.zalando.pazuzu.invalidation.InvalidationEvent;
+import org.zalando.pazuzu.sort.TopologicalSortLinear;
+import org.zalando.pazuzu.sort.TransitiveClosure;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory dependency graph of all features (by id) kept in topological order, dependencies first. All
+ * dependencies of every feature are kept as a bitset, so dependency checks are bit tests and closures of any
+ * set of features are unions of bitsets.
+ * <p>
+ * Graph is loaded on first use. Committed changes arrive as invalidation events, changed features are
+ * reloaded from database on the next access, so the graph follows the database with the delay of the
+ * invalidation bus. Loads always read primary: events are consumed when the feature is reloaded, and a lagging
+ * replica would leave the graph stale until the feature changes again.
+ */
+@Component
+public class FeatureGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureGraph.class);
+
+    private final FeatureRepository featureRepository;
+    private final TransactionTemplate primaryReads;
+    // Read-only transactions are routed to replicas, loads inside them run in a separate writable one
+    private final TransactionTemplate primaryReadsOutsideReadOnly;
+    // Edge dependency -> dependent
+    private TransitiveClosure<Integer> order = new TransitiveClosure<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    @Autowired
+    public FeatureGraph(FeatureRepository featureRepository, InvalidationBus invalidationBus,
+                        PlatformTransactionManager transactionManager) {
+        this.featureRepository = featureRepository;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.primaryReadsOutsideReadOnly = new TransactionTemplate(transactionManager);
+        this.primaryReadsOutsideReadOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        invalidationBus.subscribe(event -> {
+            if (event.getKind() == InvalidationEvent.Kind.FEATURE) {
+                changed.add(event.getName());
+            }
+        });
+    }
+
+    /**
+     * @return true if feature with given id depends (directly or not) on the other one, or it is the same feature
+     */
+    public synchronized boolean dependsOn(int featureId, int dependencyId) {
+        refresh();
+        return featureId == dependencyId || order.hasPath(dependencyId, featureId);
+    }
+
+    /**
+     * @return ids of given features and all their dependencies, dependencies first. Null if some feature is
+     * not known yet (it was just created on another instance).
+     */
+    public synchronized List<Integer> getSortedClosure(Collection<Integer> featureIds) {
+        refresh();
+        if (!featureIds.stream().allMatch(order::containsVertex)) {
+            return null;
+        }
+        return order.getAncestors(featureIds);
+    }
+
+    /**
+     * Forgets everything, graph is loaded again on next access.
+     */
+    public synchronized void reset() {
+        loaded = false;
+    }
+
+    private void refresh() {
+        if (loaded && changed.isEmpty()) {
+            return;
+        }
+        final TransactionTemplate transaction = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? primaryReadsOutsideReadOnly : primaryReads;
+        transaction.execute(status -> {
+            applyChanges();
+            return null;
+        });
+    }
+
+    private void applyChanges() {
+        if (!loaded) {
+            load();
+            return;
+        }
+        for (Iterator<String> i = changed.iterator(); i.hasNext(); ) {
+            final String name = i.next();
+            i.remove();
+            if (!reload(name)) {
+                LOG.warn("Feature graph is inconsistent after change of {}, reloading", name);
+                load();
+                return;
+            }
+        }
+    }
+
+    private void load() {
+        changed.clear();
+        ids.clear();
+        names.clear();
+
+        final Map<Integer, String> featureNames = featureRepository.getFeatureNames();
+        final Map<Integer, Set<Integer>> dependencies = featureRepository.getDependencyIds();
+        featureNames.forEach((id, name) -> {
+            ids.put(name, id);
+            names.put(id, name);
+        });
+        // Vertices are added in sorted order, so that adding edges does not need reordering and closures
+        // of vertices are computed once, level by level
+        final List<Integer> sorted = new TopologicalSortLinear<>(featureNames.keySet(),
+                id -> dependencies.getOrDefault(id, Collections.emptySet())).getTopSorted();
+        order = TransitiveClosure.build(sorted, id -> dependencies.getOrDefault(id, Collections.emptySet()));
+        loaded = true;
+    }
+
+    /**
+     * @return false if dependencies stored in the database can not be added to the graph
+     */
+    private boolean reload(String name) {
+        final Integer knownId = ids.remove(name);
+        if (null != knownId) {
+            names.remove(knownId);
+        }
+        final Feature feature = featureRepository.findByName(name);
+        if (null != feature) {
+            final int id = feature.getId();
+            final String previousName = names.put(id, name);
+            if (null != previousName) {
+                ids.remove(previousName);
+            }
+            ids.put(name, id);
+            order.addVertex(id);
+            final Set<Integer> dependencyIds = feature.getDependencies().stream().map(Feature::getId).collect(Collectors.toSet());
+            new ArrayList<>(order.getPredecessors(id)).stream()
+                    .filter(d -> !dependencyIds.contains(d))
+                    .forEach(d -> order.removeEdge(d, id));
+            for (Integer dependencyId : dependencyIds) {
+                if (!order.addEdge(dependencyId, id)) {
+                    return false;
+                }
+            }
+        }
+        if (null != knownId && (null == feature || knownId != feature.getId().intValue())
+                && !featureRepository.exists(knownId)) {
+            order.removeVertex(knownId);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+package org.zalando.pazuzu.feature;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+import org.zalando.pazuzu.invalidation.InvalidationEvent;
+import org.zalando.pazuzu.jfr.RegistryEvents;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serialized JSON of features, read responses are spliced from these instead of building and serializing DTOs
+ * on every request. Short representation ({@link FeatureDto#ofShort}) is cached per feature id and revision,
+ * revision changes with the feature row, its tags and dependencies. Full representation
+ * ({@link FeatureFullDto#makeFull}) is spliced from short ones of the feature and its dependencies, and reused
+ * while revisions of the dependencies stay the same.
+ * <p>
+ * Entries of other revisions are never returned, so the cache is correct across instances without invalidation.
+ * Feature invalidation events only free memory early, otherwise least recently used entries are dropped when
+ * the cache exceeds its size. Converted features must be committed: revision of an entity changed in the current
+ * transaction is only incremented on flush.
+ */
+@Component
+public class FeatureJsonCache {
+
+    private static final byte[] DEPENDENCIES = ",\"dependencies\":[".getBytes(StandardCharsets.UTF_8);
+    private static final Comparator<Feature> BY_NAME = Comparator.comparing(Feature::getName);
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Map<Integer, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long bytes;
+
+    @Autowired
+    public FeatureJsonCache(ObjectMapper objectMapper, InvalidationBus invalidationBus,
+                            @Value("${pazuzu.json-cache.max-bytes:33554432}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        RegistryEvents.registerCache("features.json", this::getHits, this::getMisses, this::getBytes);
+        invalidationBus.subscribe(event -> {
+            if (event.getKind() == InvalidationEvent.Kind.FEATURE) {
+                evict(event.getName());
+            }
+        });
+    }
+
+    /**
+     * @return JSON of {@link FeatureDto#ofShort}
+     */
+    public JsonFragment ofShort(Feature feature) {
+        final Entry cached = get(feature.getId(), feature.getRevision());
+        if (null != cached) {
+            hits.incrementAndGet();
+            return cached.shortJson;
+        }
+        misses.incrementAndGet();
+        return put(feature.getId(), new Entry(feature.getRevision(), feature.getName(), serialize(FeatureDto.ofShort(feature)))).shortJson;
+    }
+
+    /**
+     * @return JSON of {@link FeatureFullDto#makeFull}, dependencies ordered by name
+     */
+    public JsonFragment ofFull(Feature feature) {
+        final List<Feature> dependencies = feature.getDependencies().stream().sorted(BY_NAME).collect(Collectors.toList());
+        final int[] dependencyRevisions = new int[dependencies.size() * 2];
+        for (int i = 0; i < dependencies.size(); ++i) {
+            dependencyRevisions[2 * i] = dependencies.get(i).getId();
+            dependencyRevisions[2 * i + 1] = dependencies.get(i).getRevision();
+        }
+        final Entry cached = get(feature.getId(), feature.getRevision());
+        if (null != cached && Arrays.equals(dependencyRevisions, cached.dependencyRevisions)) {
+            hits.incrementAndGet();
+            return cached.fullJson;
+        }
+        final byte[] own = ofShort(feature).asUnquotedUTF8();
+        final ByteArrayOutputStream full = new ByteArrayOutputStream(own.length * (dependencies.size() + 1) + DEPENDENCIES.length + 2);
+        // Short representation is an object, dependencies are appended before its closing brace
+        full.write(own, 0, own.length - 1);
+        full.write(DEPENDENCIES, 0, DEPENDENCIES.length);
+        for (int i = 0; i < dependencies.size(); ++i) {
+            if (i > 0) {
+                full.write(',');
+            }
+            final byte[] dependency = ofShort(dependencies.get(i)).asUnquotedUTF8();
+            full.write(dependency, 0, dependency.length);
+        }
+        full.write(']');
+        full.write('}');
+        final JsonFragment result = new JsonFragment(full.toByteArray());
+        final Entry current = get(feature.getId(), feature.getRevision());
+        if (null != current) {
+            put(feature.getId(), new Entry(current, result, dependencyRevisions));
+        }
+        return result;
+    }
+
+    /**
+     * Short representations of projected rows, same as {@link #ofShort}.
+     *
+     * @param loader Converts rows that are not cached, all of them at once
+     */
+    public List<JsonFragment> ofRows(List<FeatureRow> rows, Function<List<FeatureRow>, List<FeatureDto>> loader) {
+        final JsonFragment[] result = new JsonFragment[rows.size()];
+        final List<FeatureRow> missing = new ArrayList<>();
+        final List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < rows.size(); ++i) {
+            final Entry cached = get(rows.get(i).getId(), rows.get(i).getRevision());
+            if (null == cached) {
+                missing.add(rows.get(i));
+                positions.add(i);
+            } else {
+                result[i] = cached.shortJson;
+            }
+        }
+        hits.addAndGet(rows.size() - missing.size());
+        misses.addAndGet(missing.size());
+        if (!missing.isEmpty()) {
+            final List<FeatureDto> loaded = loader.apply(missing);
+            for (int i = 0; i < missing.size(); ++i) {
+                final FeatureRow row = missing.get(i);
+                result[positions.get(i)] = put(row.getId(), new Entry(row.getRevision(), row.getName(), serialize(loaded.get(i)))).shortJson;
+            }
+        }
+        return Arrays.asList(result);
+    }
+
+    public synchronized void evict(String name) {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.name.equals(name)) {
+                bytes -= entry.size();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private synchronized Entry get(int id, int revision) {
+        final Entry entry = entries.get(id);
+        return null != entry && entry.revision == revision ? entry : null;
+    }
+
+    private synchronized Entry put(int id, Entry entry) {
+        final Entry existing = entries.get(id);
+        // Lagging reader (e.g. of a replica) must not replace newer revision
+        if (null != existing && existing.revision > entry.revision) {
+            return entry;
+        }
+        if (null != existing) {
+            bytes -= existing.size();
+        }
+        entries.put(id, entry);
+        bytes += entry.size();
+        final Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size();
+            eldest.remove();
+        }
+        return entry;
+    }
+
+    private JsonFragment serialize(FeatureDto feature) {
+        try {
+            return new JsonFragment(objectMapper.writeValueAsBytes(feature));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final int revision;
+        private final String name;
+        private final JsonFragment shortJson;
+        private final JsonFragment fullJson;
+        // Ids and revisions of dependencies the full representation was spliced from
+        private final int[] dependencyRevisions;
+
+        private Entry(int revision, String name, JsonFragment shortJson) {
+            this.revision = revision;
+            this.name = name;
+            this.shortJson = shortJson;
+            this.fullJson = null;
+            this.dependencyRevisions = null;
+        }
+
+        private Entry(Entry entry, JsonFragment fullJson, int[] dependencyRevisions) {
+            this.revision = entry.revision;
+            this.name = entry.name;
+            this.shortJson = entry.shortJson;
+            this.fullJson = fullJson;
+            this.dependencyRevisions = dependencyRevisions;
+        }
+
+        private long size() {
+            return shortJson.length() + (null == fullJson ? 0 : fullJson.length());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.zalando.pazuzu.feature;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.zalando.pazuzu.exception.ServiceException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kept apart from /api/features, where every single path segment is a feature name.
+ */
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/feature-levels")
+public class FeatureLevelsResource {
+
+    private final FeatureService featureService;
+    private final FeatureJsonCache featureJsonCache;
+
+    @Autowired
+    public FeatureLevelsResource(FeatureService featureService, FeatureJsonCache featureJsonCache) {
+        this.featureService = featureService;
+        this.featureJsonCache = featureJsonCache;
+    }
+
+    /**
+     * Requested features with all dependencies, grouped into levels that can be installed in parallel.
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<List<JsonFragment>> getFeatureLevels(@RequestParam(name = "name") String[] featureNames) throws ServiceException {
+        return featureService.getFeatureLevels(Arrays.asList(featureNames), featureJsonCache::ofShort);
+    }
+}
@@ -1,7 +1,10 @@
 package org.zalando.pazuzu.feature;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface FeatureRepository extends CrudRepository<Feature, Integer>, FeatureRepositoryCustom {
@@ -10,5 +13,11 @@ public interface FeatureRepository extends CrudRepository<Feature, Integer>, Fea
 
     Feature findByName(String name);
 
-    List<Feature> findByDependenciesContaining(Feature feature);
+    List<Feature> findByNameIn(Collection<String> names);
+
+    // Derived query is a correlated subquery for every feature, the join is served by the dependency index
+    @Query(value = "SELECT f FROM Feature f JOIN f.dependencies d WHERE d = :feature")
+    List<Feature> findByDependenciesContaining(@Param("feature") Feature feature);
+
+    void flush();
 }
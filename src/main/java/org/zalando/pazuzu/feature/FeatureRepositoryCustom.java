@@ -1,7 +1,78 @@
 package org.zalando.pazuzu.feature;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FeatureRepositoryCustom {
     public List<Feature> getFeatures(int offset, int limit);
+
+    /**
+     * @param name  Part of the name (case insensitive), null for all features
+     * @param limit Max number of rows, negative for no limit
+     * @return rows ordered by id
+     */
+    public List<FeatureRow> getFeatureRows(String name, int offset, int limit);
+
+    /**
+     * @return tag names by feature id, loaded with single query
+     */
+    public Map<Integer, List<String>> getTagNames(Collection<Integer> featureIds);
+
+    /**
+     * @return features with given ids, dependencies collections are fetched with the same query
+     */
+    public List<Feature> findAllWithDependencies(Collection<Integer> featureIds);
+
+    /**
+     * @return names of all features by id
+     */
+    public Map<Integer, String> getFeatureNames();
+
+    /**
+     * @return ids of direct dependencies of all features that have any
+     */
+    public Map<Integer, Set<Integer>> getDependencyIds();
+
+    /**
+     * Rebuilds FEATURE_CLOSURE rows of given features, one statement per feature. When dependencies of a feature
+     * change, the feature and all its dependents have to be refreshed.
+     */
+    public void refreshClosure(Collection<Integer> featureIds);
+
+    /**
+     * Removes FEATURE_CLOSURE rows of a feature that is about to be deleted (and so has no dependents).
+     */
+    public void deleteClosure(int featureId);
+
+    /**
+     * @return direct and indirect dependencies of the feature
+     */
+    public List<Feature> findAllDependencies(int featureId);
+
+    /**
+     * @return features that depend on given one directly or indirectly
+     */
+    public List<Feature> findAllDependents(int featureId);
+
+    /**
+     * @return ids of given features and all their dependencies
+     */
+    public Set<Integer> getClosureIds(Collection<Integer> featureIds);
+
+    /**
+     * @return ids of all features that depend on given one directly or indirectly
+     */
+    public Set<Integer> getDependentIds(int featureId);
+
+    /**
+     * @return for given features that depend (directly or indirectly) on other given features, ids of those others
+     */
+    public Map<Integer, Set<Integer>> getDependencyIdsAmong(Collection<Integer> featureIds);
+
+    /**
+     * @return true if feature depends on the other one directly or indirectly
+     */
+    public boolean dependsOn(int featureId, int dependencyId);
 }
@@ -1,12 +1,33 @@
 package org.zalando.pazuzu.feature;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.zalando.pazuzu.sort.TopologicalSortLinear;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class FeatureRepositoryImpl implements FeatureRepositoryCustom {
 
+    private static final String SELECT_ROWS = "SELECT NEW org.zalando.pazuzu.feature.FeatureRow("
+            + "f.id, f.name, f.dockerData.hash, f.testInstruction.hash, f.description.hash, f.revision) FROM Feature f";
+
+    private static final int MAX_IN_PARAMETERS = 1000;
+
+    // Closure of a feature from closures of its direct dependencies, these must be up to date
+    private static final String INSERT_CLOSURE = "INSERT INTO FEATURE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH) "
+            + "SELECT C.ANCESTOR_ID, :id, MIN(C.DEPTH) + 1 FROM FEATURE_CLOSURE C "
+            + "JOIN FEATURE_DEPENDENCY D ON D.DEPENDENCY_FEATURE_ID = C.DESCENDANT_ID "
+            + "WHERE D.FEATURE_ID = :id GROUP BY C.ANCESTOR_ID";
+
     @Autowired
     private EntityManager entityManager;
 
@@ -14,4 +35,167 @@ public class FeatureRepositoryImpl implements FeatureRepositoryCustom {
     public List<Feature> getFeatures(int offset, int limit) {
         return entityManager.createQuery("from Feature f").setFirstResult(offset).setMaxResults(limit).getResultList();
     }
+
+    @Override
+    public List<FeatureRow> getFeatureRows(String name, int offset, int limit) {
+        final TypedQuery<FeatureRow> query;
+        if (null == name) {
+            query = entityManager.createQuery(SELECT_ROWS + " ORDER BY f.id", FeatureRow.class);
+        } else {
+            query = entityManager.createQuery(SELECT_ROWS + " WHERE LOWER(f.name) LIKE :name ORDER BY f.id", FeatureRow.class)
+                    .setParameter("name", "%" + name.toLowerCase(Locale.ROOT) + "%");
+        }
+        query.setFirstResult(offset);
+        if (limit >= 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public Map<Integer, List<String>> getTagNames(Collection<Integer> featureIds) {
+        final Map<Integer, List<String>> result = new HashMap<>();
+        if (featureIds.isEmpty()) {
+            return result;
+        }
+        final List<Integer> ids = new ArrayList<>(featureIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+            final List<Object[]> rows = entityManager
+                    .createQuery("SELECT f.id, t.name FROM Feature f JOIN f.tags t WHERE f.id IN :ids", Object[].class)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMETERS)))
+                    .getResultList();
+            for (Object[] row : rows) {
+                result.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Feature> findAllWithDependencies(Collection<Integer> featureIds) {
+        final List<Feature> result = new ArrayList<>();
+        final List<Integer> ids = new ArrayList<>(featureIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+            result.addAll(entityManager
+                    .createQuery("SELECT DISTINCT f FROM Feature f LEFT JOIN FETCH f.dependencies WHERE f.id IN :ids", Feature.class)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMETERS)))
+                    .getResultList());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, String> getFeatureNames() {
+        final Map<Integer, String> result = new HashMap<>();
+        for (Object[] row : entityManager.createQuery("SELECT f.id, f.name FROM Feature f", Object[].class).getResultList()) {
+            result.put((Integer) row[0], (String) row[1]);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getDependencyIds() {
+        final Map<Integer, Set<Integer>> result = new HashMap<>();
+        for (Object[] row : entityManager.createQuery("SELECT f.id, d.id FROM Feature f JOIN f.dependencies d", Object[].class).getResultList()) {
+            result.computeIfAbsent((Integer) row[0], id -> new HashSet<>()).add((Integer) row[1]);
+        }
+        return result;
+    }
+
+    @Override
+    public void refreshClosure(Collection<Integer> featureIds) {
+        final Set<Integer> ids = new HashSet<>(featureIds);
+        final Map<Integer, Set<Integer>> dependencies = new HashMap<>();
+        final List<Integer> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += MAX_IN_PARAMETERS) {
+            final List<Integer> chunk = idList.subList(from, Math.min(idList.size(), from + MAX_IN_PARAMETERS));
+            entityManager.createNativeQuery("DELETE FROM FEATURE_CLOSURE WHERE DESCENDANT_ID IN (:ids)")
+                    .setParameter("ids", chunk).executeUpdate();
+            final List<Object[]> rows = entityManager.createQuery(
+                    "SELECT f.id, d.id FROM Feature f JOIN f.dependencies d WHERE f.id IN :ids", Object[].class)
+                    .setParameter("ids", chunk).getResultList();
+            for (Object[] row : rows) {
+                if (ids.contains(row[1])) {
+                    dependencies.computeIfAbsent((Integer) row[0], id -> new HashSet<>()).add((Integer) row[1]);
+                }
+            }
+        }
+        // Refreshed dependencies go first, closures of the others are intact
+        for (Integer id : new TopologicalSortLinear<>(ids, i -> dependencies.getOrDefault(i, Collections.emptySet())).getTopSorted()) {
+            entityManager.createNativeQuery("INSERT INTO FEATURE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH) VALUES (:id, :id, 0)")
+                    .setParameter("id", id).executeUpdate();
+            entityManager.createNativeQuery(INSERT_CLOSURE).setParameter("id", id).executeUpdate();
+        }
+    }
+
+    @Override
+    public void deleteClosure(int featureId) {
+        entityManager.createNativeQuery("DELETE FROM FEATURE_CLOSURE WHERE DESCENDANT_ID = :id OR ANCESTOR_ID = :id")
+                .setParameter("id", featureId).executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Feature> findAllDependencies(int featureId) {
+        return entityManager.createNativeQuery("SELECT F.* FROM FEATURE F JOIN FEATURE_CLOSURE C ON C.ANCESTOR_ID = F.ID "
+                + "WHERE C.DESCENDANT_ID = :id AND C.DEPTH > 0 ORDER BY C.DEPTH, F.ID", Feature.class)
+                .setParameter("id", featureId).getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Feature> findAllDependents(int featureId) {
+        return entityManager.createNativeQuery("SELECT F.* FROM FEATURE F JOIN FEATURE_CLOSURE C ON C.DESCENDANT_ID = F.ID "
+                + "WHERE C.ANCESTOR_ID = :id AND C.DEPTH > 0 ORDER BY C.DEPTH, F.ID", Feature.class)
+                .setParameter("id", featureId).getResultList();
+    }
+
+    @Override
+    public Set<Integer> getClosureIds(Collection<Integer> featureIds) {
+        final Set<Integer> result = new HashSet<>();
+        final List<Integer> ids = new ArrayList<>(featureIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+            final List<?> rows = entityManager.createNativeQuery("SELECT DISTINCT ANCESTOR_ID FROM FEATURE_CLOSURE WHERE DESCENDANT_ID IN (:ids)")
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMETERS)))
+                    .getResultList();
+            rows.forEach(id -> result.add(((Number) id).intValue()));
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Integer> getDependentIds(int featureId) {
+        final List<?> rows = entityManager.createNativeQuery("SELECT DESCENDANT_ID FROM FEATURE_CLOSURE WHERE ANCESTOR_ID = :id AND DEPTH > 0")
+                .setParameter("id", featureId).getResultList();
+        final Set<Integer> result = new HashSet<>();
+        rows.forEach(id -> result.add(((Number) id).intValue()));
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Set<Integer>> getDependencyIdsAmong(Collection<Integer> featureIds) {
+        final Map<Integer, Set<Integer>> result = new HashMap<>();
+        final List<Integer> ids = new ArrayList<>(featureIds);
+        for (int descendants = 0; descendants < ids.size(); descendants += MAX_IN_PARAMETERS) {
+            for (int ancestors = 0; ancestors < ids.size(); ancestors += MAX_IN_PARAMETERS) {
+                final List<?> rows = entityManager.createNativeQuery("SELECT DESCENDANT_ID, ANCESTOR_ID FROM FEATURE_CLOSURE "
+                        + "WHERE DESCENDANT_ID IN (:descendants) AND ANCESTOR_ID IN (:ancestors) AND DEPTH > 0")
+                        .setParameter("descendants", ids.subList(descendants, Math.min(ids.size(), descendants + MAX_IN_PARAMETERS)))
+                        .setParameter("ancestors", ids.subList(ancestors, Math.min(ids.size(), ancestors + MAX_IN_PARAMETERS)))
+                        .getResultList();
+                for (Object row : rows) {
+                    final Object[] columns = (Object[]) row;
+                    result.computeIfAbsent(((Number) columns[0]).intValue(), id -> new HashSet<>()).add(((Number) columns[1]).intValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean dependsOn(int featureId, int dependencyId) {
+        return !entityManager.createNativeQuery("SELECT 1 FROM FEATURE_CLOSURE WHERE ANCESTOR_ID = :ancestor AND DESCENDANT_ID = :descendant AND DEPTH > 0")
+                .setParameter("ancestor", dependencyId).setParameter("descendant", featureId)
+                .getResultList().isEmpty();
+    }
 }
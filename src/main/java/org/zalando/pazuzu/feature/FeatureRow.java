@@ -0,0 +1,48 @@
+package org.zalando.pazuzu.feature;
+
+/**
+ * Plain projection of feature columns, texts are only referenced by snippet hash. Used on read paths that do not
+ * need managed entities.
+ */
+public class FeatureRow {
+    private final int id;
+    private final String name;
+    private final String dockerDataHash;
+    private final String testInstructionHash;
+    private final String descriptionHash;
+    private final int revision;
+
+    public FeatureRow(int id, String name, String dockerDataHash, String testInstructionHash, String descriptionHash,
+                      int revision) {
+        this.id = id;
+        this.name = name;
+        this.dockerDataHash = dockerDataHash;
+        this.testInstructionHash = testInstructionHash;
+        this.descriptionHash = descriptionHash;
+        this.revision = revision;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDockerDataHash() {
+        return dockerDataHash;
+    }
+
+    public String getTestInstructionHash() {
+        return testInstructionHash;
+    }
+
+    public String getDescriptionHash() {
+        return descriptionHash;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+}
@@ -1,20 +1,43 @@
 package org.zalando.pazuzu.feature;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.zalando.pazuzu.change.ChangeLog;
+import org.zalando.pazuzu.change.ChangeLogEntry;
 import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.ConstraintViolations;
 import org.zalando.pazuzu.exception.Error;
 import org.zalando.pazuzu.exception.NotFoundException;
 import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.snippet.Snippet;
+import org.zalando.pazuzu.feature.snippet.SnippetStore;
+import org.zalando.pazuzu.feature.tag.Tag;
 import org.zalando.pazuzu.feature.tag.TagDto;
 import org.zalando.pazuzu.feature.tag.TagService;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+import org.zalando.pazuzu.invalidation.InvalidationEvent;
+import org.zalando.pazuzu.jfr.RegistryEvents;
+import org.zalando.pazuzu.sort.TopologicalLevels;
+import org.zalando.pazuzu.sort.TopologicalSortCanonical;
 import org.zalando.pazuzu.sort.TopologicalSortLinear;
+import org.zalando.pazuzu.sort.TransitiveReduction;
+import org.zalando.pazuzu.tracing.Trace;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -22,65 +45,245 @@ import java.util.stream.Collectors;
 @Service
 public class FeatureService {
 
+    private static final Comparator<Feature> BY_NAME = Comparator.comparing(Feature::getName);
+
     private final FeatureRepository featureRepository;
     private final TagService tagService;
+    private final SnippetStore snippetStore;
+    private final ChangeLog changeLog;
+    private final InvalidationBus invalidationBus;
+    private final FeatureGraph featureGraph;
+    private final FeatureUsage featureUsage;
+    private final FeatureJsonCache featureJsonCache;
 
 
     @Autowired
-    public FeatureService(FeatureRepository featureRepository, TagService tagService) {
+    public FeatureService(FeatureRepository featureRepository, TagService tagService, SnippetStore snippetStore,
+                          ChangeLog changeLog, InvalidationBus invalidationBus, FeatureGraph featureGraph,
+                          FeatureUsage featureUsage, FeatureJsonCache featureJsonCache) {
         this.featureRepository = featureRepository;
         this.tagService = tagService;
+        this.snippetStore = snippetStore;
+        this.changeLog = changeLog;
+        this.invalidationBus = invalidationBus;
+        this.featureGraph = featureGraph;
+        this.featureUsage = featureUsage;
+        this.featureJsonCache = featureJsonCache;
     }
 
-    private static void collectRecursively(Collection<Feature> result, Feature f) {
-        result.add(f);
-        f.getDependencies().forEach(item -> collectRecursively(result, item));
-    }
-
-    @Transactional
+    @Transactional(readOnly = true)
     public <T> List<T> listFeatures(String name, Function<Feature, T> converter) {
         return this.featureRepository.findByNameIgnoreCaseContaining(name).stream().map(converter).collect(Collectors.toList());
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public <T> FeaturesWithTotalCount<T> getFeaturesWithTotalCount(int offset, int limit, Function<Feature, T> converter) {
         List<T> features = this.featureRepository.getFeatures(offset, limit).stream().map(converter).collect(Collectors.toList());
         long count = this.featureRepository.count();
         return new FeaturesWithTotalCount<>(features, count);
     }
 
+    /**
+     * Same as {@link #listFeatures(String, Function)} with {@link FeatureDto#ofShort}, but serialized and without
+     * entities: features are read as projections on every call, and converted (tags with one more query, texts from
+     * snippet cache) only when changed since cached in {@link FeatureJsonCache}.
+     *
+     * @param name Part of the name, null for all features
+     */
+    @Transactional(readOnly = true)
+    public List<JsonFragment> listFeatureJson(String name) {
+        return featureJsonCache.ofRows(featureRepository.getFeatureRows(name, 0, -1), this::toFeatureDtos);
+    }
+
+    /**
+     * Serialized variant of {@link #getFeaturesWithTotalCount(int, int, Function)}, see {@link #listFeatureJson(String)}.
+     */
+    @Transactional(readOnly = true)
+    public FeaturesWithTotalCount<JsonFragment> getFeatureJsonWithTotalCount(int offset, int limit) {
+        final List<JsonFragment> features = featureJsonCache.ofRows(featureRepository.getFeatureRows(null, offset, limit), this::toFeatureDtos);
+        return new FeaturesWithTotalCount<>(features, featureRepository.count());
+    }
+
+    private List<FeatureDto> toFeatureDtos(List<FeatureRow> rows) {
+        final Set<String> hashes = new HashSet<>();
+        rows.forEach(r -> {
+            hashes.add(r.getDockerDataHash());
+            hashes.add(r.getTestInstructionHash());
+            hashes.add(r.getDescriptionHash());
+        });
+        hashes.remove(null);
+        final Map<String, String> texts = snippetStore.resolve(hashes);
+        final Map<Integer, List<String>> tags = featureRepository.getTagNames(
+                rows.stream().map(FeatureRow::getId).collect(Collectors.toList()));
+        return rows.stream().map(r -> {
+            final List<String> tagNames = tags.get(r.getId());
+            return FeatureDto.populate(r.getName(), texts.get(r.getDockerDataHash()), texts.get(r.getTestInstructionHash()),
+                    texts.get(r.getDescriptionHash()),
+                    null == tagNames ? null : tagNames.stream().map(TagDto::ofName).collect(Collectors.toList()));
+        }).collect(Collectors.toList());
+    }
+
     @Transactional(rollbackFor = ServiceException.class)
     public <T> T createFeature(String name, String dockerData, String testInstruction, String description,
                                List<String> dependencyNames, List<TagDto> tags, Function<Feature, T> converter) throws ServiceException {
+        return createFeature(name, dockerData, testInstruction, description, dependencyNames, tags, false, converter);
+    }
+
+    /**
+     * @param reduceDependencies Store only dependencies that are not reached through other dependencies of the
+     *                           feature, see {@link #findRedundantDependencies()}
+     */
+    @Transactional(rollbackFor = ServiceException.class)
+    public <T> T createFeature(String name, String dockerData, String testInstruction, String description,
+                               List<String> dependencyNames, List<TagDto> tags, boolean reduceDependencies,
+                               Function<Feature, T> converter) throws ServiceException {
         final Feature newFeature = new Feature();
         createName(name, newFeature);
-        createDependencies(dependencyNames, newFeature);
+        createDependencies(dependencyNames, reduceDependencies, newFeature);
 
-        newFeature.setDockerData(null == dockerData ? "" : dockerData);
+        newFeature.setDockerDataSnippet(snippetStore.acquire(null == dockerData ? "" : dockerData));
 
         if (null != testInstruction) {
-            newFeature.setTestInstruction(testInstruction);
+            newFeature.setTestInstructionSnippet(snippetStore.acquire(testInstruction));
         }
         if (null != description && !description.isEmpty()) {
-            newFeature.setDescription(description);
+            newFeature.setDescriptionSnippet(snippetStore.acquire(description));
         }
 
         if (null != tags && !tags.isEmpty()) {
             newFeature.setTags(tagService.upsertTagDtos(tags));
         }
-        featureRepository.save(newFeature);
+        try {
+            featureRepository.save(newFeature);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicate(e, Collections.singleton(name));
+        }
+        featureRepository.refreshClosure(Collections.singleton(newFeature.getId()));
+        featureChanged(name, ChangeLogEntry.Action.UPSERT);
         return converter.apply(newFeature);
     }
 
+    /**
+     * Creates several features in one transaction. Features may depend on each other (in any order) and on
+     * existing features. Dependency graph is checked for cycles once and features are inserted dependencies
+     * first, snippets, tags and change log entries are written in bulk.
+     *
+     * @return created features in the order of the request
+     */
+    @Transactional(rollbackFor = ServiceException.class)
+    public <T> List<T> createFeatures(List<FeatureToCreateDto> features, Function<Feature, T> converter) throws ServiceException {
+        final Map<String, FeatureToCreateDto> requested = new LinkedHashMap<>();
+        for (FeatureToCreateDto feature : features) {
+            if (StringUtils.isEmpty(feature.getName())) {
+                throw new BadRequestException(Error.FEATURE_NAME_EMPTY);
+            }
+            if (null != requested.put(feature.getName(), feature)) {
+                throw new BadRequestException(Error.FEATURE_DUPLICATE, "Feature is listed more than once: " + feature.getName());
+            }
+        }
+        if (requested.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final List<Feature> clashing = featureRepository.findByNameIn(requested.keySet());
+        if (!clashing.isEmpty()) {
+            throw new BadRequestException(Error.FEATURE_DUPLICATE, "Features already exist: "
+                    + clashing.stream().map(Feature::getName).collect(Collectors.joining(", ")));
+        }
+
+        final Map<String, Set<String>> batchDependencies = new HashMap<>();
+        final Set<String> externalNames = new HashSet<>();
+        requested.values().forEach(f -> {
+            final Set<String> internal = new HashSet<>();
+            f.getDependencies().forEach(d -> (requested.containsKey(d) ? internal : externalNames).add(d));
+            batchDependencies.put(f.getName(), internal);
+        });
+        final Map<String, Feature> byName = new HashMap<>();
+        if (!externalNames.isEmpty()) {
+            featureRepository.findByNameIn(externalNames).forEach(f -> byName.put(f.getName(), f));
+        }
+        if (byName.size() != externalNames.size()) {
+            externalNames.removeAll(byName.keySet());
+            throw new BadRequestException(Error.FEATURE_NOT_FOUND, "Unknown dependencies: " + String.join(", ", externalNames));
+        }
+        final List<String> order;
+        try {
+            order = new TopologicalSortLinear<>(requested.keySet(), batchDependencies::get).getTopSorted();
+        } catch (IllegalStateException e) {
+            throw new BadRequestException(Error.FEATURE_HAS_RECURSIVE_DEPENDENCY, e.getMessage());
+        }
+
+        final List<String> texts = new ArrayList<>();
+        final Set<String> tagNames = new LinkedHashSet<>();
+        requested.values().forEach(f -> {
+            texts.add(null == f.getDockerData() ? "" : f.getDockerData());
+            texts.add(f.getTestInstruction());
+            texts.add(StringUtils.isEmpty(f.getDescription()) ? null : f.getDescription());
+            f.getTags().forEach(t -> tagNames.add(t.getName()));
+        });
+        final Map<String, Snippet> snippets = snippetStore.acquireAll(texts);
+        final Map<String, Tag> tags = tagNames.isEmpty() ? new HashMap<>() : tagService.upsertTagDtos(
+                tagNames.stream().map(TagDto::ofName).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(Tag::getName, Function.identity()));
+
+        for (String name : order) {
+            final FeatureToCreateDto value = requested.get(name);
+            final Feature feature = new Feature();
+            feature.setName(name);
+            feature.setDependencies(value.getDependencies().stream().map(byName::get).collect(Collectors.toSet()));
+            feature.setDockerDataSnippet(snippets.get(null == value.getDockerData() ? "" : value.getDockerData()));
+            feature.setTestInstructionSnippet(snippets.get(value.getTestInstruction()));
+            if (!StringUtils.isEmpty(value.getDescription())) {
+                feature.setDescriptionSnippet(snippets.get(value.getDescription()));
+            }
+            if (!value.getTags().isEmpty()) {
+                feature.setTags(value.getTags().stream().map(t -> tags.get(t.getName())).distinct().collect(Collectors.toList()));
+            }
+            try {
+                featureRepository.save(feature);
+            } catch (DataIntegrityViolationException e) {
+                throw duplicate(e, requested.keySet());
+            }
+            byName.put(name, feature);
+        }
+        featureRepository.refreshClosure(order.stream().map(n -> byName.get(n).getId()).collect(Collectors.toList()));
+        featuresChanged(order, ChangeLogEntry.Action.UPSERT);
+        return requested.keySet().stream().map(byName::get).map(converter).collect(Collectors.toList());
+    }
+
     private void createName(String name, Feature newFeature) throws BadRequestException {
         nameGuardCheck(name);
         newFeature.setName(name);
     }
 
-    private void createDependencies(List<String> dependencyNames, Feature newFeature) throws ServiceException {
+    private void createDependencies(List<String> dependencyNames, boolean reduce, Feature newFeature) throws ServiceException {
         final Set<Feature> dependencies = loadFeatures(dependencyNames);
 
-        newFeature.setDependencies(dependencies);
+        newFeature.setDependencies(reduce ? withoutRedundant(dependencies) : dependencies);
+    }
+
+    /**
+     * Drops dependencies that other ones of the set depend on. Like the cycle check, this is checked against
+     * FEATURE_CLOSURE in this transaction, a lagging in-memory graph would drop dependencies that are needed.
+     */
+    private Set<Feature> withoutRedundant(Set<Feature> dependencies) {
+        final Map<Integer, Set<Integer>> reached = featureRepository.getDependencyIdsAmong(
+                dependencies.stream().map(Feature::getId).collect(Collectors.toList()));
+        return dependencies.stream()
+                .filter(d -> dependencies.stream().noneMatch(other -> reached.getOrDefault(other.getId(), Collections.emptySet()).contains(d.getId())))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Name checks before saving only give early answer, a concurrent writer may take the name meanwhile, then
+     * unique index on the name rejects the statement.
+     *
+     * @return duplicate error if name index is violated, otherwise the exception is rethrown
+     */
+    private static BadRequestException duplicate(DataIntegrityViolationException e, Collection<String> names) {
+        if (!ConstraintViolations.isViolated(e, ConstraintViolations.FEATURE_NAME_UNIQUE)) {
+            throw e;
+        }
+        return new BadRequestException(Error.FEATURE_DUPLICATE, "Feature already exists: " + String.join(", ", names));
     }
 
     private void nameGuardCheck(String name) throws BadRequestException {
@@ -95,37 +298,82 @@ public class FeatureService {
 
     @Transactional(rollbackFor = ServiceException.class)
     public <T> T updateFeature(String name, String newName, String dockerData, String testInstruction, String description, List<String> dependencyNames, Function<Feature, T> converter) throws ServiceException {
+        return updateFeature(name, newName, dockerData, testInstruction, description, dependencyNames, false, converter);
+    }
+
+    /**
+     * @param reduceDependencies Store only dependencies that are not reached through other dependencies of the
+     *                           feature, see {@link #findRedundantDependencies()}
+     */
+    @Transactional(rollbackFor = ServiceException.class)
+    public <T> T updateFeature(String name, String newName, String dockerData, String testInstruction, String description,
+                               List<String> dependencyNames, boolean reduceDependencies, Function<Feature, T> converter) throws ServiceException {
         final Feature existing = loadExistingFeature(name);
+        if (null != dependencyNames) {
+            final Set<Feature> dependencies = loadFeatures(dependencyNames);
+            final List<Feature> recursive;
+            try (RegistryEvents.CycleCheck event = RegistryEvents.cycleCheck(existing.getName(), dependencies.size())) {
+                recursive = findRecursive(existing, dependencies);
+                event.cycle(!recursive.isEmpty());
+            }
+            if (!recursive.isEmpty()) {
+                throw new BadRequestException(Error.FEATURE_HAS_RECURSIVE_DEPENDENCY, "Recursive dependencies found: " + recursive.stream().map(Feature::getName).collect(Collectors.joining(", ")));
+            }
+            existing.setDependencies(reduceDependencies ? withoutRedundant(dependencies) : dependencies);
+        }
         if (null != newName && !newName.equals(existing.getName())) {
             final Feature newExisting = featureRepository.findByName(newName);
             if (null != newExisting) {
                 throw new BadRequestException(Error.FEATURE_DUPLICATE);
             }
             existing.setName(newName);
+            featureChanged(name, ChangeLogEntry.Action.DELETE);
         }
         if (null != dockerData) {
-            existing.setDockerData(dockerData);
+            snippetStore.replace(existing.getDockerDataSnippet(), dockerData, existing::setDockerDataSnippet);
         }
         if (null != testInstruction) {
-            existing.setTestInstruction(testInstruction);
+            snippetStore.replace(existing.getTestInstructionSnippet(), testInstruction, existing::setTestInstructionSnippet);
         }
         if (null != description) {
-            existing.setDescription(description);
+            snippetStore.replace(existing.getDescriptionSnippet(), description, existing::setDescriptionSnippet);
+        }
+        try {
+            featureRepository.save(existing);
+            // Update is deferred until flush, name has to be checked within this method
+            featureRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw duplicate(e, Collections.singleton(existing.getName()));
         }
         if (null != dependencyNames) {
-            final Set<Feature> dependencies = loadFeatures(dependencyNames);
-            final List<Feature> recursive = dependencies.stream()
-                    .filter(f -> f.containsDependencyRecursively(existing)).collect(Collectors.toList());
-            if (!recursive.isEmpty()) {
-                throw new BadRequestException(Error.FEATURE_HAS_RECURSIVE_DEPENDENCY, "Recursive dependencies found: " + recursive.stream().map(Feature::getName).collect(Collectors.joining(", ")));
-            }
-            existing.setDependencies(dependencies);
+            // Dependents of the feature are not changed by the update, but their ancestors are
+            final Set<Integer> affected = featureRepository.getDependentIds(existing.getId());
+            affected.add(existing.getId());
+            featureRepository.refreshClosure(affected);
         }
-        featureRepository.save(existing);
+        featureChanged(existing.getName(), ChangeLogEntry.Action.UPSERT);
         return converter.apply(existing);
     }
 
-    @Transactional
+    /**
+     * In-memory graph follows the database with the delay of invalidation events, so it only serves to reject
+     * early. Otherwise dependencies are checked against FEATURE_CLOSURE in this transaction, before the update
+     * touches it.
+     *
+     * @return dependencies that depend on the feature (or are the feature itself)
+     */
+    private List<Feature> findRecursive(Feature feature, Set<Feature> dependencies) {
+        final List<Feature> known = dependencies.stream()
+                .filter(d -> featureGraph.dependsOn(d.getId(), feature.getId())).collect(Collectors.toList());
+        if (!known.isEmpty()) {
+            return known;
+        }
+        return dependencies.stream()
+                .filter(d -> d.getId().equals(feature.getId()) || featureRepository.dependsOn(d.getId(), feature.getId()))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
     public <T> T getFeature(String featureName, Function<Feature, T> converter) throws ServiceException {
         return converter.apply(loadExistingFeature(featureName));
     }
@@ -141,14 +389,22 @@ public class FeatureService {
             throw new BadRequestException(Error.FEATURE_NOT_DELETABLE_DUE_TO_REFERENCES,
                     "Can't delete feature because it is referenced from other feature(s): " + referencing.stream().map(Feature::getName).collect(Collectors.joining(", ")));
         }
+        featureRepository.deleteClosure(feature.getId());
         featureRepository.delete(feature);
+        snippetStore.release(feature.getDockerDataSnippet());
+        snippetStore.release(feature.getTestInstructionSnippet());
+        snippetStore.release(feature.getDescriptionSnippet());
+        featureChanged(featureName, ChangeLogEntry.Action.DELETE);
     }
 
+    @Transactional(readOnly = true)
     public Set<Feature> loadFeatures(List<String> dependencyNames) throws ServiceException {
         final Set<String> uniqueDependencies = null == dependencyNames ? new HashSet<>() : new HashSet<>(dependencyNames);
+        // Ordered by name, so that iteration order does not depend on ids
         final Set<Feature> dependencies = uniqueDependencies.stream()
                 .map(featureRepository::findByName).filter(f -> f != null)
-                .collect(Collectors.toSet());
+                .sorted(BY_NAME)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
         if (dependencies.size() != uniqueDependencies.size()) {
             dependencies.forEach(f -> uniqueDependencies.remove(f.getName()));
             throw new BadRequestException(Error.FEATURE_NOT_FOUND);
@@ -156,10 +412,179 @@ public class FeatureService {
         return dependencies;
     }
 
+    /**
+     * @return features by name, unknown names are left out
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Feature> findFeatures(Collection<String> names) {
+        if (names.isEmpty()) {
+            return new HashMap<>();
+        }
+        return featureRepository.findByNameIn(names).stream().collect(Collectors.toMap(Feature::getName, f -> f));
+    }
+
+    /**
+     * @return given features with all their dependencies, dependencies first, in canonical order
+     */
+    @Transactional(readOnly = true)
     public List<Feature> getSortedFeatures(Collection<Feature> features) {
-        final Set<Feature> expandedList = new HashSet<>();
-        features.forEach(f -> collectRecursively(expandedList, f));
-        return new TopologicalSortLinear<>(expandedList, Feature::getDependencies).getTopSorted();
+        return getSortedFeatures(features, ResolutionOrder.CANONICAL);
+    }
+
+    /**
+     * @return given features with all their dependencies, dependencies first. Closure is taken from
+     * {@link FeatureGraph} and verified against loaded entities, for features the graph does not know about yet
+     * it is read from FEATURE_CLOSURE. The resolution is counted in {@link FeatureUsage}.
+     */
+    @Transactional(readOnly = true)
+    public List<Feature> getSortedFeatures(Collection<Feature> features, ResolutionOrder order) {
+        final List<Feature> closure = getSortedClosure(features, order);
+        featureUsage.record(closure);
+        return closure;
+    }
+
+    /**
+     * Same as {@link #getSortedFeatures(Collection, ResolutionOrder)}, but the resolution is not counted, callers
+     * that resolve parts of the closure record those instead.
+     */
+    @Transactional(readOnly = true)
+    public List<Feature> getSortedClosure(Collection<Feature> features, ResolutionOrder order) {
+        final Set<Integer> requestedIds = features.stream().map(Feature::getId).collect(Collectors.toSet());
+        try (RegistryEvents.Resolution event = RegistryEvents.resolution(requestedIds.size(), order)) {
+            Set<Feature> closure = null;
+            try (Trace.Span ignored = Trace.span("closure")) {
+                final List<Integer> ids = featureGraph.getSortedClosure(requestedIds);
+                // Dependencies are fetched with the features, both the check and sorting go through them
+                if (null != ids) {
+                    closure = new HashSet<>(featureRepository.findAllWithDependencies(ids));
+                }
+                if (null == closure || !isClosure(closure, requestedIds)) {
+                    closure = new HashSet<>(featureRepository.findAllWithDependencies(featureRepository.getClosureIds(requestedIds)));
+                }
+            }
+            event.closure(closure.size());
+            final long sortStart = System.nanoTime();
+            try (Trace.Span ignored = Trace.span("sort")) {
+                final List<Feature> sorted = sort(closure, order);
+                event.sorted(System.nanoTime() - sortStart);
+                return sorted;
+            }
+        }
+    }
+
+    /**
+     * Sorts features that form a closure, dependencies first. With canonical order among features with all
+     * dependencies placed the one with the least name goes first, so the same graph gives the same order
+     * regardless of ids or history.
+     */
+    public List<Feature> sort(Collection<Feature> closure, ResolutionOrder order) {
+        final Comparator<Feature> comparator = order == ResolutionOrder.CACHE ? featureUsage.getComparator() : BY_NAME;
+        return new TopologicalSortCanonical<>(closure, Feature::getDependencies, comparator).getTopSorted();
+    }
+
+    /**
+     * Loads features by name and converts them with all their dependencies, dependencies first.
+     */
+    @Transactional(readOnly = true)
+    public <T> List<T> getSortedFeatures(List<String> featureNames, ResolutionOrder order, Function<Feature, T> converter) throws ServiceException {
+        final List<Feature> sorted = getSortedFeatures(loadFeatures(featureNames), order);
+        try (Trace.Span ignored = Trace.span("convert")) {
+            return sorted.stream().map(converter).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Groups features with all their dependencies into levels: features of one level depend only on features of
+     * previous levels, so each level can be installed in parallel.
+     */
+    @Transactional(readOnly = true)
+    public <T> List<List<T>> getFeatureLevels(List<String> featureNames, Function<Feature, T> converter) throws ServiceException {
+        final List<Feature> sorted = getSortedFeatures(loadFeatures(featureNames));
+        sorted.sort(BY_NAME);
+        return new TopologicalLevels<>(sorted, Feature::getDependencies).getLevels().stream()
+                .map(level -> level.stream().map(converter).collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Graph may lag behind the database both ways, so loaded features must be exactly what is reached from the
+     * requested ones: a missing dependency means an added edge, an unreached feature means a removed one.
+     */
+    private static boolean isClosure(Set<Feature> features, Set<Integer> requestedIds) {
+        final Set<Feature> reached = new HashSet<>();
+        final Deque<Feature> pending = features.stream()
+                .filter(f -> requestedIds.contains(f.getId()))
+                .collect(Collectors.toCollection(ArrayDeque::new));
+        if (pending.size() != requestedIds.size()) {
+            return false;
+        }
+        while (!pending.isEmpty()) {
+            final Feature feature = pending.pop();
+            if (!features.contains(feature)) {
+                return false;
+            }
+            if (reached.add(feature)) {
+                pending.addAll(feature.getDependencies());
+            }
+        }
+        return reached.size() == features.size();
+    }
+
+    /**
+     * Dependencies that are also reached through other dependencies of the same feature. Removing them changes
+     * neither closures nor order of any resolution, see {@link TransitiveReduction}.
+     *
+     * @return redundant dependencies ordered by feature name
+     */
+    @Transactional(readOnly = true)
+    public List<RedundantDependencyDto> findRedundantDependencies() {
+        final Map<Integer, String> names = featureRepository.getFeatureNames();
+        final Map<Integer, Set<Integer>> dependencies = featureRepository.getDependencyIds();
+        final List<Integer> ids = names.keySet().stream().sorted(Comparator.comparing(names::get)).collect(Collectors.toList());
+        final List<RedundantDependencyDto> result = new ArrayList<>();
+        new TransitiveReduction<>(ids, id -> dependencies.getOrDefault(id, Collections.emptySet())).getRedundantEdges()
+                .forEach((feature, redundant) -> redundant.forEach((dependency, via) ->
+                        result.add(new RedundantDependencyDto(names.get(feature), names.get(dependency), names.get(via)))));
+        return result;
+    }
+
+    /**
+     * Removes dependencies found by {@link #findRedundantDependencies()}, revisions of changed features are
+     * incremented. Like the cycle check, this relies on the graph read by the transaction: a concurrent update
+     * that removes the path through another dependency is not detected.
+     *
+     * @return removed dependencies
+     */
+    @Transactional
+    public List<RedundantDependencyDto> removeRedundantDependencies() {
+        final List<RedundantDependencyDto> redundant = findRedundantDependencies();
+        final Map<String, Set<String>> byFeature = new LinkedHashMap<>();
+        redundant.forEach(r -> byFeature.computeIfAbsent(r.getFeature(), f -> new HashSet<>()).add(r.getDependency()));
+        if (!byFeature.isEmpty()) {
+            final Set<Integer> affected = new HashSet<>();
+            for (Feature feature : featureRepository.findByNameIn(byFeature.keySet())) {
+                final Set<String> removed = byFeature.get(feature.getName());
+                feature.setDependencies(feature.getDependencies().stream()
+                        .filter(d -> !removed.contains(d.getName()))
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+                affected.add(feature.getId());
+                affected.addAll(featureRepository.getDependentIds(feature.getId()));
+            }
+            // Ancestors stay the same, but shortest paths to them may become longer
+            featureRepository.flush();
+            featureRepository.refreshClosure(affected);
+            featuresChanged(new ArrayList<>(byFeature.keySet()), ChangeLogEntry.Action.UPSERT);
+        }
+        return redundant;
+    }
+
+    private void featureChanged(String name, ChangeLogEntry.Action action) {
+        featuresChanged(Collections.singletonList(name), action);
+    }
+
+    private void featuresChanged(List<String> names, ChangeLogEntry.Action action) {
+        changeLog.recordAll(ChangeLogEntry.Kind.FEATURE, names, action);
+        names.forEach(name -> invalidationBus.publish(InvalidationEvent.feature(name)));
     }
 
     private Feature loadExistingFeature(String name) throws NotFoundException {
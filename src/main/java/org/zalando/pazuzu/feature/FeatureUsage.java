@@ -0,0 +1,145 @@
+package org.zalando.pazuzu.feature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage statistics of features used for cache-aware ordering: how often a feature is part of a resolution
+ * (popularity, FEATURE_USAGE) and how often it was changed (CHANGE_LOG).
+ * <p>
+ * Resolutions are counted in memory and flushed periodically, statistics are reloaded with every flush, so
+ * requests never touch the database for these. Counts are approximate: coalesced identical resolutions are
+ * counted once and a concurrent increment may be lost on flush.
+ */
+@Component
+public class FeatureUsage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureUsage.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder pendingTotal = new LongAdder();
+    private volatile Stats stats = new Stats(new HashMap<>(), new HashMap<>(), 0);
+
+    @Autowired
+    public FeatureUsage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Counts one resolution of given features (requested ones with all dependencies).
+     */
+    public void record(Collection<Feature> features) {
+        features.forEach(f -> pending.computeIfAbsent(f.getId(), id -> new LongAdder()).increment());
+        pendingTotal.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${pazuzu.usage.flush-interval-ms:60000}")
+    public synchronized void flush() {
+        try {
+            for (Map.Entry<Integer, LongAdder> entry : pending.entrySet()) {
+                final long count = entry.getValue().sumThenReset();
+                if (count > 0) {
+                    addUsage(entry.getKey(), count);
+                }
+            }
+            final long total = pendingTotal.sumThenReset();
+            if (total > 0) {
+                jdbcTemplate.update("UPDATE RESOLUTION_COUNTER SET TOTAL = TOTAL + ?", total);
+            }
+            stats = loadStats();
+        } catch (DataAccessException e) {
+            LOG.warn("Failed to flush feature usage", e);
+        }
+    }
+
+    private void addUsage(int featureId, long count) {
+        if (jdbcTemplate.update("UPDATE FEATURE_USAGE SET REQUEST_COUNT = REQUEST_COUNT + ? WHERE FEATURE_ID = ?", count, featureId) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO FEATURE_USAGE (FEATURE_ID, REQUEST_COUNT) "
+                    + "SELECT ID, ? FROM FEATURE WHERE ID = ?", count, featureId);
+        } catch (DuplicateKeyException e) {
+            // Inserted by another instance meanwhile
+            jdbcTemplate.update("UPDATE FEATURE_USAGE SET REQUEST_COUNT = REQUEST_COUNT + ? WHERE FEATURE_ID = ?", count, featureId);
+        }
+    }
+
+    private Stats loadStats() {
+        final Map<Integer, Long> requests = new HashMap<>();
+        jdbcTemplate.query("SELECT FEATURE_ID, REQUEST_COUNT FROM FEATURE_USAGE",
+                row -> {
+                    requests.put(row.getInt(1), row.getLong(2));
+                });
+        final Map<String, Long> changes = new HashMap<>();
+        jdbcTemplate.query("SELECT NAME, COUNT(*) FROM CHANGE_LOG WHERE KIND = 'FEATURE' GROUP BY NAME",
+                row -> {
+                    changes.put(row.getString(1), row.getLong(2));
+                });
+        final Long total = jdbcTemplate.queryForObject("SELECT TOTAL FROM RESOLUTION_COUNTER", Long.class);
+        return new Stats(requests, changes, null == total ? 0 : total);
+    }
+
+    /**
+     * Orders popular features first, then rarely changed ones, then by name. Counts are compared by order of
+     * magnitude (power of two), so that order does not move with every request.
+     */
+    public Comparator<Feature> getComparator() {
+        final Stats current = stats;
+        return Comparator.comparingInt((Feature f) -> -magnitude(current.requests.getOrDefault(f.getId(), 0L)))
+                .thenComparingInt(f -> magnitude(current.changes.getOrDefault(f.getName(), 0L)))
+                .thenComparing(Feature::getName);
+    }
+
+    /**
+     * Estimates which part of the given build order is shared as layer prefix with another image built from
+     * the registry. Prefix up to a feature is shared only with images that contain all features of the prefix,
+     * probability of that is estimated by the least popular feature of the prefix (an upper bound).
+     *
+     * @return expected number of shared features divided by number of features, 0 without statistics
+     */
+    public double getSharedPrefixRatio(List<Feature> order) {
+        final Stats current = stats;
+        if (order.isEmpty() || current.total == 0) {
+            return 0;
+        }
+        double prefix = 1;
+        double shared = 0;
+        for (Feature feature : order) {
+            prefix = Math.min(prefix, (double) current.requests.getOrDefault(feature.getId(), 0L) / current.total);
+            shared += prefix;
+        }
+        return shared / order.size();
+    }
+
+    private static int magnitude(long count) {
+        return 64 - Long.numberOfLeadingZeros(count);
+    }
+
+    private static final class Stats {
+        private final Map<Integer, Long> requests;
+        private final Map<String, Long> changes;
+        private final long total;
+
+        private Stats(Map<Integer, Long> requests, Map<String, Long> changes, long total) {
+            this.requests = requests;
+            this.changes = changes;
+            this.total = total;
+        }
+    }
+}
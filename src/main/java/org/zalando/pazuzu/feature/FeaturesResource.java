@@ -1,16 +1,24 @@
 package org.zalando.pazuzu.feature;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.zalando.pazuzu.concurrent.SingleFlight;
 import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.idempotency.IdempotencyStore;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
 
 import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @CrossOrigin
@@ -21,58 +29,87 @@ public class FeaturesResource {
     private static final String X_TOTAL_COUNT = "X-Total-Count";
     private static final Integer TOPOLOGICAL_SORT = 1;
     private final FeatureService featureService;
+    private final IdempotencyStore idempotencyStore;
+    private final FeatureJsonCache featureJsonCache;
+    // Many clients ask for the same sorted set right after a base feature changes
+    private final SingleFlight<List<Object>, List<JsonFragment>> sortedFeatures;
 
     @Autowired
-    public FeaturesResource(FeatureService featureService) {
+    public FeaturesResource(FeatureService featureService, IdempotencyStore idempotencyStore, FeatureJsonCache featureJsonCache,
+                            CounterService counterService, InvalidationBus invalidationBus) {
         this.featureService = featureService;
+        this.idempotencyStore = idempotencyStore;
+        this.featureJsonCache = featureJsonCache;
+        this.sortedFeatures = new SingleFlight<>("features.sorted", counterService);
+        invalidationBus.subscribe(event -> sortedFeatures.forgetInFlight());
     }
 
     @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<FeatureDto> listFeatures(
+    public List<JsonFragment> listFeatures(
             @RequestParam(required = false, name = "name") String[] featureNames,
             @RequestParam(required = false, name = "sorted") Integer sorting,
+            @RequestParam(required = false, name = "order") String order,
             @RequestParam(required = false, name = "offset") Integer offset,
             @RequestParam(required = false, name = "limit") Integer limit,
             HttpServletResponse response)
             throws ServiceException {
         if (featureNames == null) {
             if (offset != null && limit != null) {
-                FeaturesWithTotalCount<FeatureDto> featuresTotalCount =
-                        featureService.getFeaturesWithTotalCount(offset, limit, FeatureDto::ofShort);
+                FeaturesWithTotalCount<JsonFragment> featuresTotalCount =
+                        featureService.getFeatureJsonWithTotalCount(offset, limit);
                 response.setHeader(X_TOTAL_COUNT, Long.toString(featuresTotalCount.getTotalCount()));
                 response.setHeader("Access-Control-Expose-Headers", X_TOTAL_COUNT);
                 return featuresTotalCount.getFeatures();
             } else {
-                return featureService.listFeatures("", FeatureDto::ofShort);
+                return featureService.listFeatureJson(null);
             }
         }
-        Set<Feature> featureSet = featureService.loadFeatures(Arrays.stream(featureNames).collect(Collectors.toList()));
         if (sorting != null && sorting.equals(TOPOLOGICAL_SORT)) {
-            List<Feature> features = featureService.getSortedFeatures(featureSet);
-            return features.stream().map(FeatureDto::ofShort).collect(Collectors.toList());
+            final Set<String> names = new TreeSet<>(Arrays.asList(featureNames));
+            final ResolutionOrder resolutionOrder = ResolutionOrder.of(order);
+            return sortedFeatures.execute(Arrays.asList(names, resolutionOrder),
+                    () -> featureService.getSortedFeatures(new ArrayList<>(names), resolutionOrder, featureJsonCache::ofShort));
         }
-        return featureSet.stream().map(FeatureDto::ofShort).collect(Collectors.toList());
+        Set<Feature> featureSet = featureService.loadFeatures(Arrays.stream(featureNames).collect(Collectors.toList()));
+        return featureSet.stream().map(featureJsonCache::ofShort).collect(Collectors.toList());
     }
 
+    /**
+     * Retry with the same Idempotency-Key gets the original response instead of feature_duplicate.
+     */
     @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<FeatureFullDto> createFeature(@RequestBody FeatureToCreateDto value, UriComponentsBuilder uriBuilder) throws ServiceException {
-        FeatureFullDto feature = featureService.createFeature(
-                value.getName(), value.getDockerData(), value.getTestInstruction(), value.getDescription(),
-                value.getDependencies(), value.getTags(), FeatureFullDto::makeFull);
+    public ResponseEntity<?> createFeature(@RequestBody FeatureToCreateDto value,
+                                           @RequestParam(required = false, name = "reduce_dependencies") boolean reduceDependencies,
+                                           @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                           Principal principal, UriComponentsBuilder uriBuilder) throws ServiceException {
+        return idempotencyStore.execute("features.create", idempotencyKey, principal, Arrays.asList(value, reduceDependencies), () -> {
+            FeatureFullDto feature = featureService.createFeature(
+                    value.getName(), value.getDockerData(), value.getTestInstruction(), value.getDescription(),
+                    value.getDependencies(), value.getTags(), reduceDependencies, FeatureFullDto::makeFull);
+
+            return ResponseEntity
+                    .created(uriBuilder.path("/api/features/{featureName}").buildAndExpand(feature.getName()).toUri())
+                    .body(feature);
+        });
+    }
 
-        return ResponseEntity
-                .created(uriBuilder.path("/api/features/{featureName}").buildAndExpand(feature.getName()).toUri())
-                .body(feature);
+    /**
+     * Creates several features atomically, features may depend on each other.
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<FeatureFullDto>> createFeatures(@RequestBody List<FeatureToCreateDto> values) throws ServiceException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(featureService.createFeatures(values, FeatureFullDto::makeFull));
     }
 
     @RequestMapping(value = "/{featureName}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public FeatureFullDto updateFeature(@PathVariable String featureName, @RequestBody FeatureToCreateDto value) throws ServiceException {
-        return featureService.updateFeature(featureName, value.getName(), value.getDockerData(), value.getTestInstruction(), value.getDescription(), value.getDependencies(), FeatureFullDto::makeFull);
+    public FeatureFullDto updateFeature(@PathVariable String featureName, @RequestBody FeatureToCreateDto value,
+                                        @RequestParam(required = false, name = "reduce_dependencies") boolean reduceDependencies) throws ServiceException {
+        return featureService.updateFeature(featureName, value.getName(), value.getDockerData(), value.getTestInstruction(), value.getDescription(), value.getDependencies(), reduceDependencies, FeatureFullDto::makeFull);
     }
 
     @RequestMapping(value = "/{featureName}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    public FeatureFullDto getFeature(@PathVariable String featureName) throws ServiceException {
-        return featureService.getFeature(featureName, FeatureFullDto::makeFull);
+    public JsonFragment getFeature(@PathVariable String featureName) throws ServiceException {
+        return featureService.getFeature(featureName, featureJsonCache::ofFull);
     }
 
     @RequestMapping(value = "/{featureName}", method = RequestMethod.DELETE)
@@ -82,8 +119,8 @@ public class FeaturesResource {
     }
 
     @RequestMapping(value = "/search/{featureName}", method = RequestMethod.GET)
-    public List<FeatureDto> searchFeature(@PathVariable String featureName) throws ServiceException {
-        return featureService.listFeatures(featureName, FeatureDto::ofShort);
+    public List<JsonFragment> searchFeature(@PathVariable String featureName) throws ServiceException {
+        return featureService.listFeatureJson(featureName);
     }
 
 }
@@ -0,0 +1,37 @@
+package org.zalando.pazuzu.feature;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Registry-wide maintenance of dependencies, requires admin scope (see
+ * {@link org.zalando.pazuzu.config.OAuthConfiguration}).
+ */
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/admin/redundant-dependencies")
+public class RedundantDependenciesResource {
+
+    private final FeatureService featureService;
+
+    @Autowired
+    public RedundantDependenciesResource(FeatureService featureService) {
+        this.featureService = featureService;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<RedundantDependencyDto> getRedundantDependencies() {
+        return featureService.findRedundantDependencies();
+    }
+
+    /**
+     * Removes all redundant dependencies, resolution results stay the same.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<RedundantDependencyDto> removeRedundantDependencies() {
+        return featureService.removeRedundantDependencies();
+    }
+}
@@ -0,0 +1,51 @@
+package org.zalando.pazuzu.feature;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Dependency of a feature that is also reached through another dependency of the feature.
+ */
+public class RedundantDependencyDto {
+    @JsonProperty("feature")
+    private String feature;
+    @JsonProperty("dependency")
+    private String dependency;
+    @JsonProperty("via")
+    private String via;
+
+    public RedundantDependencyDto() {
+    }
+
+    public RedundantDependencyDto(String feature, String dependency, String via) {
+        this.feature = feature;
+        this.dependency = dependency;
+        this.via = via;
+    }
+
+    public String getFeature() {
+        return feature;
+    }
+
+    public void setFeature(String feature) {
+        this.feature = feature;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public void setDependency(String dependency) {
+        this.dependency = dependency;
+    }
+
+    /**
+     * @return other dependency of the feature that depends on this one, directly or not
+     */
+    public String getVia() {
+        return via;
+    }
+
+    public void setVia(String via) {
+        this.via = via;
+    }
+}
@@ -0,0 +1,37 @@
+package org.zalando.pazuzu.feature;
+
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+
+import java.util.Locale;
+
+/**
+ * How features that do not depend on each other are ordered in resolution results.
+ */
+public enum ResolutionOrder {
+    /**
+     * By name, the same graph always gives the same order.
+     */
+    CANONICAL,
+    /**
+     * Frequently requested and rarely changed features first, so that images share longer layer prefixes.
+     * Order changes with usage statistics, see {@link FeatureUsage}.
+     */
+    CACHE;
+
+    public static ResolutionOrder of(String value) throws BadRequestException {
+        if (null == value) {
+            return CANONICAL;
+        }
+        for (ResolutionOrder order : values()) {
+            if (order.name().equalsIgnoreCase(value)) {
+                return order;
+            }
+        }
+        throw new BadRequestException(Error.RESOLUTION_ORDER_UNKNOWN, "Unknown order: " + value);
+    }
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,168 @@
+package org.zalando.pazuzu.feature.snippet;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Text blob (docker data, test instruction, description) stored once per distinct content and addressed by
+ * SHA-256 of its UTF-8 representation. Content never changes, rows are inserted and reference counter is
+ * updated only with bulk statements of {@link SnippetStore} and {@link SnippetRepository}.
+ */
+@Entity
+@Immutable
+@BatchSize(size = 64)
+@Access(AccessType.FIELD)
+public class Snippet {
+
+    // Snippets shorter than that are not worth compressing
+    static final int COMPRESSION_THRESHOLD = 256;
+
+    @Transient
+    private String hash;
+    @Column(name = "content", nullable = false)
+    private byte[] content;
+    @Column(name = "compressed", nullable = false)
+    private boolean compressed;
+    @Column(name = "content_length", nullable = false)
+    private int contentLength;
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    protected Snippet() {
+    }
+
+    public Snippet(String text) {
+        this(text, 1);
+    }
+
+    Snippet(String text, int refCount) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        this.hash = hash(text);
+        this.contentLength = bytes.length;
+        this.refCount = refCount;
+        final byte[] deflated = bytes.length >= COMPRESSION_THRESHOLD ? deflate(bytes) : bytes;
+        this.compressed = deflated.length < bytes.length;
+        this.content = compressed ? deflated : bytes;
+    }
+
+    /**
+     * @return text of the snippet, shared through {@link SnippetCache}. Snippet itself (which may be lazy proxy)
+     * is only initialized when cache does not have the text yet.
+     */
+    public static String text(Snippet snippet) {
+        if (null == snippet) {
+            return null;
+        }
+        return SnippetCache.shared().get(snippet.getHash(), snippet::decode);
+    }
+
+    public static String hash(String text) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder result = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Property access, so that hash of lazy proxy can be read without loading the content
+    @Id
+    @Access(AccessType.PROPERTY)
+    @Column(name = "hash", nullable = false, length = 64)
+    public String getHash() {
+        return hash;
+    }
+
+    protected void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public String decode() {
+        return decode(content, compressed, contentLength);
+    }
+
+    /**
+     * Decodes content as it is stored in SNIPPET table, for readers that do not go through the entity.
+     */
+    public static String decode(byte[] content, boolean compressed, int contentLength) {
+        return new String(compressed ? inflate(content, contentLength) : content, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length / 2);
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                result.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int length) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            final byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                offset += inflater.inflate(result, offset, length - offset);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Snippet content is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return getHash().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Snippet)) {
+            return false;
+        }
+        return getHash().equals(((Snippet) obj).getHash());
+    }
+}
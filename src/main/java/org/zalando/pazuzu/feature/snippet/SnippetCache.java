@@ -0,0 +1,107 @@
+package org.zalando.pazuzu.feature.snippet;
+
+import org.zalando.pazuzu.jfr.RegistryEvents;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process wide cache of decoded snippet texts, keyed by content hash. As content for a hash never changes, entries
+ * never become stale and can be shared by all features (and all sessions) that reference the same snippet.
+ * Cache is bounded by total number of cached characters, least recently used entries are dropped first.
+ */
+public final class SnippetCache {
+
+    static final long DEFAULT_MAX_CHARACTERS = 16L * 1024 * 1024;
+
+    private static final SnippetCache SHARED = new SnippetCache(DEFAULT_MAX_CHARACTERS);
+
+    static {
+        RegistryEvents.registerCache("snippets", SHARED::getHits, SHARED::getMisses, SHARED::getCharacters);
+    }
+
+    private final Map<String, String> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long maxCharacters;
+    private long characters;
+
+    SnippetCache(long maxCharacters) {
+        this.maxCharacters = maxCharacters;
+    }
+
+    public static SnippetCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param hash   Content hash
+     * @param loader Used to decode the text on cache miss
+     * @return cached text instance, identical snippets share one instance
+     */
+    public String get(String hash, Supplier<String> loader) {
+        synchronized (this) {
+            final String cached = entries.get(hash);
+            if (null != cached) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        return put(hash, loader.get());
+    }
+
+    public synchronized String getIfPresent(String hash) {
+        return entries.get(hash);
+    }
+
+    public synchronized String put(String hash, String text) {
+        final String existing = entries.get(hash);
+        if (null != existing) {
+            return existing;
+        }
+        entries.put(hash, text);
+        characters += text.length();
+        trim();
+        return text;
+    }
+
+    public synchronized void evict(String hash) {
+        final String removed = entries.remove(hash);
+        if (null != removed) {
+            characters -= removed.length();
+        }
+    }
+
+    public synchronized void setMaxCharacters(long maxCharacters) {
+        this.maxCharacters = maxCharacters;
+        trim();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCharacters() {
+        return characters;
+    }
+
+    private void trim() {
+        final Iterator<String> eldest = entries.values().iterator();
+        while (characters > maxCharacters && eldest.hasNext()) {
+            characters -= eldest.next().length();
+            eldest.remove();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
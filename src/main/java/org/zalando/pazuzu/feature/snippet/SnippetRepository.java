@@ -0,0 +1,23 @@
+package org.zalando.pazuzu.feature.snippet;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface SnippetRepository extends CrudRepository<Snippet, String> {
+
+    @Modifying
+    @Query(value = "UPDATE Snippet s SET s.refCount = s.refCount - 1 WHERE s.hash = :hash")
+    int removeReference(@Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "DELETE FROM Snippet s WHERE s.hash = :hash AND s.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    @Query(value = "SELECT s FROM Snippet s WHERE s.hash IN :hashes")
+    List<Snippet> findByHashes(@Param("hashes") Collection<String> hashes);
+}
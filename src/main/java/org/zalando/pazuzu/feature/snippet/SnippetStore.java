@@ -0,0 +1,195 @@
+package org.zalando.pazuzu.feature.snippet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Content addressed storage of feature texts. Every distinct text is stored (and compressed) once, features
+ * reference it by hash. References are counted, so that snippet is removed together with its last user.
+ * <p>
+ * Identical texts are usually written by several requests, so snippets are acquired with single insert-or-increment
+ * statement: INSERT ... ON CONFLICT on PostgreSQL, MERGE on other databases.
+ */
+@Service
+public class SnippetStore {
+
+    private static final int MAX_IN_PARAMETERS = 1000;
+    // Snippets per upsert statement, 5 parameters each
+    private static final int UPSERT_BATCH_SIZE = 100;
+
+    private static final String POSTGRESQL_UPSERT = "INSERT INTO SNIPPET (HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) VALUES %s "
+            + "ON CONFLICT (HASH) DO UPDATE SET REF_COUNT = SNIPPET.REF_COUNT + EXCLUDED.REF_COUNT";
+    private static final String POSTGRESQL_ROW = "(:hash%1$d, :content%1$d, :compressed%1$d, :length%1$d, :count%1$d)";
+    private static final String MERGE = "MERGE INTO SNIPPET S USING (VALUES %s) AS V (HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) "
+            + "ON S.HASH = V.HASH WHEN MATCHED THEN UPDATE SET S.REF_COUNT = S.REF_COUNT + V.REF_COUNT "
+            + "WHEN NOT MATCHED THEN INSERT (HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) "
+            + "VALUES (V.HASH, V.CONTENT, V.COMPRESSED, V.CONTENT_LENGTH, V.REF_COUNT)";
+    // Types of parameters in VALUES can not be inferred
+    private static final String MERGE_ROW = "(CAST(:hash%1$d AS VARCHAR(64)), CAST(:content%1$d AS VARBINARY(16777216)), "
+            + "CAST(:compressed%1$d AS BOOLEAN), CAST(:length%1$d AS INT), CAST(:count%1$d AS INT))";
+
+    private final SnippetRepository snippetRepository;
+    private final EntityManager entityManager;
+    private final DataSource dataSource;
+    private boolean postgres;
+
+    @Autowired
+    public SnippetStore(SnippetRepository snippetRepository, EntityManager entityManager, DataSource dataSource,
+                        @Value("${pazuzu.snippets.cache-max-characters:" + SnippetCache.DEFAULT_MAX_CHARACTERS + "}") long cacheMaxCharacters) {
+        this.snippetRepository = snippetRepository;
+        this.entityManager = entityManager;
+        this.dataSource = dataSource;
+        SnippetCache.shared().setMaxCharacters(cacheMaxCharacters);
+    }
+
+    @PostConstruct
+    public void detectDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+    }
+
+    /**
+     * Adds reference to snippet with given text, snippet is stored if it does not exist yet.
+     *
+     * @return snippet reference to be used in entity, null for null text
+     */
+    @Transactional
+    public Snippet acquire(String text) {
+        if (null == text) {
+            return null;
+        }
+        return acquireAll(Collections.singletonList(text)).get(text);
+    }
+
+    /**
+     * Bulk variant of {@link #acquire(String)}: adds one reference per occurrence of each text, with a few
+     * statements regardless of number of texts.
+     *
+     * @return snippet references by text, null texts are skipped
+     */
+    @Transactional
+    public Map<String, Snippet> acquireAll(Collection<String> texts) {
+        // Ordered by hash, so that concurrent writers lock rows in the same order
+        final Map<String, String> textByHash = new TreeMap<>();
+        final Map<String, Integer> references = new HashMap<>();
+        for (String text : texts) {
+            if (null != text) {
+                final String hash = Snippet.hash(text);
+                textByHash.putIfAbsent(hash, text);
+                references.merge(hash, 1, Integer::sum);
+            }
+        }
+        final List<Snippet> snippets = new ArrayList<>(textByHash.size());
+        textByHash.forEach((hash, text) -> snippets.add(new Snippet(text, references.get(hash))));
+        for (int from = 0; from < snippets.size(); from += UPSERT_BATCH_SIZE) {
+            upsert(snippets.subList(from, Math.min(snippets.size(), from + UPSERT_BATCH_SIZE)));
+        }
+
+        final Map<String, Snippet> result = new HashMap<>();
+        textByHash.forEach((hash, text) -> {
+            SnippetCache.shared().put(hash, text);
+            result.put(text, entityManager.getReference(Snippet.class, hash));
+        });
+        return result;
+    }
+
+    /**
+     * Inserts snippets that do not exist yet and adds reference count of the given ones to existing ones.
+     */
+    private void upsert(List<Snippet> snippets) {
+        final String row = postgres ? POSTGRESQL_ROW : MERGE_ROW;
+        final List<String> rows = new ArrayList<>(snippets.size());
+        for (int i = 0; i < snippets.size(); ++i) {
+            rows.add(String.format(row, i));
+        }
+        final Query query = entityManager.createNativeQuery(String.format(postgres ? POSTGRESQL_UPSERT : MERGE, String.join(", ", rows)));
+        for (int i = 0; i < snippets.size(); ++i) {
+            final Snippet snippet = snippets.get(i);
+            query.setParameter("hash" + i, snippet.getHash())
+                    .setParameter("content" + i, snippet.getContent())
+                    .setParameter("compressed" + i, snippet.isCompressed())
+                    .setParameter("length" + i, snippet.getContentLength())
+                    .setParameter("count" + i, snippet.getRefCount());
+        }
+        query.executeUpdate();
+    }
+
+    /**
+     * Removes reference to snippet, snippet is deleted when no references are left. Pending entity changes are
+     * flushed first, so that removed reference is not in the way of deletion.
+     */
+    @Transactional
+    public void release(Snippet snippet) {
+        if (null == snippet) {
+            return;
+        }
+        entityManager.flush();
+        final String hash = snippet.getHash();
+        snippetRepository.removeReference(hash);
+        if (snippetRepository.deleteIfUnreferenced(hash) > 0) {
+            entityManager.detach(snippet);
+            SnippetCache.shared().evict(hash);
+        }
+    }
+
+    /**
+     * Replaces one snippet reference by another one, nothing is changed when text stays the same.
+     *
+     * @param current   Snippet referenced now
+     * @param text      New text
+     * @param reference Updates the reference, called before current snippet is released
+     */
+    @Transactional
+    public void replace(Snippet current, String text, Consumer<Snippet> reference) {
+        if (null != current && null != text && current.getHash().equals(Snippet.hash(text))) {
+            return;
+        }
+        reference.accept(acquire(text));
+        release(current);
+    }
+
+    /**
+     * Loads texts of several snippets, only those missing in cache are read from database (with single query).
+     *
+     * @return texts by hash
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> resolve(Collection<String> hashes) {
+        final Map<String, String> result = new HashMap<>();
+        final Set<String> missing = new HashSet<>();
+        for (String hash : hashes) {
+            final String cached = null == hash ? null : SnippetCache.shared().getIfPresent(hash);
+            if (null != cached) {
+                result.put(hash, cached);
+            } else if (null != hash) {
+                missing.add(hash);
+            }
+        }
+        final List<String> missingList = new ArrayList<>(missing);
+        for (int from = 0; from < missingList.size(); from += MAX_IN_PARAMETERS) {
+            snippetRepository.findByHashes(missingList.subList(from, Math.min(missingList.size(), from + MAX_IN_PARAMETERS)))
+                    .forEach(s -> result.put(s.getHash(), Snippet.text(s)));
+        }
+        return result;
+    }
+}
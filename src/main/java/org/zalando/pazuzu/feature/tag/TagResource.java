@@ -2,9 +2,12 @@ package org.zalando.pazuzu.feature.tag;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.idempotency.IdempotencyStore;
 
+import java.security.Principal;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,10 +19,12 @@ import java.util.stream.Collectors;
 @RequestMapping(value = "/api/tags")
 public class TagResource {
     private final TagService tagService;
+    private final IdempotencyStore idempotencyStore;
 
     @Autowired
-    public TagResource(TagService tagService) {
+    public TagResource(TagService tagService, IdempotencyStore idempotencyStore) {
         this.tagService = tagService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @RequestMapping(value = "/query/{queryString}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -28,8 +33,11 @@ public class TagResource {
     }
 
     @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<org.zalando.pazuzu.feature.tag.TagDto> upsert(@RequestBody List<TagDto> tags) throws ServiceException {
-        return tagService.upsertTagDtos(tags).stream().map(TagDto::ofShort).collect(Collectors.toList());
+    public ResponseEntity<?> upsert(@RequestBody List<TagDto> tags,
+                                    @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                    Principal principal) throws ServiceException {
+        return idempotencyStore.execute("tags.upsert", idempotencyKey, principal, tags, () -> ResponseEntity.ok(
+                tagService.upsertTagDtos(tags).stream().map(TagDto::ofShort).collect(Collectors.toList())));
     }
 
     @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -1,8 +1,17 @@
 package org.zalando.pazuzu.feature.tag;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.zalando.pazuzu.change.ChangeLog;
+import org.zalando.pazuzu.change.ChangeLogEntry;
+import org.zalando.pazuzu.exception.ConflictException;
+import org.zalando.pazuzu.exception.ConstraintViolations;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+import org.zalando.pazuzu.invalidation.InvalidationEvent;
+import org.zalando.pazuzu.jfr.RegistryEvents;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -15,10 +24,14 @@ import java.util.stream.StreamSupport;
 @Service
 public class TagService {
     private final TagRepository tagRepository;
+    private final ChangeLog changeLog;
+    private final InvalidationBus invalidationBus;
 
     @Autowired
-    public TagService(TagRepository tagRepository) {
+    public TagService(TagRepository tagRepository, ChangeLog changeLog, InvalidationBus invalidationBus) {
         this.tagRepository = tagRepository;
+        this.changeLog = changeLog;
+        this.invalidationBus = invalidationBus;
     }
 
     private static <T> Stream<T> toStream(Iterable<T> iterable) {
@@ -31,13 +44,20 @@ public class TagService {
         );
     }
 
-    @Transactional
-    public List<Tag> upsertTagDtos(List<TagDto> tags) {
+    /**
+     * Creates missing tags. Tag created by a concurrent transaction meanwhile fails the statement (and, on
+     * PostgreSQL, the transaction), this is reported as conflict to be retried.
+     */
+    @Transactional(rollbackFor = ConflictException.class)
+    public List<Tag> upsertTagDtos(List<TagDto> tags) throws ConflictException {
         List<String> tagNames = tags.stream().map(t -> t.getName()).collect(Collectors.toList());
-        createFromTagNames(tagNames);
-        return tagRepository.findByNames(tagNames);
+        try (RegistryEvents.TagUpsert event = RegistryEvents.tagUpsert(tagNames.size())) {
+            event.created(createFromTagNames(tagNames));
+            return tagRepository.findByNames(tagNames);
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<Tag> searchTags(String queryString) {
         if (null == queryString || queryString.isEmpty()) {
             return Collections.emptyList();
@@ -45,11 +65,15 @@ public class TagService {
         return tagRepository.searchByName(queryString);
     }
 
+    @Transactional(readOnly = true)
     public List<Tag> listTags() {
         return toStream(tagRepository.findAll()).collect(Collectors.toList());
     }
 
-    private void createFromTagNames(List<String> tagNames) {
+    /**
+     * @return Number of created tags
+     */
+    private int createFromTagNames(List<String> tagNames) throws ConflictException {
         Set<String> existingNames = tagRepository.findByNames(tagNames)
                 .stream().map(Tag::getName)
                 .collect(Collectors.toSet());
@@ -58,10 +82,22 @@ public class TagService {
         tagNamesToPersist.removeAll(existingNames);
 
         if (!tagNamesToPersist.isEmpty()) {
-            tagRepository.save(tagNamesToPersist.stream()
-                    .map(Tag::new)
-                    .collect(Collectors.toList()));
+            try {
+                tagRepository.save(tagNamesToPersist.stream()
+                        .map(Tag::new)
+                        .collect(Collectors.toList()));
+            } catch (DataIntegrityViolationException e) {
+                if (ConstraintViolations.isViolated(e, ConstraintViolations.TAG_NAME_UNIQUE)) {
+                    throw new ConflictException(Error.CONCURRENT_MODIFICATION, "Tags were created concurrently: " + tagNamesToPersist);
+                }
+                throw e;
+            }
+            tagNamesToPersist.forEach(name -> {
+                changeLog.record(ChangeLogEntry.Kind.TAG, name, ChangeLogEntry.Action.UPSERT);
+                invalidationBus.publish(InvalidationEvent.tag(name));
+            });
         }
+        return tagNamesToPersist.size();
     }
 
 
@@ -0,0 +1,183 @@
+package org.zalando.pazuzu.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.snippet.Snippet;
+
+import java.security.Principal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays responses to requests repeated with the same Idempotency-Key header, so that a client may retry a
+ * modification without doing it twice.
+ * <p>
+ * Key is inserted in the transaction of the modification before the work is done: a concurrent request with the
+ * same key waits for that transaction and then gets the stored response, a failed request leaves no key behind
+ * and may be retried. Keys are scoped by endpoint and client (by hash of its name, which has no length limit),
+ * and are kept for a retention period, at most max-keys of them.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 256;
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final long retentionMillis;
+    private final int maxKeys;
+
+    @FunctionalInterface
+    public interface Computation {
+        ResponseEntity<?> compute() throws ServiceException;
+    }
+
+    @Autowired
+    public IdempotencyStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                            @Value("${pazuzu.idempotency.retention-minutes:1440}") long retentionMinutes,
+                            @Value("${pazuzu.idempotency.max-keys:100000}") int maxKeys) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @param endpoint  Name of the operation, keys of different operations do not clash
+     * @param key       Value of Idempotency-Key header, null to just compute
+     * @param principal Client, may be null
+     * @param request   Request body and parameters that affect the result, retries must send the same ones
+     */
+    public ResponseEntity<?> execute(String endpoint, String key, Principal principal, Object request,
+                                     Computation computation) throws ServiceException {
+        if (null == key) {
+            return computation.compute();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException(Error.IDEMPOTENCY_KEY_INVALID);
+        }
+        final String scope = null == principal ? endpoint : endpoint + " " + Snippet.hash(principal.getName());
+        final String requestHash = hash(request);
+        final ResponseEntity<?> stored = replay(scope, key, requestHash);
+        if (null != stored) {
+            return stored;
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                jdbcTemplate.update("INSERT INTO IDEMPOTENCY_KEY (SCOPE, IDEMPOTENCY_KEY, REQUEST_HASH, STATUS, CREATED_AT) "
+                        + "VALUES (?, ?, ?, 0, ?)", scope, key, requestHash, new Timestamp(System.currentTimeMillis()));
+                final ResponseEntity<?> response;
+                try {
+                    response = computation.compute();
+                } catch (ServiceException e) {
+                    throw new ServiceFailure(e);
+                }
+                jdbcTemplate.update("UPDATE IDEMPOTENCY_KEY SET STATUS = ?, LOCATION = ?, BODY = ? WHERE SCOPE = ? AND IDEMPOTENCY_KEY = ?",
+                        response.getStatusCode().value(),
+                        null == response.getHeaders().getLocation() ? null : response.getHeaders().getLocation().toString(),
+                        json(response.getBody()), scope, key);
+                return response;
+            });
+        } catch (ServiceFailure e) {
+            throw e.getCause();
+        } catch (DuplicateKeyException e) {
+            // Request with the same key has completed meanwhile
+            final ResponseEntity<?> concurrent = replay(scope, key, requestHash);
+            if (null == concurrent) {
+                throw e;
+            }
+            return concurrent;
+        }
+    }
+
+    private ResponseEntity<?> replay(String scope, String key, String requestHash) throws BadRequestException {
+        final List<ResponseEntity<String>> found = jdbcTemplate.query(
+                "SELECT REQUEST_HASH, STATUS, LOCATION, BODY FROM IDEMPOTENCY_KEY WHERE SCOPE = ? AND IDEMPOTENCY_KEY = ?",
+                (row, index) -> {
+                    if (!requestHash.equals(row.getString(1))) {
+                        return null;
+                    }
+                    final HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    headers.set(REPLAYED_HEADER, "true");
+                    if (null != row.getString(3)) {
+                        headers.set(HttpHeaders.LOCATION, row.getString(3));
+                    }
+                    return new ResponseEntity<>(row.getString(4), headers, HttpStatus.valueOf(row.getInt(2)));
+                }, scope, key);
+        if (found.isEmpty()) {
+            return null;
+        }
+        if (null == found.get(0)) {
+            throw new BadRequestException(Error.IDEMPOTENCY_KEY_REUSED);
+        }
+        return found.get(0);
+    }
+
+    @Scheduled(fixedDelayString = "${pazuzu.idempotency.purge-interval-ms:600000}")
+    public void purge() {
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEY WHERE CREATED_AT < ?",
+                    new Timestamp(System.currentTimeMillis() - retentionMillis));
+            final List<Timestamp> oldestKept = jdbcTemplate.queryForList(
+                    "SELECT CREATED_AT FROM IDEMPOTENCY_KEY ORDER BY CREATED_AT DESC LIMIT 1 OFFSET ?", Timestamp.class, maxKeys - 1);
+            if (!oldestKept.isEmpty()) {
+                deleted += jdbcTemplate.update("DELETE FROM IDEMPOTENCY_KEY WHERE CREATED_AT < ?", oldestKept.get(0));
+            }
+            if (deleted > 0) {
+                LOG.debug("Purged {} idempotency keys", deleted);
+            }
+        } catch (DataAccessException e) {
+            LOG.warn("Failed to purge idempotency keys", e);
+        }
+    }
+
+    private String hash(Object request) {
+        return Snippet.hash(json(request));
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Carries service exception through transaction template, which rolls back on runtime exceptions
+    private static final class ServiceFailure extends RuntimeException {
+        private ServiceFailure(ServiceException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServiceException getCause() {
+            return (ServiceException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.zalando.pazuzu.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Collects events of a transaction and delivers them to local listeners once after commit.
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractInvalidationBus.class);
+
+    private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(event);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<InvalidationEvent> pending = (Set<InvalidationEvent>) TransactionSynchronizationManager.getResource(this);
+        if (null == pending) {
+            final Set<InvalidationEvent> events = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    deliver(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AbstractInvalidationBus.this);
+                }
+            });
+            pending = events;
+            onFirstEvent();
+        }
+        pending.add(event);
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Called within transaction when it publishes its first event.
+     */
+    protected void onFirstEvent() {
+    }
+
+    protected void deliver(Collection<InvalidationEvent> events) {
+        events.forEach(this::deliver);
+    }
+
+    protected void deliver(InvalidationEvent event) {
+        for (Consumer<InvalidationEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                LOG.error("Invalidation listener failed on " + event, e);
+            }
+        }
+    }
+}
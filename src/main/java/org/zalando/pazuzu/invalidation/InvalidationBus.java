@@ -0,0 +1,21 @@
+package org.zalando.pazuzu.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidation events to caches of every registry instance.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Publishes event of the current transaction. Listeners are notified after commit, nothing is delivered
+     * on rollback. Without transaction event is delivered immediately.
+     */
+    void publish(InvalidationEvent event);
+
+    /**
+     * Registers listener for events of this and (depending on implementation) other instances. Listener must not
+     * block, it may be called from request threads.
+     */
+    void subscribe(Consumer<InvalidationEvent> listener);
+}
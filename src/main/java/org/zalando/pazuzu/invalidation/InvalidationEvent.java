@@ -0,0 +1,60 @@
+package org.zalando.pazuzu.invalidation;
+
+import java.util.Objects;
+
+/**
+ * Says that cached state derived from the named object is stale. Events carry no state, listeners reload what
+ * they need, so delivering the same event twice is harmless.
+ */
+public final class InvalidationEvent {
+
+    public enum Kind {
+        FEATURE, TAG
+    }
+
+    private final Kind kind;
+    private final String name;
+
+    public InvalidationEvent(Kind kind, String name) {
+        this.kind = kind;
+        this.name = name;
+    }
+
+    public static InvalidationEvent feature(String name) {
+        return new InvalidationEvent(Kind.FEATURE, name);
+    }
+
+    public static InvalidationEvent tag(String name) {
+        return new InvalidationEvent(Kind.TAG, name);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final InvalidationEvent that = (InvalidationEvent) o;
+        return kind == that.kind && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, name);
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + name;
+    }
+}
@@ -0,0 +1,146 @@
+package org.zalando.pazuzu.invalidation;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Bus shared by all instances that use the same database. Change log (which every modification already writes
+ * in its transaction) serves as the outbox: each instance polls it from the position it had at startup and turns
+ * new entries into events. On PostgreSQL transaction also sends NOTIFY, listening instances poll right after
+ * commit instead of waiting for the next scheduled poll.
+ * <p>
+ * Own events are delivered locally after commit and then once more by the poll, listeners tolerate that.
+ */
+@Component
+@ConditionalOnProperty(name = "pazuzu.invalidation.bus", havingValue = "jdbc")
+public class JdbcInvalidationBus extends AbstractInvalidationBus implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcInvalidationBus.class);
+    static final String CHANNEL = "pazuzu_invalidation";
+    private static final int BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final long listenIntervalMillis;
+    private volatile boolean running;
+    private boolean notifySupported;
+    private Thread listener;
+    private long cursor = -1;
+
+    @Autowired
+    public JdbcInvalidationBus(DataSource dataSource,
+                               @Value("${pazuzu.invalidation.listen-interval-ms:200}") long listenIntervalMillis) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setMaxRows(BATCH_SIZE);
+        this.listenIntervalMillis = listenIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            notifySupported = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        }
+        running = true;
+        if (notifySupported) {
+            listener = new Thread(this::listen, "invalidation-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (null != listener) {
+            listener.interrupt();
+            listener.join(listenIntervalMillis * 5);
+        }
+    }
+
+    @Override
+    protected void onFirstEvent() {
+        if (notifySupported) {
+            // Joins the current transaction, PostgreSQL sends notification on commit only
+            jdbcTemplate.execute("NOTIFY " + CHANNEL);
+        }
+    }
+
+    /**
+     * Delivers events for change log entries written since the previous poll (by any instance).
+     */
+    @Scheduled(fixedDelayString = "${pazuzu.invalidation.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (cursor < 0) {
+            // Instance starts with empty caches, nothing written before is of interest
+            cursor = jdbcTemplate.queryForObject("SELECT LAST_ID FROM CHANGE_COUNTER", Long.class);
+            return;
+        }
+        int read;
+        do {
+            final long since = cursor;
+            read = jdbcTemplate.query("SELECT ID, KIND, NAME FROM CHANGE_LOG WHERE ID > ? ORDER BY ID", rs -> {
+                int count = 0;
+                while (rs.next()) {
+                    cursor = rs.getLong("ID");
+                    deliver(new InvalidationEvent(InvalidationEvent.Kind.valueOf(rs.getString("KIND")), rs.getString("NAME")));
+                    ++count;
+                }
+                return count;
+            }, since);
+        } while (read == BATCH_SIZE);
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    // Driver only receives notifications while talking to the server
+                    try (ResultSet ignored = statement.executeQuery("SELECT 1")) {
+                        final PGNotification[] notifications = pgConnection.getNotifications();
+                        if (null != notifications && notifications.length > 0) {
+                            poll();
+                        }
+                    }
+                    Thread.sleep(listenIntervalMillis);
+                }
+            } catch (SQLException | RuntimeException e) {
+                LOG.warn("Invalidation listener failed, falling back to polling until reconnect", e);
+                if (!pause()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(listenIntervalMillis * 25);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
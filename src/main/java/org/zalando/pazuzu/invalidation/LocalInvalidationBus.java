@@ -0,0 +1,12 @@
+package org.zalando.pazuzu.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bus for single instance deployments, events never leave the JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "pazuzu.invalidation.bus", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus extends AbstractInvalidationBus {
+}
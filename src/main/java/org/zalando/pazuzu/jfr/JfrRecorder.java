@@ -0,0 +1,208 @@
+package org.zalando.pazuzu.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Flight Recorder backed {@link RegistryEvents.Recorder}, the events are handles themselves.
+ */
+class JfrRecorder implements RegistryEvents.Recorder {
+
+    private final Map<String, CacheSource> caches = new ConcurrentHashMap<>();
+
+    JfrRecorder() {
+        FlightRecorder.register(ResolutionEvent.class);
+        FlightRecorder.register(CycleCheckEvent.class);
+        FlightRecorder.register(TagUpsertEvent.class);
+        FlightRecorder.register(RepositoryCallEvent.class);
+        FlightRecorder.addPeriodicEvent(CacheStatisticsEvent.class, () -> caches.forEach((name, cache) -> {
+            final CacheStatisticsEvent event = new CacheStatisticsEvent();
+            event.cache = name;
+            event.hits = cache.hits.getAsLong();
+            event.misses = cache.misses.getAsLong();
+            event.size = cache.size.getAsLong();
+            event.commit();
+        }));
+    }
+
+    @Override
+    public RegistryEvents.Resolution resolution(int roots, String order) {
+        final ResolutionEvent event = new ResolutionEvent();
+        event.roots = roots;
+        event.order = order;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public RegistryEvents.CycleCheck cycleCheck(String feature, int dependencies) {
+        final CycleCheckEvent event = new CycleCheckEvent();
+        event.feature = feature;
+        event.dependencies = dependencies;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public RegistryEvents.TagUpsert tagUpsert(int tags) {
+        final TagUpsertEvent event = new TagUpsertEvent();
+        event.tags = tags;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public RegistryEvents.Timed repositoryCall(Supplier<String> method) {
+        final RepositoryCallEvent event = new RepositoryCallEvent(method);
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void registerCache(String name, LongSupplier hits, LongSupplier misses, LongSupplier size) {
+        caches.put(name, new CacheSource(hits, misses, size));
+    }
+
+    private static final class CacheSource {
+        private final LongSupplier hits;
+        private final LongSupplier misses;
+        private final LongSupplier size;
+
+        private CacheSource(LongSupplier hits, LongSupplier misses, LongSupplier size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.size = size;
+        }
+    }
+
+    @Name("org.zalando.pazuzu.FeatureResolution")
+    @Label("Feature Resolution")
+    @Description("Loading and sorting of the closure of requested features")
+    @Category({"Pazuzu Registry"})
+    static class ResolutionEvent extends Event implements RegistryEvents.Resolution {
+        @Label("Requested Features")
+        int roots;
+        @Label("Closure Size")
+        int closureSize;
+        @Label("Order")
+        String order;
+        @Label("Sort Duration")
+        @Timespan
+        long sortDuration;
+
+        @Override
+        public void closure(int size) {
+            closureSize = size;
+        }
+
+        @Override
+        public void sorted(long nanos) {
+            sortDuration = nanos;
+        }
+
+        @Override
+        public void close() {
+            end();
+            commit();
+        }
+    }
+
+    @Name("org.zalando.pazuzu.CycleCheck")
+    @Label("Dependency Cycle Check")
+    @Description("Check of new dependencies of an updated feature")
+    @Category({"Pazuzu Registry"})
+    static class CycleCheckEvent extends Event implements RegistryEvents.CycleCheck {
+        @Label("Feature")
+        String feature;
+        @Label("Dependencies")
+        int dependencies;
+        @Label("Cycle Found")
+        boolean cycle;
+
+        @Override
+        public void cycle(boolean found) {
+            cycle = found;
+        }
+
+        @Override
+        public void close() {
+            end();
+            commit();
+        }
+    }
+
+    @Name("org.zalando.pazuzu.TagUpsert")
+    @Label("Tag Upsert")
+    @Category({"Pazuzu Registry"})
+    static class TagUpsertEvent extends Event implements RegistryEvents.TagUpsert {
+        @Label("Tags")
+        int tags;
+        @Label("Created Tags")
+        int created;
+
+        @Override
+        public void created(int count) {
+            created = count;
+        }
+
+        @Override
+        public void close() {
+            end();
+            commit();
+        }
+    }
+
+    @Name("org.zalando.pazuzu.RepositoryCall")
+    @Label("Repository Call")
+    @Description("Call of a Spring Data repository method, including the statements it executes")
+    @Category({"Pazuzu Registry"})
+    static class RepositoryCallEvent extends Event implements RegistryEvents.Timed {
+        @Label("Method")
+        String method;
+
+        private final transient Supplier<String> methodName;
+
+        RepositoryCallEvent(Supplier<String> methodName) {
+            this.methodName = methodName;
+        }
+
+        @Override
+        public void close() {
+            end();
+            if (shouldCommit()) {
+                method = methodName.get();
+                commit();
+            }
+        }
+    }
+
+    @Name("org.zalando.pazuzu.CacheStatistics")
+    @Label("Cache Statistics")
+    @Description("Hits and misses since start, reported periodically")
+    @Category({"Pazuzu Registry"})
+    @StackTrace(false)
+    @Period("10 s")
+    static class CacheStatisticsEvent extends Event {
+        @Label("Cache")
+        String cache;
+        @Label("Hits")
+        long hits;
+        @Label("Misses")
+        long misses;
+        @Label("Size")
+        @Description("Cached bytes or characters, depending on the cache")
+        long size;
+    }
+}
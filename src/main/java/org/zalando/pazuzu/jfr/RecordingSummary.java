@@ -0,0 +1,181 @@
+package org.zalando.pazuzu.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Summary of a Flight Recorder recording: events by type, and for registry events the time spent in GC pauses
+ * (of any thread) and in lock waits and I/O of the same thread while they were in progress. Nested registry
+ * events (repository calls of a resolution) are each attributed the same time.
+ * <p>
+ * Usage: java -cp target/classes org.zalando.pazuzu.jfr.RecordingSummary pazuzu.jfr
+ */
+public final class RecordingSummary {
+
+    static final String REGISTRY_EVENTS = "org.zalando.pazuzu.";
+
+    private static final Set<String> GC_PAUSES = new HashSet<>(Arrays.asList("jdk.GCPhasePause"));
+    private static final Set<String> LOCKS = new HashSet<>(Arrays.asList(
+            "jdk.JavaMonitorEnter", "jdk.JavaMonitorWait", "jdk.ThreadPark"));
+    private static final Set<String> IO = new HashSet<>(Arrays.asList(
+            "jdk.SocketRead", "jdk.SocketWrite", "jdk.FileRead", "jdk.FileWrite"));
+
+    private final Map<String, Totals> types = new TreeMap<>();
+    private final Map<String, Overlaps> operations = new TreeMap<>();
+
+    private RecordingSummary() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: RecordingSummary <recording.jfr>");
+            System.exit(2);
+        }
+        read(Paths.get(args[0])).print(System.out);
+    }
+
+    public static RecordingSummary read(Path recording) throws IOException {
+        final RecordingSummary summary = new RecordingSummary();
+        final List<Interval> registry = new ArrayList<>();
+        final List<Interval> gcPauses = new ArrayList<>();
+        final Map<Long, List<Interval>> locks = new HashMap<>();
+        final Map<Long, List<Interval>> io = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                final RecordedEvent event = file.readEvent();
+                final String type = event.getEventType().getName();
+                final Interval interval = new Interval(type, event);
+                summary.types.computeIfAbsent(type, t -> new Totals()).add(interval.duration());
+                if (type.startsWith(REGISTRY_EVENTS)) {
+                    registry.add(interval);
+                } else if (GC_PAUSES.contains(type)) {
+                    gcPauses.add(interval);
+                } else if (LOCKS.contains(type)) {
+                    locks.computeIfAbsent(interval.thread, t -> new ArrayList<>()).add(interval);
+                } else if (IO.contains(type)) {
+                    io.computeIfAbsent(interval.thread, t -> new ArrayList<>()).add(interval);
+                }
+            }
+        }
+        gcPauses.sort(Interval.BY_START);
+        locks.values().forEach(l -> l.sort(Interval.BY_START));
+        io.values().forEach(l -> l.sort(Interval.BY_START));
+        for (Interval event : registry) {
+            final Overlaps overlaps = summary.operations.computeIfAbsent(event.type, t -> new Overlaps());
+            ++overlaps.count;
+            overlaps.nanos += event.duration();
+            overlaps.gcPauseNanos += event.overlap(gcPauses);
+            overlaps.lockNanos += event.overlap(locks.get(event.thread));
+            overlaps.ioNanos += event.overlap(io.get(event.thread));
+        }
+        return summary;
+    }
+
+    public long getCount(String eventType) {
+        final Totals totals = types.get(eventType);
+        return null == totals ? 0 : totals.count;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-50s %10s %12s %10s%n", "Event type", "Count", "Total ms", "Max ms");
+        types.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, Totals> e) -> e.getValue().count).reversed())
+                .forEach(e -> out.printf("%-50s %10d %12.1f %10.1f%n",
+                        e.getKey(), e.getValue().count, millis(e.getValue().nanos), millis(e.getValue().maxNanos)));
+        if (!operations.isEmpty()) {
+            out.println();
+            out.printf("%-50s %10s %12s %12s %10s %10s%n", "Registry operation", "Count", "Total ms", "GC pause ms",
+                    "Lock ms", "I/O ms");
+            operations.forEach((type, o) -> out.printf("%-50s %10d %12.1f %12.1f %10.1f %10.1f%n",
+                    type, o.count, millis(o.nanos), millis(o.gcPauseNanos), millis(o.lockNanos), millis(o.ioNanos)));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static final class Totals {
+        private long count;
+        private long nanos;
+        private long maxNanos;
+
+        private void add(long duration) {
+            ++count;
+            nanos += duration;
+            maxNanos = Math.max(maxNanos, duration);
+        }
+    }
+
+    private static final class Overlaps {
+        private long count;
+        private long nanos;
+        private long gcPauseNanos;
+        private long lockNanos;
+        private long ioNanos;
+    }
+
+    private static final class Interval {
+        private static final Comparator<Interval> BY_START = Comparator.comparingLong(i -> i.start);
+
+        private final String type;
+        private final long thread;
+        private final long start;
+        private final long end;
+
+        private Interval(String type, RecordedEvent event) {
+            this.type = type;
+            this.thread = null == event.getThread() ? -1 : event.getThread().getJavaThreadId();
+            this.start = nanos(event.getStartTime());
+            this.end = nanos(event.getEndTime());
+        }
+
+        private long duration() {
+            return end - start;
+        }
+
+        /**
+         * @param sorted Intervals that do not overlap each other, by start
+         */
+        private long overlap(List<Interval> sorted) {
+            if (null == sorted) {
+                return 0;
+            }
+            int low = 0;
+            int high = sorted.size();
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (sorted.get(middle).start < start) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            // The one that started before may still be in progress
+            long result = 0;
+            for (int i = Math.max(0, low - 1); i < sorted.size() && sorted.get(i).start < end; ++i) {
+                result += Math.max(0, Math.min(end, sorted.get(i).end) - Math.max(start, sorted.get(i).start));
+            }
+            return result;
+        }
+    }
+}
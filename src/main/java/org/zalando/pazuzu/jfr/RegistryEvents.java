@@ -0,0 +1,154 @@
+package org.zalando.pazuzu.jfr;
+
+import org.slf4j.LoggerFactory;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Java Flight Recorder events of registry operations, named org.zalando.pazuzu.*. Events cost next to nothing
+ * while no recording enables them, see src/main/resources/jfr/pazuzu.jfc for the recording settings and
+ * {@link RecordingSummary} for reading recordings.
+ * <p>
+ * Only {@link JfrRecorder} refers to jdk.jfr, it is loaded by name, so on JVMs without Flight Recorder (OpenJDK
+ * 8 before update 262) the events are simply not recorded.
+ */
+public final class RegistryEvents {
+
+    private static final Recorder RECORDER = createRecorder();
+
+    private RegistryEvents() {
+    }
+
+    /**
+     * Event in progress, committed when closed if a recording enables it and it took longer than the threshold.
+     */
+    public interface Timed extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public interface Resolution extends Timed {
+        void closure(int size);
+
+        void sorted(long nanos);
+    }
+
+    public interface CycleCheck extends Timed {
+        void cycle(boolean found);
+    }
+
+    public interface TagUpsert extends Timed {
+        void created(int count);
+    }
+
+    public static boolean isAvailable() {
+        return RECORDER != Noop.INSTANCE;
+    }
+
+    /**
+     * Loading and sorting of the closure of requested features.
+     */
+    public static Resolution resolution(int roots, ResolutionOrder order) {
+        return RECORDER.resolution(roots, order.getName());
+    }
+
+    /**
+     * Check that new dependencies of an updated feature do not depend on the feature itself.
+     */
+    public static CycleCheck cycleCheck(String feature, int dependencies) {
+        return RECORDER.cycleCheck(feature, dependencies);
+    }
+
+    public static TagUpsert tagUpsert(int tags) {
+        return RECORDER.tagUpsert(tags);
+    }
+
+    /**
+     * @param method Evaluated only for events that are committed
+     */
+    public static Timed repositoryCall(Supplier<String> method) {
+        return RECORDER.repositoryCall(method);
+    }
+
+    /**
+     * Registers cache statistics, reported periodically. Cache registered under the same name replaces the previous
+     * one.
+     */
+    public static void registerCache(String name, LongSupplier hits, LongSupplier misses, LongSupplier size) {
+        RECORDER.registerCache(name, hits, misses, size);
+    }
+
+    private static Recorder createRecorder() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return (Recorder) Class.forName(RegistryEvents.class.getPackage().getName() + ".JfrRecorder").newInstance();
+        } catch (ClassNotFoundException e) {
+            return Noop.INSTANCE;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LoggerFactory.getLogger(RegistryEvents.class).warn("Flight Recorder events are disabled", e);
+            return Noop.INSTANCE;
+        }
+    }
+
+    interface Recorder {
+        Resolution resolution(int roots, String order);
+
+        CycleCheck cycleCheck(String feature, int dependencies);
+
+        TagUpsert tagUpsert(int tags);
+
+        Timed repositoryCall(Supplier<String> method);
+
+        void registerCache(String name, LongSupplier hits, LongSupplier misses, LongSupplier size);
+    }
+
+    private enum Noop implements Recorder, Resolution, CycleCheck, TagUpsert {
+        INSTANCE;
+
+        @Override
+        public Resolution resolution(int roots, String order) {
+            return this;
+        }
+
+        @Override
+        public CycleCheck cycleCheck(String feature, int dependencies) {
+            return this;
+        }
+
+        @Override
+        public TagUpsert tagUpsert(int tags) {
+            return this;
+        }
+
+        @Override
+        public Timed repositoryCall(Supplier<String> method) {
+            return this;
+        }
+
+        @Override
+        public void registerCache(String name, LongSupplier hits, LongSupplier misses, LongSupplier size) {
+        }
+
+        @Override
+        public void closure(int size) {
+        }
+
+        @Override
+        public void sorted(long nanos) {
+        }
+
+        @Override
+        public void cycle(boolean found) {
+        }
+
+        @Override
+        public void created(int count) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.zalando.pazuzu.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.zalando.pazuzu.tracing.TracingAspect;
+
+/**
+ * Repository call events, see {@link RegistryEvents#repositoryCall}.
+ */
+@Aspect
+@Component
+public class RepositoryEventsAspect {
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object recordRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!RegistryEvents.isAvailable()) {
+            return joinPoint.proceed();
+        }
+        try (RegistryEvents.Timed ignored = RegistryEvents.repositoryCall(() -> TracingAspect.repositoryMethod(joinPoint))) {
+            return joinPoint.proceed();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.zalando.pazuzu.resolution;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.zalando.pazuzu.docker.DockerfileDto;
+import org.zalando.pazuzu.exception.ErrorDto;
+
+import java.util.List;
+
+/**
+ * Result of one feature set of a batch resolution: either features, Dockerfile or error.
+ *
+ * @param <F> Representation of features
+ */
+public class ResolutionDto<F> {
+    @JsonProperty("index")
+    private int index;
+    @JsonProperty("features")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<F> features;
+    @JsonProperty("dockerfile")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private DockerfileDto dockerfile;
+    @JsonProperty("error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ErrorDto error;
+
+    public ResolutionDto() {
+    }
+
+    ResolutionDto(int index, ResolutionDto<F> other) {
+        this.index = index;
+        this.features = other.features;
+        this.dockerfile = other.dockerfile;
+        this.error = other.error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public List<F> getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(List<F> features) {
+        this.features = features;
+    }
+
+    public DockerfileDto getDockerfile() {
+        return dockerfile;
+    }
+
+    public void setDockerfile(DockerfileDto dockerfile) {
+        this.dockerfile = dockerfile;
+    }
+
+    public ErrorDto getError() {
+        return error;
+    }
+
+    public void setError(ErrorDto error) {
+        this.error = error;
+    }
+}
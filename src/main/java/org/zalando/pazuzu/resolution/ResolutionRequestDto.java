@@ -0,0 +1,52 @@
+package org.zalando.pazuzu.resolution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResolutionRequestDto {
+    @JsonProperty("feature_sets")
+    private List<List<String>> featureSets;
+    @JsonProperty("order")
+    private String order;
+    @JsonProperty("dockerfile")
+    private boolean dockerfile;
+    @JsonProperty("optimize")
+    private boolean optimize;
+
+    public List<List<String>> getFeatureSets() {
+        if (null == featureSets) {
+            featureSets = new ArrayList<>();
+        }
+        return featureSets;
+    }
+
+    public void setFeatureSets(List<List<String>> featureSets) {
+        this.featureSets = featureSets;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+
+    public boolean isDockerfile() {
+        return dockerfile;
+    }
+
+    public void setDockerfile(boolean dockerfile) {
+        this.dockerfile = dockerfile;
+    }
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+}
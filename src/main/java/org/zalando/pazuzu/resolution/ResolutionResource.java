@@ -0,0 +1,79 @@
+package org.zalando.pazuzu.resolution;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.FeatureJsonCache;
+import org.zalando.pazuzu.feature.JsonFragment;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/resolutions")
+public class ResolutionResource {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ResolutionService resolutionService;
+    private final FeatureJsonCache featureJsonCache;
+    private final ObjectMapper objectMapper;
+    private final int maxFeatureSets;
+
+    @Autowired
+    public ResolutionResource(ResolutionService resolutionService, FeatureJsonCache featureJsonCache, ObjectMapper objectMapper,
+                              @Value("${pazuzu.resolution.max-feature-sets:1000}") int maxFeatureSets) {
+        this.resolutionService = resolutionService;
+        this.featureJsonCache = featureJsonCache;
+        this.objectMapper = objectMapper;
+        this.maxFeatureSets = maxFeatureSets;
+    }
+
+    @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<ResolutionDto<JsonFragment>> resolve(@RequestBody ResolutionRequestDto request) throws ServiceException {
+        final ResolutionOrder order = validate(request);
+        final List<ResolutionDto<JsonFragment>> result = new ArrayList<>();
+        resolutionService.resolve(request.getFeatureSets(), order, request.isDockerfile(), request.isOptimize(),
+                featureJsonCache::ofShort, result::add);
+        return result;
+    }
+
+    /**
+     * Same results as JSON lines, each one is written as soon as it is resolved.
+     */
+    @RequestMapping(method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public void stream(@RequestBody ResolutionRequestDto request, HttpServletResponse response) throws ServiceException, IOException {
+        final ResolutionOrder order = validate(request);
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        final OutputStream out = response.getOutputStream();
+        resolutionService.resolve(request.getFeatureSets(), order, request.isDockerfile(), request.isOptimize(),
+                featureJsonCache::ofShort, result -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // Errors are reported before streaming starts, later only failures of single sets are possible
+    private ResolutionOrder validate(ResolutionRequestDto request) throws BadRequestException {
+        if (request.getFeatureSets().size() > maxFeatureSets) {
+            throw new BadRequestException(Error.RESOLUTION_BATCH_TOO_LARGE, "At most " + maxFeatureSets + " feature sets are allowed");
+        }
+        return ResolutionOrder.of(request.getOrder());
+    }
+}
@@ -0,0 +1,89 @@
+package org.zalando.pazuzu.resolution;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.zalando.pazuzu.docker.DockerfileService;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.ErrorDto;
+import org.zalando.pazuzu.feature.Feature;
+import org.zalando.pazuzu.feature.FeatureService;
+import org.zalando.pazuzu.feature.FeatureUsage;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class ResolutionService {
+
+    private final FeatureService featureService;
+    private final DockerfileService dockerfileService;
+    private final FeatureUsage featureUsage;
+
+    @Autowired
+    public ResolutionService(FeatureService featureService, DockerfileService dockerfileService, FeatureUsage featureUsage) {
+        this.featureService = featureService;
+        this.dockerfileService = dockerfileService;
+        this.featureUsage = featureUsage;
+    }
+
+    /**
+     * Resolves many feature sets at once. Features of all sets are loaded and sorted together with all their
+     * dependencies, then closure of every feature is built once from closures of its dependencies and shared by
+     * the sets that reach it. Topological sort that always takes the least ready feature keeps this order for any
+     * closed subset, so result of a set is the union order restricted to the set's closure. Each set is counted
+     * as a separate resolution in {@link FeatureUsage}.
+     *
+     * @param featureSets Names of requested features of each set
+     * @param dockerfile  Whether to build Dockerfile instead of listing features, see {@link DockerfileService#assemble}
+     * @param converter   Representation of listed features
+     * @param sink        Receives result of each set as soon as it is resolved, in the order of sets
+     */
+    @Transactional(readOnly = true)
+    public <T> void resolve(List<List<String>> featureSets, ResolutionOrder order, boolean dockerfile, boolean optimize,
+                            Function<Feature, T> converter, Consumer<ResolutionDto<T>> sink) {
+        final Map<String, Feature> requested = featureService.findFeatures(featureSets.stream()
+                .flatMap(List::stream).collect(Collectors.toSet()));
+        final List<Feature> sorted = featureService.getSortedClosure(requested.values(), order);
+        // Dependencies go first, their closures are known when feature is reached
+        final Map<Feature, BitSet> closures = new HashMap<>();
+        for (int i = 0; i < sorted.size(); ++i) {
+            final BitSet closure = new BitSet(i + 1);
+            closure.set(i);
+            sorted.get(i).getDependencies().forEach(d -> closure.or(closures.get(d)));
+            closures.put(sorted.get(i), closure);
+        }
+        // Build tools often ask for the same set for several targets
+        final Map<Set<String>, ResolutionDto<T>> resolved = new HashMap<>();
+        for (int index = 0; index < featureSets.size(); ++index) {
+            final ResolutionDto<T> result = resolved.computeIfAbsent(new TreeSet<>(featureSets.get(index)), names -> {
+                final List<String> unknown = names.stream().filter(n -> !requested.containsKey(n)).collect(Collectors.toList());
+                if (!unknown.isEmpty()) {
+                    final ResolutionDto<T> error = new ResolutionDto<>();
+                    error.setError(new ErrorDto(Error.FEATURE_NOT_FOUND, "Unknown features: " + String.join(", ", unknown)));
+                    return error;
+                }
+                final BitSet closure = new BitSet(sorted.size());
+                names.forEach(n -> closure.or(closures.get(requested.get(n))));
+                final List<Feature> features = closure.stream().mapToObj(sorted::get).collect(Collectors.toList());
+                featureUsage.record(features);
+                final ResolutionDto<T> success = new ResolutionDto<>();
+                if (dockerfile) {
+                    success.setDockerfile(dockerfileService.assemble(features, optimize, order));
+                } else {
+                    success.setFeatures(features.stream().map(converter).collect(Collectors.toList()));
+                }
+                return success;
+            });
+            sink.accept(new ResolutionDto<>(index, result));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.zalando.pazuzu.serving;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.MethodNotAllowedException;
+
+/**
+ * Rejects all modifications, snapshot instances only change by loading a new snapshot.
+ */
+@RestController
+public class ReadOnlyResource {
+
+    @RequestMapping(value = "/api/**", method = {RequestMethod.POST, RequestMethod.PUT, RequestMethod.PATCH, RequestMethod.DELETE})
+    public void rejectModification() throws MethodNotAllowedException {
+        throw new MethodNotAllowedException(Error.REGISTRY_READ_ONLY);
+    }
+}
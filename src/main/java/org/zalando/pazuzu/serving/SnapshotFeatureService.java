@@ -0,0 +1,146 @@
+package org.zalando.pazuzu.serving;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.NotFoundException;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+import org.zalando.pazuzu.feature.FeaturesWithTotalCount;
+import org.zalando.pazuzu.feature.tag.TagDto;
+import org.zalando.pazuzu.snapshot.RegistrySnapshot;
+import org.zalando.pazuzu.sort.TopologicalSortCanonical;
+
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Read operations of {@link org.zalando.pazuzu.feature.FeatureService} answered from {@link RegistrySnapshot}.
+ * Every call works with one snapshot, so results stay consistent while snapshot is swapped. Features are listed
+ * in name order, which is the order of the snapshot.
+ */
+@Service
+public class SnapshotFeatureService {
+
+    private final SnapshotHolder snapshotHolder;
+
+    @Autowired
+    public SnapshotFeatureService(SnapshotHolder snapshotHolder) {
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    /**
+     * @param name Part of feature name (case insensitive), null for all features
+     */
+    public List<FeatureDto> listFeatures(String name) {
+        final RegistrySnapshot snapshot = snapshotHolder.get();
+        final String part = null == name ? null : name.toLowerCase(Locale.ROOT);
+        final List<FeatureDto> result = new ArrayList<>();
+        for (int feature = 0; feature < snapshot.getFeatureCount(); ++feature) {
+            if (null == part || snapshot.getName(feature).toLowerCase(Locale.ROOT).contains(part)) {
+                result.add(toDto(snapshot, feature));
+            }
+        }
+        return result;
+    }
+
+    public FeaturesWithTotalCount<FeatureDto> listFeatures(int offset, int limit) {
+        final RegistrySnapshot snapshot = snapshotHolder.get();
+        final List<FeatureDto> result = new ArrayList<>();
+        final int end = (int) Math.min(snapshot.getFeatureCount(), (long) offset + limit);
+        for (int feature = Math.max(0, offset); feature < end; ++feature) {
+            result.add(toDto(snapshot, feature));
+        }
+        return new FeaturesWithTotalCount<>(result, snapshot.getFeatureCount());
+    }
+
+    public FeatureFullDto getFeature(String name) throws NotFoundException {
+        final RegistrySnapshot snapshot = snapshotHolder.get();
+        final int feature = snapshot.indexOf(name);
+        if (feature < 0) {
+            throw new NotFoundException(Error.FEATURE_NOT_FOUND);
+        }
+        final FeatureFullDto result = new FeatureFullDto();
+        fill(snapshot, feature, result);
+        final IntBuffer dependencies = snapshot.getDependencies(feature);
+        while (dependencies.hasRemaining()) {
+            result.getDependencies().add(toDto(snapshot, dependencies.get()));
+        }
+        return result;
+    }
+
+    /**
+     * @return features with given names, in name order
+     */
+    public List<FeatureDto> getFeatures(List<String> names) throws BadRequestException {
+        final RegistrySnapshot snapshot = snapshotHolder.get();
+        return indexesOf(snapshot, names).stream().sorted().map(f -> toDto(snapshot, f)).collect(Collectors.toList());
+    }
+
+    /**
+     * @return given features with all their dependencies, dependencies first, ties broken by name
+     */
+    public List<FeatureDto> getSortedFeatures(List<String> names) throws BadRequestException {
+        final RegistrySnapshot snapshot = snapshotHolder.get();
+        final Set<Integer> closure = new HashSet<>();
+        final Deque<Integer> pending = new ArrayDeque<>(indexesOf(snapshot, names));
+        final Map<Integer, Set<Integer>> dependencies = new HashMap<>();
+        while (!pending.isEmpty()) {
+            final int feature = pending.pop();
+            if (closure.add(feature)) {
+                final Set<Integer> featureDependencies = new HashSet<>();
+                final IntBuffer buffer = snapshot.getDependencies(feature);
+                while (buffer.hasRemaining()) {
+                    featureDependencies.add(buffer.get());
+                }
+                dependencies.put(feature, featureDependencies);
+                pending.addAll(featureDependencies);
+            }
+        }
+        // Snapshot indexes follow name order
+        return new TopologicalSortCanonical<>(closure, dependencies::get, Comparator.<Integer>naturalOrder())
+                .getTopSorted().stream().map(f -> toDto(snapshot, f)).collect(Collectors.toList());
+    }
+
+    private static Set<Integer> indexesOf(RegistrySnapshot snapshot, List<String> names) throws BadRequestException {
+        final Set<Integer> result = new HashSet<>();
+        final List<String> unknown = new ArrayList<>();
+        for (String name : new TreeSet<>(names)) {
+            final int feature = snapshot.indexOf(name);
+            if (feature < 0) {
+                unknown.add(name);
+            } else {
+                result.add(feature);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            throw new BadRequestException(Error.FEATURE_NOT_FOUND, "Unknown features: " + String.join(", ", unknown));
+        }
+        return result;
+    }
+
+    private static FeatureDto toDto(RegistrySnapshot snapshot, int feature) {
+        final FeatureDto result = new FeatureDto();
+        fill(snapshot, feature, result);
+        return result;
+    }
+
+    private static void fill(RegistrySnapshot snapshot, int feature, FeatureDto result) {
+        result.setName(snapshot.getName(feature));
+        result.setDockerData(snapshot.getDockerData(feature));
+        result.setTestInstruction(snapshot.getTestInstruction(feature));
+        result.setDescription(snapshot.getDescription(feature));
+        List<TagDto> tags = null;
+        for (int tag = 0; tag < snapshot.getTagCount(); ++tag) {
+            if (snapshot.hasTag(feature, tag)) {
+                if (null == tags) {
+                    tags = new ArrayList<>();
+                }
+                tags.add(TagDto.ofName(snapshot.getTagName(tag)));
+            }
+        }
+        result.setTags(tags);
+    }
+}
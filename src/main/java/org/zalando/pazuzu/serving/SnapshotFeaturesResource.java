@@ -0,0 +1,64 @@
+package org.zalando.pazuzu.serving;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.zalando.pazuzu.exception.ServiceException;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+import org.zalando.pazuzu.feature.FeaturesWithTotalCount;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read endpoints of {@link org.zalando.pazuzu.feature.FeaturesResource} served from snapshot.
+ */
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/features")
+public class SnapshotFeaturesResource {
+
+    private static final String X_TOTAL_COUNT = "X-Total-Count";
+    private static final Integer TOPOLOGICAL_SORT = 1;
+    private final SnapshotFeatureService featureService;
+
+    @Autowired
+    public SnapshotFeaturesResource(SnapshotFeatureService featureService) {
+        this.featureService = featureService;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<FeatureDto> listFeatures(
+            @RequestParam(required = false, name = "name") String[] featureNames,
+            @RequestParam(required = false, name = "sorted") Integer sorting,
+            @RequestParam(required = false, name = "offset") Integer offset,
+            @RequestParam(required = false, name = "limit") Integer limit,
+            HttpServletResponse response)
+            throws ServiceException {
+        if (featureNames == null) {
+            if (offset != null && limit != null) {
+                final FeaturesWithTotalCount<FeatureDto> featuresTotalCount = featureService.listFeatures(offset, limit);
+                response.setHeader(X_TOTAL_COUNT, Long.toString(featuresTotalCount.getTotalCount()));
+                response.setHeader("Access-Control-Expose-Headers", X_TOTAL_COUNT);
+                return featuresTotalCount.getFeatures();
+            }
+            return featureService.listFeatures(null);
+        }
+        if (TOPOLOGICAL_SORT.equals(sorting)) {
+            return featureService.getSortedFeatures(Arrays.asList(featureNames));
+        }
+        return featureService.getFeatures(Arrays.asList(featureNames));
+    }
+
+    @RequestMapping(value = "/{featureName}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public FeatureFullDto getFeature(@PathVariable String featureName) throws ServiceException {
+        return featureService.getFeature(featureName);
+    }
+
+    @RequestMapping(value = "/search/{featureName}", method = RequestMethod.GET)
+    public List<FeatureDto> searchFeature(@PathVariable String featureName) {
+        return featureService.listFeatures(featureName);
+    }
+}
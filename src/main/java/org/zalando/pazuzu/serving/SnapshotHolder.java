@@ -0,0 +1,81 @@
+package org.zalando.pazuzu.serving;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zalando.pazuzu.snapshot.RegistrySnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Current registry snapshot. The file is mapped at startup (instance does not start without it) and polled
+ * for changes, replaced file is mapped and swapped in atomically. Requests that already hold the previous
+ * snapshot finish with it, a broken file or one older than the current snapshot is logged and ignored.
+ * <p>
+ * New snapshots must be written to another file and renamed over the served one: the mapping of a file that is
+ * rewritten in place changes under readers, they read torn data or crash with SIGBUS when it is truncated.
+ */
+@Component
+public class SnapshotHolder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotHolder.class);
+
+    private final Path path;
+    private volatile RegistrySnapshot snapshot;
+    // File identity and modification time of the mapped file
+    private volatile List<Object> version;
+
+    @Autowired
+    public SnapshotHolder(SnapshotServingProperties properties) throws IOException {
+        if (null == properties.getFile()) {
+            throw new IllegalStateException("pazuzu.snapshot.file is not set");
+        }
+        this.path = Paths.get(properties.getFile());
+        this.version = version();
+        this.snapshot = RegistrySnapshot.open(path);
+        LOG.info("Serving snapshot {} with {} features at change cursor {}", path, snapshot.getFeatureCount(),
+                snapshot.getChangeCursor());
+    }
+
+    public RegistrySnapshot get() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${pazuzu.snapshot.poll-interval-ms:10000}")
+    public synchronized void reload() {
+        try {
+            final List<Object> current = version();
+            if (current.equals(version)) {
+                return;
+            }
+            if (current.get(0).equals(version.get(0)) && !"null".equals(current.get(0))) {
+                LOG.error("Snapshot {} was modified in place, it must be replaced by rename", path);
+            }
+            final RegistrySnapshot next = RegistrySnapshot.open(path);
+            version = current;
+            if (next.getChangeCursor() < snapshot.getChangeCursor()) {
+                LOG.warn("Ignoring snapshot at change cursor {}, the current one is at {}", next.getChangeCursor(),
+                        snapshot.getChangeCursor());
+                return;
+            }
+            snapshot = next;
+            LOG.info("Switched to snapshot with {} features at change cursor {}", next.getFeatureCount(), next.getChangeCursor());
+        } catch (IOException e) {
+            LOG.warn("Failed to load snapshot {}, keeping the previous one", path, e);
+        }
+    }
+
+    private List<Object> version() throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Arrays.asList(Objects.toString(attributes.fileKey()), attributes.lastModifiedTime(), attributes.size());
+    }
+}
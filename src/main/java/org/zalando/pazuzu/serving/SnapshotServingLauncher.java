@@ -0,0 +1,41 @@
+package org.zalando.pazuzu.serving;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.zalando.pazuzu.admission.AdmissionControlConfiguration;
+import org.zalando.pazuzu.config.OAuthConfiguration;
+import org.zalando.pazuzu.exception.GlobalExceptionHandler;
+import org.zalando.pazuzu.tracing.TracingConfiguration;
+import org.zalando.twintip.spring.SchemaResource;
+
+/**
+ * Read-only registry instance without database: features are served from snapshot file (pazuzu.snapshot.file),
+ * see {@link SnapshotHolder}. Only this package is scanned, so none of the database backed services, Flyway or
+ * DataSource are created. Started by {@link org.zalando.pazuzu.PazuzuAppLauncher} when "snapshot" profile is
+ * active.
+ */
+@Configuration
+@EnableAutoConfiguration(exclude = {DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class, FlywayAutoConfiguration.class})
+@ComponentScan
+@Import({SchemaResource.class, GlobalExceptionHandler.class, AdmissionControlConfiguration.class, OAuthConfiguration.class,
+        TracingConfiguration.class})
+@EnableConfigurationProperties(SnapshotServingProperties.class)
+@EnableScheduling
+public class SnapshotServingLauncher {
+
+    public static final String PROFILE = "snapshot";
+
+    public static void main(final String[] args) {
+        new SpringApplicationBuilder(SnapshotServingLauncher.class).profiles(PROFILE).run(args);
+    }
+}
@@ -0,0 +1,27 @@
+package org.zalando.pazuzu.serving;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "pazuzu.snapshot")
+public class SnapshotServingProperties {
+
+    // Snapshot file, replaced by rename (never rewritten in place) by whoever delivers new snapshots
+    private String file;
+    private long pollIntervalMs = 10000;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+    }
+}
@@ -0,0 +1,232 @@
+package org.zalando.pazuzu.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.zalando.pazuzu.snapshot.SnapshotFormat.Section;
+
+/**
+ * Read-only view of a registry snapshot, see {@link SnapshotFormat}. Nothing is copied on open: sections are
+ * views of the (usually memory-mapped) buffer and values are decoded on access, so opening takes the same time
+ * for any size and the content stays off-heap. Features and tags are addressed by index, names are looked up
+ * with binary search. Instances are immutable and safe to share between threads.
+ */
+public final class RegistrySnapshot {
+
+    private final ByteBuffer buffer;
+    private final int featureCount;
+    private final int tagCount;
+    private final int snippetCount;
+    private final long changeCursor;
+    private final IntBuffer featureIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final IntBuffer dependencyOffsets;
+    private final IntBuffer dependencies;
+    private final IntBuffer topologicalOrder;
+    private final IntBuffer featureSnippets;
+    private final LongBuffer snippetOffsets;
+    private final ByteBuffer snippets;
+    private final IntBuffer tagNameOffsets;
+    private final ByteBuffer tagNames;
+    private final LongBuffer tagBitmaps;
+    private final int bitmapWords;
+
+    private RegistrySnapshot(ByteBuffer source) throws IOException {
+        this.buffer = source.duplicate();
+        if (buffer.capacity() < SnapshotFormat.HEADER_SIZE || buffer.getInt(0) != SnapshotFormat.MAGIC) {
+            throw new IOException("Not a registry snapshot");
+        }
+        if (buffer.getInt(4) != SnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+        }
+        if (buffer.getLong(SnapshotFormat.FILE_LENGTH) != buffer.capacity()) {
+            throw new IOException("Snapshot is truncated: expected " + buffer.getLong(SnapshotFormat.FILE_LENGTH)
+                    + " bytes, found " + buffer.capacity());
+        }
+        featureCount = buffer.getInt(SnapshotFormat.FEATURE_COUNT);
+        tagCount = buffer.getInt(SnapshotFormat.TAG_COUNT);
+        snippetCount = buffer.getInt(SnapshotFormat.SNIPPET_COUNT);
+        changeCursor = buffer.getLong(SnapshotFormat.CHANGE_CURSOR);
+        bitmapWords = SnapshotFormat.bitmapWords(featureCount);
+
+        featureIds = section(Section.FEATURE_IDS).asIntBuffer();
+        nameOffsets = section(Section.NAME_OFFSETS).asIntBuffer();
+        names = section(Section.NAME_DATA);
+        dependencyOffsets = section(Section.DEPENDENCY_OFFSETS).asIntBuffer();
+        dependencies = section(Section.DEPENDENCIES).asIntBuffer();
+        topologicalOrder = section(Section.TOPOLOGICAL_ORDER).asIntBuffer();
+        featureSnippets = section(Section.FEATURE_SNIPPETS).asIntBuffer();
+        snippetOffsets = section(Section.SNIPPET_OFFSETS).asLongBuffer();
+        snippets = section(Section.SNIPPET_DATA);
+        tagNameOffsets = section(Section.TAG_NAME_OFFSETS).asIntBuffer();
+        tagNames = section(Section.TAG_NAME_DATA);
+        tagBitmaps = section(Section.TAG_BITMAPS).asLongBuffer();
+    }
+
+    /**
+     * Maps snapshot file into memory. Mapping stays valid after the file is deleted or another file is renamed
+     * over it, but not when the file is modified in place: readers see the new bytes, or fail when it shrinks.
+     */
+    public static RegistrySnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new RegistrySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static RegistrySnapshot of(ByteBuffer buffer) throws IOException {
+        return new RegistrySnapshot(buffer);
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    public int getSnippetCount() {
+        return snippetCount;
+    }
+
+    /**
+     * @return last change log id included into the snapshot, changes after it are not reflected
+     */
+    public long getChangeCursor() {
+        return changeCursor;
+    }
+
+    public int getFeatureId(int feature) {
+        return featureIds.get(feature);
+    }
+
+    public String getName(int feature) {
+        return string(names, nameOffsets.get(feature), nameOffsets.get(feature + 1));
+    }
+
+    /**
+     * @return index of feature with given name, or -1
+     */
+    public int indexOf(String name) {
+        return search(name, featureCount, nameOffsets, names);
+    }
+
+    /**
+     * @return indexes of direct dependencies, view of the snapshot
+     */
+    public IntBuffer getDependencies(int feature) {
+        return slice(dependencies, dependencyOffsets.get(feature), dependencyOffsets.get(feature + 1));
+    }
+
+    /**
+     * @return indexes of all features, dependencies first, ties broken by name
+     */
+    public IntBuffer getTopologicalOrder() {
+        return slice(topologicalOrder, 0, featureCount);
+    }
+
+    public String getDockerData(int feature) {
+        return snippet(feature, SnapshotFormat.DOCKER_DATA);
+    }
+
+    public String getTestInstruction(int feature) {
+        return snippet(feature, SnapshotFormat.TEST_INSTRUCTION);
+    }
+
+    public String getDescription(int feature) {
+        return snippet(feature, SnapshotFormat.DESCRIPTION);
+    }
+
+    public String getTagName(int tag) {
+        return string(tagNames, tagNameOffsets.get(tag), tagNameOffsets.get(tag + 1));
+    }
+
+    /**
+     * @return index of tag with given name, or -1
+     */
+    public int indexOfTag(String name) {
+        return search(name, tagCount, tagNameOffsets, tagNames);
+    }
+
+    public boolean hasTag(int feature, int tag) {
+        return (tagBitmaps.get(tag * bitmapWords + feature / Long.SIZE) & (1L << (feature % Long.SIZE))) != 0;
+    }
+
+    /**
+     * @return bitmap of features with given tag (bit i of word i / 64), view of the snapshot
+     */
+    public LongBuffer getTagBitmap(int tag) {
+        final LongBuffer result = tagBitmaps.duplicate();
+        result.position(tag * bitmapWords).limit((tag + 1) * bitmapWords);
+        return result.slice();
+    }
+
+    private String snippet(int feature, int field) {
+        final int snippet = featureSnippets.get(feature * SnapshotFormat.SNIPPETS_PER_FEATURE + field);
+        if (snippet == SnapshotFormat.NO_SNIPPET) {
+            return null;
+        }
+        return string(snippets, (int) snippetOffsets.get(snippet), (int) snippetOffsets.get(snippet + 1));
+    }
+
+    private ByteBuffer section(Section section) {
+        final long offset = buffer.getLong(SnapshotFormat.SECTION_OFFSETS + section.ordinal() * Long.BYTES);
+        final long end = section.ordinal() + 1 < Section.values().length
+                ? buffer.getLong(SnapshotFormat.SECTION_OFFSETS + (section.ordinal() + 1) * Long.BYTES)
+                : buffer.capacity();
+        final ByteBuffer result = buffer.duplicate();
+        result.position((int) offset).limit((int) end);
+        return result.slice();
+    }
+
+    private static IntBuffer slice(IntBuffer source, int from, int to) {
+        final IntBuffer result = source.duplicate();
+        result.position(from).limit(to);
+        return result.slice();
+    }
+
+    private static String string(ByteBuffer source, int from, int to) {
+        final byte[] bytes = new byte[to - from];
+        final ByteBuffer view = source.duplicate();
+        view.position(from);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int search(String name, int count, IntBuffer offsets, ByteBuffer data) {
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int diff = compare(data, offsets.get(middle), offsets.get(middle + 1), key);
+            if (diff < 0) {
+                low = middle + 1;
+            } else if (diff > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // Same order as SnapshotFormat.compare, without copying stored bytes
+    private static int compare(ByteBuffer data, int from, int to, byte[] key) {
+        final int length = Math.min(to - from, key.length);
+        for (int i = 0; i < length; ++i) {
+            final int diff = (data.get(from + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (to - from) - key.length;
+    }
+}
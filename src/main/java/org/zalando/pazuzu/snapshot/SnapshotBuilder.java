@@ -0,0 +1,235 @@
+package org.zalando.pazuzu.snapshot;
+
+import org.zalando.pazuzu.sort.TopologicalSortCanonical;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.zalando.pazuzu.snapshot.SnapshotFormat.Section;
+
+/**
+ * Collects registry content (by database ids) and lays it out in {@link SnapshotFormat}.
+ */
+public class SnapshotBuilder {
+
+    private final Map<Integer, FeatureEntry> features = new HashMap<>();
+    private final Map<Integer, String> tags = new HashMap<>();
+    private final List<int[]> dependencies = new ArrayList<>();
+    private final List<int[]> featureTags = new ArrayList<>();
+    private long changeCursor;
+
+    public SnapshotBuilder setChangeCursor(long changeCursor) {
+        this.changeCursor = changeCursor;
+        return this;
+    }
+
+    public SnapshotBuilder addFeature(int id, String name, String dockerData, String testInstruction, String description) {
+        features.put(id, new FeatureEntry(id, name, new String[]{dockerData, testInstruction, description}));
+        return this;
+    }
+
+    public SnapshotBuilder addDependency(int featureId, int dependencyId) {
+        dependencies.add(new int[]{featureId, dependencyId});
+        return this;
+    }
+
+    public SnapshotBuilder addTag(int tagId, String name) {
+        tags.put(tagId, name);
+        return this;
+    }
+
+    public SnapshotBuilder addFeatureTag(int featureId, int tagId) {
+        featureTags.add(new int[]{featureId, tagId});
+        return this;
+    }
+
+    /**
+     * @return heap buffer with the snapshot, positioned at 0
+     * @throws IllegalStateException if snapshot does not fit into 2 GB or references unknown features or tags
+     */
+    public ByteBuffer build() {
+        final List<FeatureEntry> ordered = new ArrayList<>(features.values());
+        ordered.sort((a, b) -> SnapshotFormat.compare(a.name, b.name));
+        final Map<Integer, Integer> featureIndex = new HashMap<>();
+        for (int i = 0; i < ordered.size(); ++i) {
+            featureIndex.put(ordered.get(i).id, i);
+        }
+        final int n = ordered.size();
+
+        final List<Set<Integer>> adjacency = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            adjacency.add(new TreeSet<>());
+        }
+        for (int[] edge : dependencies) {
+            adjacency.get(index(featureIndex, edge[0], "feature")).add(index(featureIndex, edge[1], "feature"));
+        }
+        final List<Integer> topological = new TopologicalSortCanonical<>(featureIndex.values(), adjacency::get,
+                Comparator.<Integer>naturalOrder()).getTopSorted();
+
+        final Map<String, Integer> snippetIndex = new HashMap<>();
+        final List<byte[]> snippets = new ArrayList<>();
+        final int[] featureSnippets = new int[n * SnapshotFormat.SNIPPETS_PER_FEATURE];
+        for (int i = 0; i < n; ++i) {
+            final String[] texts = ordered.get(i).snippets;
+            for (int field = 0; field < SnapshotFormat.SNIPPETS_PER_FEATURE; ++field) {
+                final String text = texts[field];
+                int snippet = SnapshotFormat.NO_SNIPPET;
+                if (null != text) {
+                    snippet = snippetIndex.computeIfAbsent(text, t -> {
+                        snippets.add(t.getBytes(StandardCharsets.UTF_8));
+                        return snippets.size() - 1;
+                    });
+                }
+                featureSnippets[i * SnapshotFormat.SNIPPETS_PER_FEATURE + field] = snippet;
+            }
+        }
+
+        final List<Map.Entry<Integer, byte[]>> orderedTags = new ArrayList<>();
+        tags.forEach((id, name) -> orderedTags.add(new AbstractMap.SimpleEntry<>(id, name.getBytes(StandardCharsets.UTF_8))));
+        orderedTags.sort((a, b) -> SnapshotFormat.compare(a.getValue(), b.getValue()));
+        final Map<Integer, Integer> tagIndex = new HashMap<>();
+        for (int i = 0; i < orderedTags.size(); ++i) {
+            tagIndex.put(orderedTags.get(i).getKey(), i);
+        }
+        final int words = SnapshotFormat.bitmapWords(n);
+        final long[] bitmaps = new long[orderedTags.size() * words];
+        for (int[] featureTag : featureTags) {
+            final int feature = index(featureIndex, featureTag[0], "feature");
+            bitmaps[index(tagIndex, featureTag[1], "tag") * words + feature / Long.SIZE] |= 1L << (feature % Long.SIZE);
+        }
+
+        final long[] sizes = new long[Section.values().length];
+        sizes[Section.FEATURE_IDS.ordinal()] = (long) n * Integer.BYTES;
+        sizes[Section.NAME_OFFSETS.ordinal()] = (long) (n + 1) * Integer.BYTES;
+        sizes[Section.NAME_DATA.ordinal()] = ordered.stream().mapToLong(f -> f.name.length).sum();
+        sizes[Section.DEPENDENCY_OFFSETS.ordinal()] = (long) (n + 1) * Integer.BYTES;
+        sizes[Section.DEPENDENCIES.ordinal()] = adjacency.stream().mapToLong(Set::size).sum() * Integer.BYTES;
+        sizes[Section.TOPOLOGICAL_ORDER.ordinal()] = (long) n * Integer.BYTES;
+        sizes[Section.FEATURE_SNIPPETS.ordinal()] = (long) featureSnippets.length * Integer.BYTES;
+        sizes[Section.SNIPPET_OFFSETS.ordinal()] = (long) (snippets.size() + 1) * Long.BYTES;
+        sizes[Section.SNIPPET_DATA.ordinal()] = snippets.stream().mapToLong(s -> s.length).sum();
+        sizes[Section.TAG_NAME_OFFSETS.ordinal()] = (long) (orderedTags.size() + 1) * Integer.BYTES;
+        sizes[Section.TAG_NAME_DATA.ordinal()] = orderedTags.stream().mapToLong(t -> t.getValue().length).sum();
+        sizes[Section.TAG_BITMAPS.ordinal()] = (long) bitmaps.length * Long.BYTES;
+        final long[] offsets = new long[sizes.length];
+        long length = SnapshotFormat.HEADER_SIZE;
+        for (int i = 0; i < sizes.length; ++i) {
+            offsets[i] = SnapshotFormat.align(length);
+            length = offsets[i] + sizes[i];
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot does not fit into single mapped buffer: " + length + " bytes");
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        buffer.putInt(SnapshotFormat.MAGIC).putInt(SnapshotFormat.VERSION)
+                .putInt(n).putInt(orderedTags.size()).putInt(snippets.size()).putInt(0)
+                .putLong(changeCursor).putLong(length);
+        for (long offset : offsets) {
+            buffer.putLong(offset);
+        }
+
+        position(buffer, offsets, Section.FEATURE_IDS);
+        ordered.forEach(f -> buffer.putInt(f.id));
+        position(buffer, offsets, Section.NAME_OFFSETS);
+        int nameOffset = 0;
+        for (FeatureEntry feature : ordered) {
+            buffer.putInt(nameOffset);
+            nameOffset += feature.name.length;
+        }
+        buffer.putInt(nameOffset);
+        position(buffer, offsets, Section.NAME_DATA);
+        ordered.forEach(f -> buffer.put(f.name));
+        position(buffer, offsets, Section.DEPENDENCY_OFFSETS);
+        int dependencyOffset = 0;
+        for (Set<Integer> featureDependencies : adjacency) {
+            buffer.putInt(dependencyOffset);
+            dependencyOffset += featureDependencies.size();
+        }
+        buffer.putInt(dependencyOffset);
+        position(buffer, offsets, Section.DEPENDENCIES);
+        adjacency.forEach(d -> d.forEach(buffer::putInt));
+        position(buffer, offsets, Section.TOPOLOGICAL_ORDER);
+        topological.forEach(buffer::putInt);
+        position(buffer, offsets, Section.FEATURE_SNIPPETS);
+        for (int snippet : featureSnippets) {
+            buffer.putInt(snippet);
+        }
+        position(buffer, offsets, Section.SNIPPET_OFFSETS);
+        long snippetOffset = 0;
+        for (byte[] snippet : snippets) {
+            buffer.putLong(snippetOffset);
+            snippetOffset += snippet.length;
+        }
+        buffer.putLong(snippetOffset);
+        position(buffer, offsets, Section.SNIPPET_DATA);
+        snippets.forEach(buffer::put);
+        position(buffer, offsets, Section.TAG_NAME_OFFSETS);
+        int tagOffset = 0;
+        for (Map.Entry<Integer, byte[]> tag : orderedTags) {
+            buffer.putInt(tagOffset);
+            tagOffset += tag.getValue().length;
+        }
+        buffer.putInt(tagOffset);
+        position(buffer, offsets, Section.TAG_NAME_DATA);
+        orderedTags.forEach(t -> buffer.put(t.getValue()));
+        position(buffer, offsets, Section.TAG_BITMAPS);
+        for (long word : bitmaps) {
+            buffer.putLong(word);
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Writes snapshot to temporary file next to the target and moves it into place, so that readers never see
+     * partially written file.
+     */
+    public void writeTo(Path path) throws IOException {
+        final ByteBuffer buffer = build();
+        final Path absolute = path.toAbsolutePath();
+        final Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void position(ByteBuffer buffer, long[] offsets, Section section) {
+        buffer.position((int) offsets[section.ordinal()]);
+    }
+
+    private static int index(Map<Integer, Integer> indexes, int id, String kind) {
+        final Integer index = indexes.get(id);
+        if (null == index) {
+            throw new IllegalStateException("Unknown " + kind + " id " + id);
+        }
+        return index;
+    }
+
+    private static final class FeatureEntry {
+        private final int id;
+        private final byte[] name;
+        private final String[] snippets;
+
+        private FeatureEntry(int id, String name, String[] snippets) {
+            this.id = id;
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.snippets = snippets;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.zalando.pazuzu.snapshot;
+
+/**
+ * Layout of registry snapshot file, all numbers are big-endian.
+ * <pre>
+ * header   int magic "PZSN", int version, int feature count, int tag count, int snippet count, int reserved,
+ *          long change cursor, long file length, then long offset of every section in {@link Section} order
+ * sections 8 byte aligned:
+ *   FEATURE_IDS         int[features]       database ids
+ *   NAME_OFFSETS        int[features + 1]   into NAME_DATA, features are ordered by UTF-8 bytes of name
+ *   NAME_DATA           bytes
+ *   DEPENDENCY_OFFSETS  int[features + 1]   into DEPENDENCIES (CSR adjacency)
+ *   DEPENDENCIES        int[]               feature indexes of direct dependencies
+ *   TOPOLOGICAL_ORDER   int[features]       feature indexes, dependencies first
+ *   FEATURE_SNIPPETS    int[features * 3]   snippet indexes of docker data, test instruction, description, -1 if none
+ *   SNIPPET_OFFSETS     long[snippets + 1]  into SNIPPET_DATA
+ *   SNIPPET_DATA        bytes               UTF-8 text of distinct snippets
+ *   TAG_NAME_OFFSETS    int[tags + 1]       into TAG_NAME_DATA, tags are ordered by UTF-8 bytes of name
+ *   TAG_NAME_DATA       bytes
+ *   TAG_BITMAPS         long[tags * words]  features of each tag, words = ceil(features / 64)
+ * </pre>
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x505A534E;
+    static final int VERSION = 1;
+
+    static final int FEATURE_COUNT = 8;
+    static final int TAG_COUNT = 12;
+    static final int SNIPPET_COUNT = 16;
+    static final int CHANGE_CURSOR = 24;
+    static final int FILE_LENGTH = 32;
+    static final int SECTION_OFFSETS = 40;
+    static final int HEADER_SIZE = SECTION_OFFSETS + Section.values().length * Long.BYTES;
+
+    static final int DOCKER_DATA = 0;
+    static final int TEST_INSTRUCTION = 1;
+    static final int DESCRIPTION = 2;
+    static final int SNIPPETS_PER_FEATURE = 3;
+    static final int NO_SNIPPET = -1;
+
+    enum Section {
+        FEATURE_IDS, NAME_OFFSETS, NAME_DATA, DEPENDENCY_OFFSETS, DEPENDENCIES, TOPOLOGICAL_ORDER,
+        FEATURE_SNIPPETS, SNIPPET_OFFSETS, SNIPPET_DATA, TAG_NAME_OFFSETS, TAG_NAME_DATA, TAG_BITMAPS
+    }
+
+    private SnapshotFormat() {
+    }
+
+    static int bitmapWords(int features) {
+        return (features + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Order of UTF-8 bytes compared as unsigned, the order names are stored in.
+     */
+    static int compare(byte[] a, byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; ++i) {
+            final int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+}
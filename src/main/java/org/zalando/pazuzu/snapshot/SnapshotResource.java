@@ -0,0 +1,39 @@
+package org.zalando.pazuzu.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+@CrossOrigin
+@RestController
+@RequestMapping(value = "/api/snapshot")
+public class SnapshotResource {
+
+    private static final String X_CHANGE_CURSOR = "X-Change-Cursor";
+    private final SnapshotWriter snapshotWriter;
+
+    @Autowired
+    public SnapshotResource(SnapshotWriter snapshotWriter) {
+        this.snapshotWriter = snapshotWriter;
+    }
+
+    /**
+     * Whole registry in binary snapshot format, see {@link SnapshotFormat}.
+     */
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getSnapshot(HttpServletResponse response) throws IOException {
+        final ByteBuffer snapshot = snapshotWriter.export().build();
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLength(snapshot.remaining());
+        response.setHeader(X_CHANGE_CURSOR, Long.toString(RegistrySnapshot.of(snapshot).getChangeCursor()));
+        response.setHeader("Access-Control-Expose-Headers", X_CHANGE_CURSOR);
+        response.getOutputStream().write(snapshot.array(), snapshot.arrayOffset(), snapshot.remaining());
+    }
+}
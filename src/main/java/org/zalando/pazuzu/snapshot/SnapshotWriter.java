@@ -0,0 +1,53 @@
+package org.zalando.pazuzu.snapshot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.zalando.pazuzu.feature.snippet.Snippet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exports registry content into {@link SnapshotBuilder} with plain queries, without loading entities.
+ */
+@Service
+public class SnapshotWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SnapshotWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Reads everything in one repeatable read transaction, so that the snapshot matches its change cursor.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SnapshotBuilder export() {
+        final SnapshotBuilder builder = new SnapshotBuilder();
+        builder.setChangeCursor(jdbcTemplate.queryForObject("SELECT LAST_ID FROM CHANGE_COUNTER", Long.class));
+
+        final Map<String, String> snippets = new HashMap<>();
+        jdbcTemplate.query("SELECT HASH, CONTENT, COMPRESSED, CONTENT_LENGTH FROM SNIPPET WHERE REF_COUNT > 0", row -> {
+            snippets.put(row.getString(1), Snippet.decode(row.getBytes(2), row.getBoolean(3), row.getInt(4)));
+        });
+        jdbcTemplate.query("SELECT ID, FEATURE_NAME, DOCKER_DATA_HASH, TEST_INSTRUCTION_HASH, DESCRIPTION_HASH FROM FEATURE", row -> {
+            builder.addFeature(row.getInt(1), row.getString(2),
+                    snippets.get(row.getString(3)), snippets.get(row.getString(4)), snippets.get(row.getString(5)));
+        });
+        jdbcTemplate.query("SELECT FEATURE_ID, DEPENDENCY_FEATURE_ID FROM FEATURE_DEPENDENCY", row -> {
+            builder.addDependency(row.getInt(1), row.getInt(2));
+        });
+        jdbcTemplate.query("SELECT ID, TAG_NAME FROM TAG", row -> {
+            builder.addTag(row.getInt(1), row.getString(2));
+        });
+        jdbcTemplate.query("SELECT FEATURE_ID, TAGS_ID FROM FEATURE_TAGS", row -> {
+            builder.addFeatureTag(row.getInt(1), row.getInt(2));
+        });
+        return builder;
+    }
+}
@@ -0,0 +1,226 @@
+package org.zalando.pazuzu.sort;
+
+import java.util.*;
+
+/**
+ * Topological order of a graph that is maintained while edges are added and removed (Pearce-Kelly algorithm).
+ * Edge from -&gt; to means that from has to be placed before to.
+ * <p>
+ * Adding an edge that already agrees with the order costs O(1). Otherwise only vertices positioned between
+ * the two endpoints are visited and reordered among themselves, the rest of the order stays untouched.
+ * Cycles are detected by the same search and such edges are rejected. Not thread safe.
+ */
+public class DynamicTopologicalOrder<T> {
+
+    // Position of vertex in the order
+    private final Map<T, Integer> positions = new HashMap<>();
+    // Vertices by position, removed vertices leave holes
+    private final List<T> slots = new ArrayList<>();
+    private final Map<T, Set<T>> successors = new HashMap<>();
+    private final Map<T, Set<T>> predecessors = new HashMap<>();
+
+    /**
+     * Adds vertex at the end of the order.
+     *
+     * @return false if vertex is already present
+     */
+    public boolean addVertex(T v) {
+        if (positions.containsKey(v)) {
+            return false;
+        }
+        positions.put(v, slots.size());
+        slots.add(v);
+        successors.put(v, new HashSet<>());
+        predecessors.put(v, new HashSet<>());
+        return true;
+    }
+
+    public void removeVertex(T v) {
+        final Integer position = positions.remove(v);
+        if (null == position) {
+            return;
+        }
+        slots.set(position, null);
+        successors.remove(v).forEach(s -> predecessors.get(s).remove(v));
+        predecessors.remove(v).forEach(p -> successors.get(p).remove(v));
+        if (slots.size() > 64 && slots.size() > 2 * positions.size()) {
+            compact();
+        }
+    }
+
+    public boolean containsVertex(T v) {
+        return positions.containsKey(v);
+    }
+
+    /**
+     * Adds edge, missing vertices are added first.
+     *
+     * @return false if edge would create a cycle, graph is not changed then
+     */
+    public boolean addEdge(T from, T to) {
+        addVertex(from);
+        addVertex(to);
+        if (from.equals(to)) {
+            return false;
+        }
+        if (successors.get(from).contains(to)) {
+            return true;
+        }
+        final int lower = positions.get(to);
+        final int upper = positions.get(from);
+        if (lower < upper) {
+            // Forward search from "to" within the affected region, reaching "from" means cycle
+            final List<T> forward = new ArrayList<>();
+            if (!collect(to, upper, true, from, forward, new HashSet<>())) {
+                return false;
+            }
+            final List<T> backward = new ArrayList<>();
+            collect(from, lower, false, null, backward, new HashSet<>());
+            reorder(backward, forward);
+        }
+        successors.get(from).add(to);
+        predecessors.get(to).add(from);
+        return true;
+    }
+
+    public void removeEdge(T from, T to) {
+        final Set<T> s = successors.get(from);
+        if (null != s && s.remove(to)) {
+            predecessors.get(to).remove(from);
+        }
+    }
+
+    /**
+     * @return true if there is path of one or more edges from -&gt; ... -&gt; to. Only vertices positioned between
+     * the two are visited, vertices in wrong order are answered without search.
+     */
+    public boolean hasPath(T from, T to) {
+        final Integer start = positions.get(from);
+        final Integer end = positions.get(to);
+        if (null == start || null == end || start >= end) {
+            return false;
+        }
+        return !collect(from, end, true, to, new ArrayList<>(), new HashSet<>());
+    }
+
+    public Set<T> getSuccessors(T v) {
+        return Collections.unmodifiableSet(successors.getOrDefault(v, Collections.emptySet()));
+    }
+
+    public Set<T> getPredecessors(T v) {
+        return Collections.unmodifiableSet(predecessors.getOrDefault(v, Collections.emptySet()));
+    }
+
+    /**
+     * @return given vertices with everything that has a path to them, in topological order
+     */
+    public List<T> getAncestors(Collection<T> vertices) {
+        final Set<T> result = new HashSet<>();
+        final Deque<T> stack = new ArrayDeque<>();
+        for (T v : vertices) {
+            if (positions.containsKey(v) && result.add(v)) {
+                stack.push(v);
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (T p : predecessors.get(stack.pop())) {
+                if (result.add(p)) {
+                    stack.push(p);
+                }
+            }
+        }
+        return sort(result);
+    }
+
+    /**
+     * @return known vertices from the collection in topological order
+     */
+    public List<T> sort(Collection<T> vertices) {
+        final List<T> result = new ArrayList<>(vertices.size());
+        for (T v : vertices) {
+            if (positions.containsKey(v)) {
+                result.add(v);
+            }
+        }
+        result.sort(Comparator.comparing(positions::get));
+        return result;
+    }
+
+    /**
+     * @return all vertices in topological order
+     */
+    public List<T> getOrder() {
+        final List<T> result = new ArrayList<>(positions.size());
+        for (T v : slots) {
+            if (null != v) {
+                result.add(v);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Depth first search that does not leave region bounded by limit position.
+     *
+     * @param forward Direction, along edges or against them
+     * @param target  Vertex that must not be reached (may be null)
+     * @return false if target was reached
+     */
+    private boolean collect(T start, int limit, boolean forward, T target, List<T> visited, Set<T> seen) {
+        final Deque<T> stack = new ArrayDeque<>();
+        stack.push(start);
+        seen.add(start);
+        while (!stack.isEmpty()) {
+            final T v = stack.pop();
+            visited.add(v);
+            for (T next : forward ? successors.get(v) : predecessors.get(v)) {
+                if (next.equals(target)) {
+                    return false;
+                }
+                final int position = positions.get(next);
+                if ((forward ? position < limit : position > limit) && seen.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places backward set before forward set, reusing positions they occupied.
+     */
+    private void reorder(List<T> backward, List<T> forward) {
+        final Comparator<T> byPosition = Comparator.comparing(positions::get);
+        backward.sort(byPosition);
+        forward.sort(byPosition);
+        final List<Integer> free = new ArrayList<>(backward.size() + forward.size());
+        backward.forEach(v -> free.add(positions.get(v)));
+        forward.forEach(v -> free.add(positions.get(v)));
+        Collections.sort(free);
+        int i = 0;
+        for (T v : backward) {
+            place(v, free.get(i++));
+        }
+        for (T v : forward) {
+            place(v, free.get(i++));
+        }
+    }
+
+    private void place(T v, int position) {
+        positions.put(v, position);
+        slots.set(position, v);
+    }
+
+    private void compact() {
+        final List<T> order = getOrder();
+        slots.clear();
+        for (T v : order) {
+            positions.put(v, slots.size());
+            slots.add(v);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.zalando.pazuzu.sort;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Groups vertices into levels with Kahn's algorithm: first level holds vertices without children, every next
+ * level holds vertices whose children are all in previous levels. Vertices of one level do not depend on each
+ * other. Children outside of the given vertices are ignored.
+ */
+public class TopologicalLevels<T> {
+
+    private final Collection<T> vertices;
+    // Function for returning all children of vertex
+    private final Function<T, Set<T>> getChildren;
+
+    public TopologicalLevels(Collection<T> vertices, Function<T, Set<T>> getChildren) {
+        this.vertices = vertices;
+        this.getChildren = getChildren;
+    }
+
+    /**
+     * @return levels in order, vertices within level in order of the given collection
+     * @throws IllegalStateException in case of cycle in graph
+     */
+    public List<List<T>> getLevels() {
+        final Map<T, Integer> positions = new HashMap<>();
+        for (T v : vertices) {
+            positions.putIfAbsent(v, positions.size());
+        }
+        // Number of children not placed yet, and reverse edges
+        final Map<T, Integer> pending = new HashMap<>();
+        final Map<T, List<T>> parents = new HashMap<>();
+        for (T v : positions.keySet()) {
+            int count = 0;
+            for (T child : getChildren.apply(v)) {
+                if (positions.containsKey(child)) {
+                    parents.computeIfAbsent(child, c -> new ArrayList<>()).add(v);
+                    ++count;
+                }
+            }
+            pending.put(v, count);
+        }
+
+        final List<List<T>> levels = new ArrayList<>();
+        List<T> current = new ArrayList<>();
+        for (T v : positions.keySet()) {
+            if (pending.get(v) == 0) {
+                current.add(v);
+            }
+        }
+        current.sort(Comparator.comparing(positions::get));
+        int placed = 0;
+        while (!current.isEmpty()) {
+            levels.add(current);
+            placed += current.size();
+            final List<T> next = new ArrayList<>();
+            for (T v : current) {
+                for (T parent : parents.getOrDefault(v, Collections.emptyList())) {
+                    if (pending.merge(parent, -1, Integer::sum) == 0) {
+                        next.add(parent);
+                    }
+                }
+            }
+            next.sort(Comparator.comparing(positions::get));
+            current = next;
+        }
+        if (placed != pending.size()) {
+            final List<T> cycle = new ArrayList<>();
+            pending.forEach((v, count) -> {
+                if (count > 0) {
+                    cycle.add(v);
+                }
+            });
+            throw new IllegalStateException("Cycle found in dependencies! " + cycle);
+        }
+        return levels;
+    }
+}
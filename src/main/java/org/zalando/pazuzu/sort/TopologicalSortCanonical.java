@@ -0,0 +1,70 @@
+package org.zalando.pazuzu.sort;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Topological sort that does not depend on iteration order of the given collections: of all vertices whose
+ * children are already placed the least one (by given comparator) goes next. The result is the least
+ * topological order, so the same graph always gives the same order as long as comparator is total.
+ */
+public class TopologicalSortCanonical<T> {
+
+    private final Collection<T> vertices;
+    // Function for returning all children of vertex
+    private final Function<T, Set<T>> getChildren;
+    private final Comparator<? super T> comparator;
+
+    public TopologicalSortCanonical(Collection<T> vertices, Function<T, Set<T>> getChildren, Comparator<? super T> comparator) {
+        this.vertices = vertices;
+        this.getChildren = getChildren;
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return topologically sorted list of items, children first. Children outside of the vertices are ignored.
+     * @throws IllegalStateException in case of cycle in graph
+     */
+    public List<T> getTopSorted() {
+        final Set<T> known = new HashSet<>(vertices);
+        // Number of children not placed yet, and reverse edges
+        final Map<T, Integer> pending = new HashMap<>();
+        final Map<T, List<T>> parents = new HashMap<>();
+        final PriorityQueue<T> ready = new PriorityQueue<>(Math.max(1, known.size()), comparator);
+        for (T v : known) {
+            int count = 0;
+            for (T child : getChildren.apply(v)) {
+                if (known.contains(child)) {
+                    parents.computeIfAbsent(child, c -> new ArrayList<>()).add(v);
+                    ++count;
+                }
+            }
+            pending.put(v, count);
+            if (count == 0) {
+                ready.add(v);
+            }
+        }
+
+        final List<T> result = new ArrayList<>(known.size());
+        while (!ready.isEmpty()) {
+            final T v = ready.poll();
+            result.add(v);
+            for (T parent : parents.getOrDefault(v, Collections.emptyList())) {
+                if (pending.merge(parent, -1, Integer::sum) == 0) {
+                    ready.add(parent);
+                }
+            }
+        }
+        if (result.size() != known.size()) {
+            final List<T> cycle = new ArrayList<>();
+            pending.forEach((v, count) -> {
+                if (count > 0) {
+                    cycle.add(v);
+                }
+            });
+            cycle.sort(comparator);
+            throw new IllegalStateException("Cycle found in dependencies! " + cycle);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,229 @@
+package org.zalando.pazuzu.sort;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * {@link DynamicTopologicalOrder} that also keeps, for every vertex, the set of vertices that have a path to it
+ * (its ancestors) as a bitset over dense vertex indices. Path queries are single bit tests and ancestors of any
+ * set of vertices are a union of bitsets, without visiting the graph.
+ * <p>
+ * Adding an edge adds ancestors of its start to the end and to everything the end reaches. Removing an edge or a
+ * vertex recomputes only the vertices it reached, in topological order. Indices of removed vertices are reused,
+ * so bitsets stay as short as the graph is large. Full computation ({@link #build}) goes level by level, vertices
+ * of large levels are computed in parallel on the common fork/join pool. Not thread safe.
+ */
+public class TransitiveClosure<T> extends DynamicTopologicalOrder<T> {
+
+    // Levels smaller than this are computed in the calling thread, and tasks are not split below it
+    static final int PARALLEL_THRESHOLD = 512;
+
+    private final Map<T, Integer> indices = new HashMap<>();
+    // Vertices and their ancestors by index, removed vertices leave holes
+    private final List<T> vertices = new ArrayList<>();
+    private final List<BitSet> ancestors = new ArrayList<>();
+    private final BitSet free = new BitSet();
+
+    /**
+     * @param sorted       All vertices, every vertex after its predecessors
+     * @param predecessors Vertices with edges to the given one
+     */
+    public static <T> TransitiveClosure<T> build(List<T> sorted, Function<T, Set<T>> predecessors) {
+        final TransitiveClosure<T> result = new TransitiveClosure<>();
+        sorted.forEach(result::addVertex);
+        final List<List<T>> levels = new ArrayList<>();
+        final Map<T, Integer> depths = new HashMap<>();
+        for (T v : sorted) {
+            int depth = 0;
+            for (T p : predecessors.apply(v)) {
+                final Integer predecessorDepth = depths.get(p);
+                if (null == predecessorDepth) {
+                    throw new IllegalArgumentException("Vertices are not sorted: " + p + " -> " + v);
+                }
+                result.addEdgeWithoutClosure(p, v);
+                depth = Math.max(depth, predecessorDepth + 1);
+            }
+            depths.put(v, depth);
+            if (levels.size() == depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).add(v);
+        }
+        // Ancestors of a vertex are complete when all previous levels are
+        for (List<T> level : levels) {
+            if (level.size() < PARALLEL_THRESHOLD) {
+                level.forEach(result::computeAncestors);
+            } else {
+                ForkJoinPool.commonPool().invoke(result.new LevelTask(level, 0, level.size()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addVertex(T v) {
+        if (!super.addVertex(v)) {
+            return false;
+        }
+        int index = free.nextSetBit(0);
+        if (index < 0) {
+            index = vertices.size();
+            vertices.add(v);
+            ancestors.add(new BitSet());
+        } else {
+            free.clear(index);
+            vertices.set(index, v);
+            ancestors.set(index, new BitSet());
+        }
+        indices.put(v, index);
+        return true;
+    }
+
+    @Override
+    public void removeVertex(T v) {
+        final Integer index = indices.get(v);
+        if (null == index) {
+            return;
+        }
+        final List<T> affected = descendants(index);
+        super.removeVertex(v);
+        indices.remove(v);
+        vertices.set(index, null);
+        ancestors.set(index, null);
+        free.set(index);
+        recompute(affected);
+    }
+
+    /**
+     * Adds edge, missing vertices are added first.
+     *
+     * @return false if edge would create a cycle, graph is not changed then
+     */
+    @Override
+    public boolean addEdge(T from, T to) {
+        addVertex(from);
+        addVertex(to);
+        if (getSuccessors(from).contains(to)) {
+            return true;
+        }
+        if (from.equals(to) || hasPath(to, from)) {
+            return false;
+        }
+        super.addEdge(from, to);
+        final int start = indices.get(from);
+        final BitSet added = (BitSet) ancestors.get(start).clone();
+        added.set(start);
+        final int end = indices.get(to);
+        ancestors.get(end).or(added);
+        for (int i = 0; i < ancestors.size(); ++i) {
+            final BitSet bits = ancestors.get(i);
+            if (null != bits && bits.get(end)) {
+                bits.or(added);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void removeEdge(T from, T to) {
+        if (!getSuccessors(from).contains(to)) {
+            return;
+        }
+        super.removeEdge(from, to);
+        final int end = indices.get(to);
+        final List<T> affected = descendants(end);
+        affected.add(to);
+        recompute(affected);
+    }
+
+    /**
+     * @return true if there is path of one or more edges from -&gt; ... -&gt; to
+     */
+    @Override
+    public boolean hasPath(T from, T to) {
+        final Integer start = indices.get(from);
+        final Integer end = indices.get(to);
+        return null != start && null != end && ancestors.get(end).get(start);
+    }
+
+    /**
+     * @return given vertices with everything that has a path to them, in topological order
+     */
+    @Override
+    public List<T> getAncestors(Collection<T> vertices) {
+        final BitSet union = new BitSet();
+        for (T v : vertices) {
+            final Integer index = indices.get(v);
+            if (null != index) {
+                union.set(index);
+                union.or(ancestors.get(index));
+            }
+        }
+        final List<T> result = new ArrayList<>(union.cardinality());
+        for (int i = union.nextSetBit(0); i >= 0; i = union.nextSetBit(i + 1)) {
+            result.add(this.vertices.get(i));
+        }
+        return sort(result);
+    }
+
+    private void addEdgeWithoutClosure(T from, T to) {
+        super.addEdge(from, to);
+    }
+
+    private List<T> descendants(int index) {
+        final List<T> result = new ArrayList<>();
+        for (int i = 0; i < ancestors.size(); ++i) {
+            final BitSet bits = ancestors.get(i);
+            if (null != bits && bits.get(index)) {
+                result.add(vertices.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes ancestors again, predecessors outside of the given vertices must be up to date.
+     */
+    private void recompute(Collection<T> affected) {
+        sort(affected).forEach(this::computeAncestors);
+    }
+
+    private void computeAncestors(T v) {
+        final BitSet result = new BitSet();
+        for (T p : getPredecessors(v)) {
+            final int index = indices.get(p);
+            result.set(index);
+            result.or(ancestors.get(index));
+        }
+        ancestors.set(indices.get(v), result);
+    }
+
+    /**
+     * Vertices of one level do not depend on each other, each task writes only their own slots.
+     */
+    private final class LevelTask extends RecursiveAction {
+        private final List<T> level;
+        private final int from;
+        private final int to;
+
+        private LevelTask(List<T> level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; ++i) {
+                    computeAncestors(level.get(i));
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new LevelTask(level, from, middle), new LevelTask(level, middle, to));
+            }
+        }
+    }
+}
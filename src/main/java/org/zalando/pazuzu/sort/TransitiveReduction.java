@@ -0,0 +1,66 @@
+package org.zalando.pazuzu.sort;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Finds redundant edges of an acyclic graph: edge from vertex to child is redundant if the child is also reachable
+ * through another child of the vertex. Without them (transitive reduction) every vertex reaches the same vertices
+ * as before, so closures, topological orders and levels stay the same. Children outside of the given vertices are
+ * ignored.
+ */
+public class TransitiveReduction<T> {
+
+    private final Collection<T> vertices;
+    // Function for returning all children of vertex
+    private final Function<T, Set<T>> getChildren;
+
+    public TransitiveReduction(Collection<T> vertices, Function<T, Set<T>> getChildren) {
+        this.vertices = vertices;
+        this.getChildren = getChildren;
+    }
+
+    /**
+     * @return vertex -> (redundant child -> other child it is reachable through), only vertices with redundant
+     * edges are listed, in order of the given collection
+     * @throws IllegalStateException in case of cycle in graph
+     */
+    public Map<T, Map<T, T>> getRedundantEdges() {
+        final Set<T> known = new HashSet<>(vertices);
+        // Children first, descendants of a vertex are known when it is reached
+        final List<T> sorted = new ArrayList<>(new TopologicalSortLinear<>(known, v -> children(v, known)).getTopSorted());
+        final Map<T, Integer> positions = new HashMap<>();
+        sorted.forEach(v -> positions.put(v, positions.size()));
+        final BitSet[] descendants = new BitSet[sorted.size()];
+        for (int i = 0; i < sorted.size(); ++i) {
+            final BitSet reachable = new BitSet();
+            for (T child : children(sorted.get(i), known)) {
+                final int position = positions.get(child);
+                reachable.set(position);
+                reachable.or(descendants[position]);
+            }
+            descendants[i] = reachable;
+        }
+
+        final Map<T, Map<T, T>> result = new LinkedHashMap<>();
+        for (T v : vertices) {
+            final List<T> children = new ArrayList<>(children(v, known));
+            children.sort(Comparator.comparing(positions::get));
+            for (T child : children) {
+                for (T other : children) {
+                    if (other != child && descendants[positions.get(other)].get(positions.get(child))) {
+                        result.computeIfAbsent(v, x -> new LinkedHashMap<>()).put(child, other);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Set<T> children(T vertex, Set<T> known) {
+        final Set<T> result = new LinkedHashSet<>(getChildren.apply(vertex));
+        result.retainAll(known);
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+package org.zalando.pazuzu.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Phases of the request handled by the current thread. Spans with the same name and parent are aggregated into
+ * one phase (calls, total time, SQL statements), so a loop over features adds no more than a counter. Outside of
+ * a request (scheduled jobs, startup) there is no trace and spans do nothing.
+ */
+public final class Trace {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = () -> {
+    };
+
+    private final String id;
+    private final long startNanos;
+    private final Phase root;
+    private final Deque<Phase> open = new ArrayDeque<>();
+    // SQL text of executed statements, only kept when asked for
+    private List<String> sql;
+
+    private Trace(String id, String name, long startNanos) {
+        this.id = id;
+        this.startNanos = startNanos;
+        this.root = new Phase(name);
+        this.root.calls = 1;
+        this.open.push(root);
+    }
+
+    /**
+     * Starts trace of the current thread, it must be finished with {@link #end()} in the same thread.
+     */
+    public static Trace begin(String id, String name) {
+        final Trace trace = new Trace(id, name, System.nanoTime());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Opens a phase nested into the innermost open one, close it with try-with-resources.
+     */
+    public static Span span(String name) {
+        final Trace trace = CURRENT.get();
+        return null == trace ? NOOP : trace.open(name);
+    }
+
+    /**
+     * Counts executed SQL statement in all open phases.
+     *
+     * @param sql Text of the statement, null if it is not known
+     */
+    public static void statementExecuted(String sql) {
+        final Trace trace = CURRENT.get();
+        if (null != trace) {
+            trace.open.forEach(phase -> ++phase.statements);
+            if (null != trace.sql && null != sql) {
+                trace.sql.add(sql);
+            }
+        }
+    }
+
+    /**
+     * Keeps text of executed statements from now on, for checks of the SQL that is actually run.
+     */
+    public Trace captureSql() {
+        if (null == sql) {
+            sql = new ArrayList<>();
+        }
+        return this;
+    }
+
+    /**
+     * @return text of statements executed since {@link #captureSql()}, in order of execution
+     */
+    public List<String> getSql() {
+        return null == sql ? Collections.emptyList() : Collections.unmodifiableList(sql);
+    }
+
+    public void end() {
+        root.nanos = System.nanoTime() - startNanos;
+        CURRENT.remove();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getMillis() {
+        return root.nanos / 1_000_000;
+    }
+
+    public int getStatements() {
+        return root.statements;
+    }
+
+    /**
+     * @return Phase tree, one phase per line, nested phases indented
+     */
+    public String report() {
+        final StringBuilder result = new StringBuilder();
+        root.report(result, 0);
+        return result.toString();
+    }
+
+    private Span open(String name) {
+        final Phase phase = open.peek().children.computeIfAbsent(name, Phase::new);
+        ++phase.calls;
+        open.push(phase);
+        final long start = System.nanoTime();
+        return () -> {
+            phase.nanos += System.nanoTime() - start;
+            open.pop();
+        };
+    }
+
+    @FunctionalInterface
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Phase {
+        private final String name;
+        private final Map<String, Phase> children = new LinkedHashMap<>();
+        private int calls;
+        private long nanos;
+        private int statements;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void report(StringBuilder out, int depth) {
+            for (int i = 0; i < depth; ++i) {
+                out.append("  ");
+            }
+            out.append(name).append(String.format(Locale.ROOT, " %.1f ms", nanos / 1e6));
+            if (calls > 1) {
+                out.append(", ").append(calls).append(" calls");
+            }
+            if (statements > 0) {
+                out.append(", ").append(statements).append(" SQL");
+            }
+            out.append('\n');
+            children.values().forEach(child -> child.report(out, depth + 1));
+        }
+    }
+}
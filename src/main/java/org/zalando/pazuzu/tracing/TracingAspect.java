@@ -0,0 +1,49 @@
+package org.zalando.pazuzu.tracing;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Spans around public methods of controllers and services of the registry and of Spring Data repositories.
+ * Calls within one bean do not pass the proxy, internal phases are marked with {@link Trace#span} explicitly.
+ */
+@Aspect
+public class TracingAspect {
+
+    private static final String PACKAGE = "org.zalando.pazuzu.";
+
+    @Around("execution(public * org.zalando.pazuzu..*(..)) && (@within(org.springframework.web.bind.annotation.RestController)"
+            + " || @within(org.springframework.stereotype.Service))")
+    public Object traceComponent(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (Trace.Span ignored = Trace.span(joinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                + joinPoint.getSignature().getName())) {
+            return joinPoint.proceed();
+        }
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (null == Trace.current()) {
+            return joinPoint.proceed();
+        }
+        try (Trace.Span ignored = Trace.span(repositoryMethod(joinPoint))) {
+            return joinPoint.proceed();
+        }
+    }
+
+    /**
+     * Inherited methods (findAll, save) are named after the registry's repository interface, not CrudRepository.
+     */
+    public static String repositoryMethod(JoinPoint joinPoint) {
+        Class<?> repository = joinPoint.getSignature().getDeclaringType();
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getName().startsWith(PACKAGE)) {
+                repository = type;
+                break;
+            }
+        }
+        return repository.getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+}
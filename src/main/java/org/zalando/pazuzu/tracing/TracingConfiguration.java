@@ -0,0 +1,69 @@
+package org.zalando.pazuzu.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Per-request tracing (pazuzu.tracing), see {@link TracingFilter}. Phases are spans of controllers, services,
+ * repositories and of writing JSON responses, SQL statements are counted on the "dataSource" bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pazuzu.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfiguration {
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                return bean;
+            }
+
+            // Other data sources may be injected by their own types, they are reached through this one anyway
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return "dataSource".equals(beanName) && bean instanceof DataSource
+                        ? new TracingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean tracingFilter(@Value("${pazuzu.tracing.slow-request-ms:1000}") long slowRequestMillis) {
+        final FilterRegistrationBean registration = new FilterRegistrationBean(new TracingFilter(slowRequestMillis));
+        // Time spent in security and other filters is part of the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public TracingAspect tracingAspect() {
+        return new TracingAspect();
+    }
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                try (Trace.Span ignored = Trace.span("json.write")) {
+                    super.writeInternal(object, type, outputMessage);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package org.zalando.pazuzu.tracing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts executed statements in the current {@link Trace}, both of Hibernate and of JdbcTemplate, and passes their
+ * text to traces that keep it.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    public TracingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, super.getConnection(username, password));
+    }
+
+    private static <T> T wrap(Class<T> type, T target) {
+        return wrap(type, target, null);
+    }
+
+    private static <T> T wrap(Class<T> type, T target, String sql) {
+        return type.cast(Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                new Handler(target, sql)));
+    }
+
+    private static final class Handler implements InvocationHandler {
+        private final Object target;
+        // Text of prepared statement, plain statements get it with every execution
+        private final String sql;
+
+        private Handler(Object target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            if (method.getName().startsWith("execute") && target instanceof Statement) {
+                Trace.statementExecuted(null != args && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql);
+            }
+            // Statements are counted when executed, prepared ones can be executed many times
+            if (null != result && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return wrap(method.getReturnType(), result,
+                        method.getName().startsWith("prepare") && null != args && args.length > 0 ? (String) args[0] : null);
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object wrap(Class<?> type, Object target, String sql) {
+            return TracingDataSource.wrap((Class<Object>) type, target, sql);
+        }
+    }
+}
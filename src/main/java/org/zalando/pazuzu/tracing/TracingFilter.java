@@ -0,0 +1,57 @@
+package org.zalando.pazuzu.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Traces each request: trace id is taken from X-Trace-Id request header (or generated), returned in the same
+ * response header and put into logging MDC as trace_id. Requests that took longer than the threshold are logged
+ * with their phase breakdown and SQL statement count. Only the thread that started the request is traced, for
+ * asynchronous requests (e.g. change stream) the breakdown would be incomplete and they are not logged.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String X_TRACE_ID = "X-Trace-Id";
+    static final String MDC_TRACE_ID = "trace_id";
+
+    private static final Logger LOG = LoggerFactory.getLogger(TracingFilter.class);
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final long slowRequestMillis;
+
+    public TracingFilter(long slowRequestMillis) {
+        this.slowRequestMillis = slowRequestMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        final String requested = request.getHeader(X_TRACE_ID);
+        final String id = null != requested && VALID_ID.matcher(requested).matches()
+                ? requested : Long.toHexString(ThreadLocalRandom.current().nextLong());
+        response.setHeader(X_TRACE_ID, id);
+        response.addHeader("Access-Control-Expose-Headers", X_TRACE_ID);
+        MDC.put(MDC_TRACE_ID, id);
+        final Trace trace = Trace.begin(id, request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            trace.end();
+            MDC.remove(MDC_TRACE_ID);
+            if (slowRequestMillis >= 0 && trace.getMillis() >= slowRequestMillis && !request.isAsyncStarted()) {
+                LOG.warn("Slow request {} ms, {} SQL statements, status {}, trace {}:\n{}", trace.getMillis(),
+                        trace.getStatements(), response.getStatus(), id, trace.report());
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Responses of completed requests sent with Idempotency-Key header, replayed to retries. Scope is the endpoint
+-- and client, rows are purged after retention period.
+CREATE TABLE IDEMPOTENCY_KEY (
+  SCOPE            VARCHAR(512)  NOT NULL,
+  IDEMPOTENCY_KEY  VARCHAR(256)  NOT NULL,
+  REQUEST_HASH     VARCHAR(64)   NOT NULL,
+  STATUS           INT           NOT NULL,
+  LOCATION         VARCHAR(2048),
+  BODY             TEXT,
+  CREATED_AT       TIMESTAMP     NOT NULL,
+  PRIMARY KEY (SCOPE, IDEMPOTENCY_KEY)
+);
+
+CREATE INDEX IDEMPOTENCY_KEY_CREATED_IDX ON IDEMPOTENCY_KEY (CREATED_AT);
@@ -0,0 +1,2 @@
+-- Incremented with every change of the feature row, its tags or dependencies. Keys cached serialized features.
+ALTER TABLE FEATURE ADD COLUMN REVISION INT DEFAULT 0 NOT NULL;
@@ -0,0 +1,21 @@
+CREATE TABLE CHANGE_LOG (
+  ID           BIGINT       PRIMARY KEY,
+  KIND         VARCHAR(16)  NOT NULL,
+  NAME         VARCHAR(256) NOT NULL,
+  ACTION       VARCHAR(16)  NOT NULL,
+  CHANGED_AT   TIMESTAMP    NOT NULL
+);
+
+-- Single row, updated by every writer. Row lock is held until commit, so change ids become visible in order.
+CREATE TABLE CHANGE_COUNTER (
+  LAST_ID  BIGINT  NOT NULL
+);
+
+-- Existing content is recorded as initial upserts, so that clients can build mirror from cursor 0.
+INSERT INTO CHANGE_LOG (ID, KIND, NAME, ACTION, CHANGED_AT)
+  SELECT ID, 'TAG', TAG_NAME, 'UPSERT', CURRENT_TIMESTAMP FROM TAG;
+
+INSERT INTO CHANGE_LOG (ID, KIND, NAME, ACTION, CHANGED_AT)
+  SELECT ID + (SELECT COALESCE(MAX(ID), 0) FROM TAG), 'FEATURE', FEATURE_NAME, 'UPSERT', CURRENT_TIMESTAMP FROM FEATURE;
+
+INSERT INTO CHANGE_COUNTER (LAST_ID) SELECT COALESCE(MAX(ID), 0) FROM CHANGE_LOG;
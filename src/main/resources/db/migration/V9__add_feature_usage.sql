@@ -0,0 +1,12 @@
+-- How many resolutions included the feature (requested or as dependency), flushed periodically by every instance.
+CREATE TABLE FEATURE_USAGE (
+  FEATURE_ID     INT     PRIMARY KEY REFERENCES FEATURE (ID) ON DELETE CASCADE,
+  REQUEST_COUNT  BIGINT  NOT NULL
+);
+
+-- Single row, total number of resolutions.
+CREATE TABLE RESOLUTION_COUNTER (
+  TOTAL  BIGINT  NOT NULL
+);
+
+INSERT INTO RESOLUTION_COUNTER (TOTAL) VALUES (0);
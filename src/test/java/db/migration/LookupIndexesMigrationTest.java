@@ -0,0 +1,85 @@
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class LookupIndexesMigrationTest {
+
+    private Flyway flyway;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void migrateToPreviousVersion() {
+        final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:hsqldb:mem:" + UUID.randomUUID() + ";sql.syntax_pgs=true", "sa", "");
+        flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(MigrationVersion.fromVersion("9"));
+        flyway.migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO SNIPPET (HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) VALUES ('h', X'00', FALSE, 1, 6)");
+    }
+
+    private void feature(int id, String name) {
+        jdbcTemplate.update("INSERT INTO FEATURE (ID, FEATURE_NAME, DOCKER_DATA_HASH) VALUES (?, ?, 'h')", id, name);
+    }
+
+    private String name(int id) {
+        return jdbcTemplate.queryForObject("SELECT FEATURE_NAME FROM FEATURE WHERE ID = ?", String.class, id);
+    }
+
+    @Test
+    public void duplicateFeaturesAreRenamed() {
+        feature(1, "java");
+        feature(2, "scala");
+        feature(3, "java");
+        feature(4, "java-5");
+        feature(5, "java");
+        feature(6, "java-3");
+        jdbcTemplate.update("INSERT INTO FEATURE_DEPENDENCY (FEATURE_ID, DEPENDENCY_FEATURE_ID) VALUES (2, 3)");
+        jdbcTemplate.update("INSERT INTO TAG (ID, TAG_NAME) VALUES (1, 'jvm')");
+        jdbcTemplate.update("INSERT INTO FEATURE_TAGS (ID, FEATURE_ID, TAGS_ID) VALUES (1, 3, 1)");
+        final long lastChange = jdbcTemplate.queryForObject("SELECT LAST_ID FROM CHANGE_COUNTER", Long.class);
+
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+
+        assertThat(name(1)).isEqualTo("java");
+        assertThat(name(3)).isEqualTo("java-3-2");
+        assertThat(name(5)).isEqualTo("java-5-2");
+        assertThat(name(4)).isEqualTo("java-5");
+        assertThat(jdbcTemplate.queryForObject("SELECT DEPENDENCY_FEATURE_ID FROM FEATURE_DEPENDENCY WHERE FEATURE_ID = 2", Integer.class))
+                .isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT FEATURE_ID FROM FEATURE_TAGS WHERE TAGS_ID = 1", Integer.class))
+                .isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT NAME FROM CHANGE_LOG WHERE ID > ? ORDER BY ID", String.class, lastChange))
+                .containsExactly("java", "java-3-2", "java-5-2");
+        try {
+            feature(7, "java");
+            fail("Feature name is not unique");
+        } catch (DataIntegrityViolationException expected) {
+        }
+    }
+
+    @Test
+    public void uniqueNamesAreKept() {
+        feature(1, "java");
+        feature(2, "scala");
+
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+
+        assertThat(name(1)).isEqualTo("java");
+        assertThat(name(2)).isEqualTo("scala");
+    }
+}
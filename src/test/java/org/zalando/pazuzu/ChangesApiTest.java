@@ -0,0 +1,162 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zalando.pazuzu.change.ChangeDto;
+import org.zalando.pazuzu.change.ChangesDto;
+import org.zalando.pazuzu.exception.ErrorDto;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangesApiTest extends AbstractComponentTest {
+
+    private static final String CHANGES_URL = "/api/changes";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ChangesDto changesSince(long cursor) {
+        final ResponseEntity<ChangesDto> result = template.getForEntity(url(CHANGES_URL + "?since=" + cursor), ChangesDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return result.getBody();
+    }
+
+    @Test
+    public void createdFeaturesAreReportedWithState() throws Exception {
+        createFeature("base", "RUN base", null, null);
+        createFeature("java", "RUN java", null, "Java", "base");
+
+        final ChangesDto changes = changesSince(0);
+
+        assertThat(changes.getChanges()).extracting(ChangeDto::getName).containsExactly("base", "java");
+        final ChangeDto java = changes.getChanges().get(1);
+        assertThat(java.getKind()).isEqualTo("feature");
+        assertThat(java.getAction()).isEqualTo("upsert");
+        assertThat(java.getFeature().getDockerData()).isEqualTo("RUN java");
+        assertThat(java.getDependencies()).containsExactly("base");
+        assertThat(changes.getNextCursor()).isEqualTo(java.getCursor());
+    }
+
+    @Test
+    public void onlyChangesAfterCursorAreReturned() throws Exception {
+        createFeature("base", "RUN base", null, null);
+        final long cursor = changesSince(0).getNextCursor();
+
+        assertThat(changesSince(cursor).getChanges()).isEmpty();
+        assertThat(changesSince(cursor).getNextCursor()).isEqualTo(cursor);
+
+        template.delete(url(featuresUrl + "/base"));
+        final ChangesDto changes = changesSince(cursor);
+        assertThat(changes.getChanges()).hasSize(1);
+        assertThat(changes.getChanges().get(0).getAction()).isEqualTo("delete");
+        assertThat(changes.getChanges().get(0).getFeature()).isNull();
+    }
+
+    @Test
+    public void renameLeavesTombstoneForOldName() throws Exception {
+        createFeature("old", "RUN old", null, null);
+        final long cursor = changesSince(0).getNextCursor();
+
+        template.exchange(url(featuresUrl + "/old"), HttpMethod.PUT, new HttpEntity<>(
+                mapper.writeValueAsString(Collections.singletonMap("name", "new")), contentType(MediaType.APPLICATION_JSON)), String.class);
+
+        final ChangesDto changes = changesSince(cursor);
+        assertThat(changes.getChanges()).extracting(c -> c.getName() + ":" + c.getAction())
+                .containsExactly("old:delete", "new:upsert");
+    }
+
+    @Test
+    public void repeatedChangesAreReportedOnce() throws Exception {
+        createFeature("base", "RUN base", null, null);
+        template.exchange(url(featuresUrl + "/base"), HttpMethod.PUT, new HttpEntity<>(
+                mapper.writeValueAsString(Collections.singletonMap("docker_data", "RUN other")), contentType(MediaType.APPLICATION_JSON)), String.class);
+
+        final ChangesDto changes = changesSince(0);
+        assertThat(changes.getChanges()).hasSize(1);
+        assertThat(changes.getChanges().get(0).getFeature().getDockerData()).isEqualTo("RUN other");
+    }
+
+    @Test
+    public void limitSplitsChangesIntoPages() throws Exception {
+        createFeature("a", "RUN a", null, null);
+        createFeature("b", "RUN b", null, null);
+
+        final ChangesDto first = template.getForEntity(url(CHANGES_URL + "?since=0&limit=1"), ChangesDto.class).getBody();
+        assertThat(first.getChanges()).extracting(ChangeDto::getName).containsExactly("a");
+        assertThat(changesSince(first.getNextCursor()).getChanges()).extracting(ChangeDto::getName).containsExactly("b");
+    }
+
+    @Test
+    public void cursorAheadOfLogIsRejected() {
+        final ResponseEntity<ErrorDto> result = template.getForEntity(url(CHANGES_URL + "?since=" + Long.MAX_VALUE), ErrorDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("change_cursor_unknown");
+    }
+
+    @Test
+    public void changesAreStreamedToSubscribers() throws Exception {
+        createFeature("base", "RUN base", null, null);
+        final long cursor = changesSince(0).getNextCursor();
+
+        final String events = readStream(cursor, () -> createFeature("java", "RUN java", null, null, "base"), "java");
+        assertThat(events).contains("event:change").doesNotContain("\"name\":\"base\"");
+    }
+
+    @Test
+    public void streamReadsPastRepeatedChanges() throws Exception {
+        final long cursor = changesSince(0).getNextCursor();
+        // More repeated changes of one name than fit into a page of log
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 600; ++i) {
+            rows.add(new Object[]{cursor + i, new Timestamp(System.currentTimeMillis())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO CHANGE_LOG (ID, KIND, NAME, ACTION, CHANGED_AT) VALUES (?, 'TAG', 'jvm', 'UPSERT', ?)", rows);
+        jdbcTemplate.update("UPDATE CHANGE_COUNTER SET LAST_ID = ?", cursor + rows.size());
+        createFeature("java", "RUN java", null, null);
+
+        // Nothing changes after subscription, the change has to be read by the poll the subscription starts
+        assertThat(readStream(cursor, () -> null, "java")).contains("\"name\":\"jvm\"");
+    }
+
+    /**
+     * Subscribes at the cursor, makes a change and reads events until one mentions the name.
+     */
+    private String readStream(long cursor, Callable<?> change, String name) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url(CHANGES_URL + "/stream"))
+                .openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setRequestProperty("Last-Event-ID", Long.toString(cursor));
+        connection.setReadTimeout(10000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            change.call();
+            String line;
+            final StringBuilder events = new StringBuilder();
+            while (null != (line = reader.readLine()) && !(line.isEmpty() && events.toString().contains("\"name\":\"" + name + "\""))) {
+                // Heartbeat comments are skipped
+                if (!line.startsWith(":") && !line.isEmpty()) {
+                    events.append(line).append('\n');
+                }
+            }
+            return events.toString();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
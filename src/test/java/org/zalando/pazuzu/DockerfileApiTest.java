@@ -0,0 +1,116 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.http.*;
+import org.zalando.pazuzu.docker.DockerfileDto;
+import org.zalando.pazuzu.exception.ErrorDto;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DockerfileApiTest extends AbstractComponentTest {
+
+    private static final String DOCKERFILE_URL = "/api/dockerfile";
+
+    @Test
+    public void dockerfileContainsSnippetsInDependencyOrder() throws Exception {
+        createFeature("base", "RUN apt-get update && apt-get install -y curl", null, null);
+        createFeature("java", "ENV JAVA_HOME=/opt/java\nRUN apt-get update && apt-get install -y openjdk", null, null, "base");
+
+        ResponseEntity<DockerfileDto> result = template.getForEntity(url(DOCKERFILE_URL + "?name=java"), DockerfileDto.class);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody().getFeatures()).containsExactly("base", "java");
+        assertThat(result.getBody().getDockerfile()).isEqualTo("RUN apt-get update && apt-get install -y curl\n"
+                + "ENV JAVA_HOME=/opt/java\nRUN apt-get update && apt-get install -y openjdk");
+        assertThat(result.getBody().getReport()).isNull();
+    }
+
+    @Test
+    public void optimizedDockerfileReportsSavedLayers() throws Exception {
+        createFeature("base", "RUN apt-get update && apt-get install -y curl", null, null);
+        createFeature("python", "RUN apt-get update && apt-get install -y python", null, null, "base");
+
+        ResponseEntity<DockerfileDto> result = template.getForEntity(url(DOCKERFILE_URL + "?name=python&optimize=1"), DockerfileDto.class);
+
+        assertThat(result.getBody().getDockerfile())
+                .isEqualTo("RUN apt-get update && apt-get install -y curl \\\n    && apt-get install -y python");
+        assertThat(result.getBody().getReport().getLayersSaved()).isEqualTo(1);
+        assertThat(result.getBody().getReport().getRemovedIndexRefreshes()).isEqualTo(1);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.TEXT_PLAIN));
+        ResponseEntity<String> text = template.exchange(url(DOCKERFILE_URL + "?name=python&optimize=1"), HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertThat(text.getHeaders().getFirst("X-Layers-Saved")).isEqualTo("1");
+        assertThat(text.getBody()).startsWith("RUN apt-get update");
+    }
+
+    @Test
+    public void dockerfileDoesNotDependOnCreationOrder() throws Exception {
+        createFeature("base", "RUN install base", null, null);
+        createFeature("python", "RUN install python", null, null, "base");
+        createFeature("java", "RUN install java", null, null, "base");
+        createFeature("tools", "RUN install tools", null, null, "python", "java");
+        final String expected = template.getForObject(url(DOCKERFILE_URL + "?name=tools"), DockerfileDto.class).getDockerfile();
+        assertThat(expected).isEqualTo("RUN install base\nRUN install java\nRUN install python\nRUN install tools");
+
+        template.delete(url("/api/features/tools"));
+        template.delete(url("/api/features/python"));
+        createFeature("python", "RUN install python", null, null, "base");
+        createFeature("tools", "RUN install tools", null, null, "java", "python");
+
+        assertThat(template.getForObject(url(DOCKERFILE_URL + "?name=tools"), DockerfileDto.class).getDockerfile())
+                .isEqualTo(expected);
+    }
+
+    @Test
+    public void independentFeaturesAreGroupedInSingleStage() throws Exception {
+        createFeature("base", "RUN install base", null, null);
+        createFeature("Java 8", "ENV JAVA_HOME=/opt/java\nRUN install java", null, null, "base");
+        createFeature("python", "RUN install python", null, null, "base");
+
+        ResponseEntity<DockerfileDto> result = template.getForEntity(
+                url(DOCKERFILE_URL + "?name=python&name=Java 8&stages=1&base=ubuntu:16.04"), DockerfileDto.class);
+
+        assertThat(result.getBody().getDockerfile()).isEqualTo("ARG BASE_IMAGE=ubuntu:16.04\n\n"
+                + "FROM ${BASE_IMAGE}\nRUN install base\nENV JAVA_HOME=/opt/java\nRUN install java\nRUN install python");
+        assertThat(result.getBody().getDockerfile()).doesNotContain("COPY");
+        assertThat(result.getBody().getStages()).extracting("name")
+                .containsExactly("common", "feature-java-8", "feature-python");
+        assertThat(result.getBody().getStages().get(1).getFeatures()).containsExactly("Java 8");
+    }
+
+    @Test
+    public void singleFeatureHasSingleStage() throws Exception {
+        createFeature("base", "RUN install base", null, null);
+        createFeature("python", "RUN install python", null, null, "base");
+
+        ResponseEntity<DockerfileDto> result = template.getForEntity(
+                url(DOCKERFILE_URL + "?name=python&name=base&stages=1"), DockerfileDto.class);
+
+        assertThat(result.getBody().getDockerfile())
+                .isEqualTo("ARG BASE_IMAGE\n\nFROM ${BASE_IMAGE}\nRUN install base\nRUN install python");
+        assertThat(result.getBody().getStages()).hasSize(1);
+    }
+
+    @Test
+    public void orderIsReported() throws Exception {
+        createFeature("base", "RUN install base", null, null);
+
+        ResponseEntity<DockerfileDto> result = template.getForEntity(url(DOCKERFILE_URL + "?name=base&order=cache"), DockerfileDto.class);
+        assertThat(result.getBody().getOrderReport().getOrder()).isEqualTo("cache");
+
+        ResponseEntity<ErrorDto> error = template.getForEntity(url(DOCKERFILE_URL + "?name=base&order=random"), ErrorDto.class);
+        assertThat(error.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(error.getBody().getCode()).isEqualTo("resolution_order_unknown");
+    }
+
+    @Test
+    public void unknownFeatureIsRejected() {
+        ResponseEntity<ErrorDto> result = template.getForEntity(url(DOCKERFILE_URL + "?name=missing"), ErrorDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("feature_not_found");
+    }
+}
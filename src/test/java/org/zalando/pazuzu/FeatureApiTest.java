@@ -122,6 +122,26 @@ public class FeatureApiTest extends AbstractComponentTest {
 
     }
 
+    @Test
+    public void badRequestWhenUpdateCreatesDependencyCycle() throws JsonProcessingException {
+        createFeature("Feature1", "dockerData Feature1", null, null);
+        createFeature("Feature2", "dockerData Feature2", null, null, "Feature1");
+        createFeature("Feature3", "dockerData Feature3", null, null, "Feature2");
+
+        final Map<String, Object> updateRequest = getFeaturePropertiesMap(null, null, null, null, "Feature3");
+        ResponseEntity<ErrorDto> putResponse = template.exchange(url(featuresUrl + "/Feature1"), HttpMethod.PUT,
+                new HttpEntity<>(mapper.writeValueAsString(updateRequest), contentType(MediaType.APPLICATION_JSON)), ErrorDto.class);
+        assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(putResponse.getBody().getCode()).isEqualTo("feature_has_recursive_dependency");
+
+        final Map<String, Object> reverseRequest = getFeaturePropertiesMap(null, null, null, null);
+        template.exchange(url(featuresUrl + "/Feature3"), HttpMethod.PUT,
+                new HttpEntity<>(mapper.writeValueAsString(reverseRequest), contentType(MediaType.APPLICATION_JSON)), FeatureFullDto.class);
+        putResponse = template.exchange(url(featuresUrl + "/Feature1"), HttpMethod.PUT,
+                new HttpEntity<>(mapper.writeValueAsString(updateRequest), contentType(MediaType.APPLICATION_JSON)), ErrorDto.class);
+        assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
     @Test
     public void notFoundWhenDeletingNotExistingFeature() throws JsonProcessingException {
         ResponseEntity<Void> response = template.exchange(url(featuresUrl + "/NotExistingFeature"), HttpMethod.DELETE, HttpEntity.EMPTY, Void.class);
@@ -148,6 +168,28 @@ public class FeatureApiTest extends AbstractComponentTest {
         assertThat(result.getBody()).hasSize(3);
     }
 
+    @Test
+    public void featureLevelsGroupIndependentFeatures() throws JsonProcessingException {
+        createFeature("base", "docker-data-1", null, null);
+        createFeature("python", "docker-data-2", null, null, "base");
+        createFeature("java", "docker-data-3", null, null, "base");
+        createFeature("spark", "docker-data-4", null, null, "java", "python");
+
+        ResponseEntity<List> result = template.getForEntity(url("/api/feature-levels?name=spark"), List.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody()).hasSize(3);
+        assertThat((List<Map>) result.getBody().get(1)).extracting(f -> f.get("name")).containsExactly("java", "python");
+    }
+
+    @Test
+    public void featureNamedLevelsIsReachable() throws JsonProcessingException {
+        createFeature("levels", "docker-data-1", null, null);
+
+        ResponseEntity<FeatureFullDto> result = template.getForEntity(url(featuresUrl + "/levels"), FeatureFullDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody().getName()).isEqualTo("levels");
+    }
+
     @Test
     public void testFeatureSearchSuccess() throws JsonProcessingException {
         createFeature("test-feature-1", "docker-data-1", "test-instruction-1", "desc-1");
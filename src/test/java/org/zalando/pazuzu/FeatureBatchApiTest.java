@@ -0,0 +1,100 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.zalando.pazuzu.exception.ErrorDto;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FeatureBatchApiTest extends AbstractComponentTest {
+
+    private static final String BATCH_URL = "/api/features/batch";
+
+    @SafeVarargs
+    private final <T> ResponseEntity<T> postBatch(Class<T> clazz, Map<String, Object>... features) throws Exception {
+        return template.postForEntity(url(BATCH_URL), new HttpEntity<>(mapper.writeValueAsString(Arrays.asList(features)),
+                contentType(MediaType.APPLICATION_JSON)), clazz);
+    }
+
+    private void assertNotCreated(String... names) {
+        for (String name : names) {
+            assertThat(template.getForEntity(url(featuresUrl + "/" + name), String.class).getStatusCode())
+                    .isEqualTo(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Test
+    public void featuresMayDependOnEachOtherInAnyOrder() throws Exception {
+        createFeature("base", "RUN base", null, null);
+
+        final ResponseEntity<FeatureFullDto[]> result = postBatch(FeatureFullDto[].class,
+                getFeaturePropertiesMap("app", "RUN app", null, "App", "jdk", "base"),
+                getFeaturePropertiesMap("jdk", "RUN jdk", null, null, "base"));
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(result.getBody()).extracting(FeatureDto::getName).containsExactly("app", "jdk");
+        final FeatureFullDto app = template.getForEntity(url(featuresUrl + "/app"), FeatureFullDto.class).getBody();
+        assertThat(app.getDescription()).isEqualTo("App");
+        assertThat(app.getDependencies()).extracting(FeatureDto::getName).containsOnly("jdk", "base");
+    }
+
+    @Test
+    public void tagsAreCreatedOnce() throws Exception {
+        final Map<String, Object> first = getFeaturePropertiesMap("first", "RUN same", null, null);
+        first.put("tags", Collections.singletonList(Collections.singletonMap("name", "shared")));
+        final Map<String, Object> second = getFeaturePropertiesMap("second", "RUN same", null, null);
+        second.put("tags", Collections.singletonList(Collections.singletonMap("name", "shared")));
+
+        assertThat(postBatch(String.class, first, second).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        final List tags = template.getForEntity(url("/api/tags"), List.class).getBody();
+        assertThat(tags).hasSize(1);
+    }
+
+    @Test
+    public void cycleRejectsWholeBatch() throws Exception {
+        final ResponseEntity<ErrorDto> result = postBatch(ErrorDto.class,
+                getFeaturePropertiesMap("a", "RUN a", null, null, "b"),
+                getFeaturePropertiesMap("b", "RUN b", null, null, "c"),
+                getFeaturePropertiesMap("c", "RUN c", null, null, "a"));
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("feature_has_recursive_dependency");
+        assertNotCreated("a", "b", "c");
+    }
+
+    @Test
+    public void unknownDependencyRejectsWholeBatch() throws Exception {
+        final ResponseEntity<ErrorDto> result = postBatch(ErrorDto.class,
+                getFeaturePropertiesMap("a", "RUN a", null, null),
+                getFeaturePropertiesMap("b", "RUN b", null, null, "a", "missing"));
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("feature_not_found");
+        assertThat(result.getBody().getDetailedMessage()).contains("missing");
+        assertNotCreated("a", "b");
+    }
+
+    @Test
+    public void existingNameRejectsWholeBatch() throws Exception {
+        createFeature("a", "RUN a", null, null);
+
+        final ResponseEntity<ErrorDto> result = postBatch(ErrorDto.class,
+                getFeaturePropertiesMap("b", "RUN b", null, null),
+                getFeaturePropertiesMap("a", "RUN a", null, null));
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("feature_duplicate");
+        assertNotCreated("b");
+    }
+}
@@ -0,0 +1,186 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.zalando.pazuzu.exception.ErrorDto;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+import org.zalando.pazuzu.feature.tag.TagDto;
+import org.zalando.pazuzu.idempotency.IdempotencyStore;
+
+import java.security.Principal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyApiTest extends AbstractComponentTest {
+
+    private static final int CLIENTS = 8;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private <T> ResponseEntity<T> post(String path, Object body, String key, Class<T> clazz) throws Exception {
+        final HttpHeaders headers = contentType(MediaType.APPLICATION_JSON);
+        if (null != key) {
+            headers.set(IdempotencyStore.HEADER, key);
+        }
+        return template.postForEntity(url(path), new HttpEntity<>(mapper.writeValueAsString(body), headers), clazz);
+    }
+
+    private <T> ResponseEntity<T> postFeature(String name, String key, Class<T> clazz, String... dependencies) throws Exception {
+        return post(featuresUrl, getFeaturePropertiesMap(name, "RUN " + name, null, null, dependencies), key, clazz);
+    }
+
+    private long changeCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CHANGE_LOG WHERE KIND = 'FEATURE'", Long.class);
+    }
+
+    @Test
+    public void retryGetsOriginalResponse() throws Exception {
+        final ResponseEntity<FeatureFullDto> first = postFeature("java", "key-1", FeatureFullDto.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(first.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isNull();
+
+        final ResponseEntity<FeatureFullDto> retry = postFeature("java", "key-1", FeatureFullDto.class);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getHeaders().getLocation()).isEqualTo(first.getHeaders().getLocation());
+        assertThat(retry.getBody().getName()).isEqualTo("java");
+        assertThat(retry.getBody().getDockerData()).isEqualTo("RUN java");
+        assertThat(changeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void duplicateWithoutKeyIsRejected() throws Exception {
+        postFeature("java", null, FeatureFullDto.class);
+
+        final ResponseEntity<ErrorDto> result = postFeature("java", null, ErrorDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("feature_duplicate");
+    }
+
+    @Test
+    public void keyIsBoundToRequest() throws Exception {
+        postFeature("java", "key-1", FeatureFullDto.class);
+
+        final ResponseEntity<ErrorDto> result = postFeature("scala", "key-1", ErrorDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("idempotency_key_reused");
+        assertThat(template.getForEntity(url(featuresUrl + "/scala"), String.class).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+
+        final char[] tooLong = new char[257];
+        Arrays.fill(tooLong, 'k');
+        assertThat(postFeature("scala", new String(tooLong), ErrorDto.class).getBody().getCode()).isEqualTo("idempotency_key_invalid");
+    }
+
+    @Test
+    public void keyIsBoundToParameters() throws Exception {
+        postFeature("java", "key-1", FeatureFullDto.class);
+
+        final ResponseEntity<ErrorDto> result = post(featuresUrl + "?reduce_dependencies=true",
+                getFeaturePropertiesMap("java", "RUN java", null, null), "key-1", ErrorDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("idempotency_key_reused");
+    }
+
+    @Test
+    public void keysOfClientsWithLongNamesAreStored() throws Exception {
+        final char[] name = new char[1000];
+        Arrays.fill(name, 'c');
+        final Principal client = () -> new String(name);
+        final AtomicInteger computed = new AtomicInteger();
+        for (int i = 0; i < 2; ++i) {
+            idempotencyStore.execute("test", "key-1", client, "request",
+                    () -> ResponseEntity.ok(computed.incrementAndGet()));
+        }
+        assertThat(computed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedRequestIsNotRemembered() throws Exception {
+        final ResponseEntity<ErrorDto> failed = postFeature("scala", "key-1", ErrorDto.class, "java");
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        postFeature("java", null, FeatureFullDto.class);
+        final ResponseEntity<FeatureFullDto> retry = postFeature("scala", "key-1", FeatureFullDto.class, "java");
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    public void concurrentRetriesCreateFeatureOnce() throws Exception {
+        final List<ResponseEntity<FeatureFullDto>> results = concurrently(() -> postFeature("java", "key-1", FeatureFullDto.class));
+
+        assertThat(results).extracting(ResponseEntity::getStatusCode).containsOnly(HttpStatus.CREATED);
+        assertThat(results.stream().filter(r -> null == r.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).count()).isEqualTo(1);
+        assertThat(changeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentDuplicatesAreRejected() throws Exception {
+        final List<ResponseEntity<String>> results = concurrently(() -> postFeature("java", null, String.class));
+
+        assertThat(results.stream().filter(r -> r.getStatusCode() == HttpStatus.CREATED).count()).isEqualTo(1);
+        results.stream().filter(r -> r.getStatusCode() != HttpStatus.CREATED).forEach(r -> {
+            assertThat(r.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+            assertThat(r.getBody()).contains("feature_duplicate");
+        });
+        final FeatureDto[] features = template.getForEntity(url(featuresUrl), FeatureDto[].class).getBody();
+        assertThat(features).hasSize(1);
+    }
+
+    @Test
+    public void tagUpsertIsReplayed() throws Exception {
+        final List<TagDto> tags = Arrays.asList(TagDto.ofName("jvm"), TagDto.ofName("lang"));
+        assertThat(post("/api/tags", tags, "key-1", TagDto[].class).getBody()).hasSize(2);
+
+        final ResponseEntity<TagDto[]> retry = post("/api/tags", tags, "key-1", TagDto[].class);
+        assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getBody()).extracting(TagDto::getName).containsOnly("jvm", "lang");
+    }
+
+    @Test
+    public void expiredKeysArePurged() throws Exception {
+        postFeature("java", "key-1", FeatureFullDto.class);
+        jdbcTemplate.update("UPDATE IDEMPOTENCY_KEY SET CREATED_AT = ?",
+                new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+
+        idempotencyStore.purge();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM IDEMPOTENCY_KEY", Long.class)).isEqualTo(0);
+    }
+
+    private <T> List<T> concurrently(Callable<T> request) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            final List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; ++i) {
+                futures.add(executor.submit(request));
+            }
+            final List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.http.*;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+import org.zalando.pazuzu.feature.RedundantDependencyDto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedundantDependenciesApiTest extends AbstractComponentTest {
+
+    private final String redundantUrl = "/api/admin/redundant-dependencies";
+
+    private static List<String> names(List<FeatureDto> features) {
+        return features.stream().map(FeatureDto::getName).collect(Collectors.toList());
+    }
+
+    private List<String> sorted(String... names) {
+        final String query = Arrays.stream(names).map(n -> "name=" + n).collect(Collectors.joining("&"));
+        return Arrays.stream(template.getForObject(url(featuresUrl + "?sorted=1&" + query), FeatureDto[].class))
+                .map(FeatureDto::getName).collect(Collectors.toList());
+    }
+
+    private List<RedundantDependencyDto> redundant(HttpMethod method) {
+        final ResponseEntity<RedundantDependencyDto[]> response = template.exchange(url(redundantUrl), method, HttpEntity.EMPTY,
+                RedundantDependencyDto[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return Arrays.asList(response.getBody());
+    }
+
+    private static String describe(RedundantDependencyDto dependency) {
+        return dependency.getFeature() + "->" + dependency.getDependency() + " via " + dependency.getVia();
+    }
+
+    @Test
+    public void createAndUpdateCanStoreMinimalDependencies() throws Exception {
+        createFeature("java", "RUN java", null, null);
+        createFeature("scala", "RUN scala", null, null, "java");
+        final Map<String, Object> sbt = getFeaturePropertiesMap("sbt", "RUN sbt", null, null, "scala", "java");
+
+        final ResponseEntity<FeatureFullDto> created = template.postForEntity(url(featuresUrl + "?reduce_dependencies=true"),
+                new HttpEntity<>(mapper.writeValueAsString(sbt), contentType(MediaType.APPLICATION_JSON)), FeatureFullDto.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(names(created.getBody().getDependencies())).containsOnly("scala");
+
+        // Declared dependencies are kept by default
+        assertThat(names(createFeature("ivy", "RUN ivy", null, null, "scala", "java").getBody().getDependencies()))
+                .containsOnly("scala", "java");
+
+        createFeature("play", "RUN play", null, null, "java");
+        final Map<String, Object> update = getFeaturePropertiesMap(null, null, null, null, "java", "sbt");
+        final ResponseEntity<FeatureFullDto> updated = template.exchange(url(featuresUrl + "/play?reduce_dependencies=true"),
+                HttpMethod.PUT, new HttpEntity<>(mapper.writeValueAsString(update), contentType(MediaType.APPLICATION_JSON)),
+                FeatureFullDto.class);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(names(updated.getBody().getDependencies())).containsOnly("sbt");
+    }
+
+    @Test
+    public void redundantDependenciesAreRemovedWithoutChangingResolution() throws Exception {
+        createFeature("jdk", "RUN jdk", null, null);
+        createFeature("java", "RUN java", null, null, "jdk");
+        createFeature("scala", "RUN scala", null, null, "java");
+        createFeature("python", "RUN python", null, null);
+        createFeature("sbt", "RUN sbt", null, null, "scala", "java", "jdk");
+        createFeature("spark", "RUN spark", null, null, "scala", "python", "jdk");
+        final List<String> sbtOrder = sorted("sbt");
+        final List<String> allOrder = sorted("spark", "sbt");
+        final String levels = template.getForObject(url("/api/feature-levels?name=spark&name=sbt"), String.class);
+
+        assertThat(redundant(HttpMethod.GET).stream().map(RedundantDependenciesApiTest::describe))
+                .containsExactly("sbt->jdk via java", "sbt->java via scala", "spark->jdk via scala");
+        assertThat(redundant(HttpMethod.DELETE)).hasSize(3);
+
+        assertThat(redundant(HttpMethod.GET)).isEmpty();
+        assertThat(names(template.getForObject(url(featuresUrl + "/sbt"), FeatureFullDto.class).getDependencies()))
+                .containsOnly("scala");
+        assertThat(names(template.getForObject(url(featuresUrl + "/spark"), FeatureFullDto.class).getDependencies()))
+                .containsOnly("scala", "python");
+        assertThat(sorted("sbt")).isEqualTo(sbtOrder);
+        assertThat(sorted("spark", "sbt")).isEqualTo(allOrder);
+        assertThat(template.getForObject(url("/api/feature-levels?name=spark&name=sbt"), String.class)).isEqualTo(levels);
+        assertThat(redundant(HttpMethod.DELETE)).isEmpty();
+    }
+
+    @Test
+    public void featureNamedRedundantDependenciesIsDeletedAlone() throws Exception {
+        createFeature("java", "RUN java", null, null);
+        createFeature("redundant-dependencies", "RUN x", null, null, "java");
+        createFeature("scala", "RUN scala", null, null, "java");
+        createFeature("sbt", "RUN sbt", null, null, "scala", "java");
+
+        assertThat(template.getForObject(url(featuresUrl + "/redundant-dependencies"), FeatureFullDto.class).getName())
+                .isEqualTo("redundant-dependencies");
+        final ResponseEntity<Void> deleted = template.exchange(url(featuresUrl + "/redundant-dependencies"), HttpMethod.DELETE,
+                HttpEntity.EMPTY, Void.class);
+
+        assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(names(template.getForObject(url(featuresUrl + "/sbt"), FeatureFullDto.class).getDependencies()))
+                .containsOnly("scala", "java");
+        assertThat(redundant(HttpMethod.GET)).hasSize(1);
+    }
+}
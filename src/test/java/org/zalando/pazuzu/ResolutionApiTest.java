@@ -0,0 +1,132 @@
+package org.zalando.pazuzu;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.*;
+import org.zalando.pazuzu.docker.DockerfileDto;
+import org.zalando.pazuzu.exception.ErrorDto;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.resolution.ResolutionDto;
+import org.zalando.pazuzu.resolution.ResolutionRequestDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResolutionApiTest extends AbstractComponentTest {
+
+    private static final String RESOLUTIONS_URL = "/api/resolutions";
+
+    @Before
+    public void createFeatures() throws Exception {
+        createFeature("base", "RUN install base", null, null);
+        createFeature("python", "RUN apt-get update && apt-get install -y python", null, null, "base");
+        createFeature("java", "RUN apt-get update && apt-get install -y java", null, null, "base");
+        createFeature("tools", "RUN install tools", null, null, "python", "java");
+        createFeature("editor", "RUN install editor", null, null);
+    }
+
+    private static ResolutionRequestDto request(List<String>... featureSets) {
+        final ResolutionRequestDto result = new ResolutionRequestDto();
+        result.setFeatureSets(Arrays.asList(featureSets));
+        return result;
+    }
+
+    private static final ParameterizedTypeReference<List<ResolutionDto<FeatureDto>>> RESOLUTIONS =
+            new ParameterizedTypeReference<List<ResolutionDto<FeatureDto>>>() {
+            };
+
+    private HttpEntity<String> entity(ResolutionRequestDto request, MediaType accept) throws Exception {
+        final HttpHeaders headers = contentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(accept));
+        return new HttpEntity<>(mapper.writeValueAsString(request), headers);
+    }
+
+    private <T> ResponseEntity<T> post(ResolutionRequestDto request, MediaType accept, Class<T> clazz) throws Exception {
+        return template.exchange(url(RESOLUTIONS_URL), HttpMethod.POST, entity(request, accept), clazz);
+    }
+
+    private List<ResolutionDto<FeatureDto>> resolve(ResolutionRequestDto request) throws Exception {
+        final ResponseEntity<List<ResolutionDto<FeatureDto>>> result = template.exchange(url(RESOLUTIONS_URL), HttpMethod.POST,
+                entity(request, MediaType.APPLICATION_JSON), RESOLUTIONS);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return result.getBody();
+    }
+
+    private List<String> sortedNames(List<String> names) {
+        final String query = names.stream().map(n -> "name=" + n).collect(Collectors.joining("&"));
+        return Arrays.stream(template.getForObject(url(featuresUrl + "?sorted=1&" + query), FeatureDto[].class))
+                .map(FeatureDto::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void setsAreResolvedAsSeparateRequests() throws Exception {
+        final List<List<String>> sets = Arrays.asList(Arrays.asList("tools"), Arrays.asList("java"),
+                Arrays.asList("python", "editor"), Arrays.asList("java", "base"), Arrays.asList("java"));
+
+        final List<ResolutionDto<FeatureDto>> result = resolve(request(sets.toArray(new List[0])));
+
+        assertThat(result).extracting(ResolutionDto::getIndex).containsExactly(0, 1, 2, 3, 4);
+        for (int i = 0; i < sets.size(); ++i) {
+            assertThat(result.get(i).getError()).isNull();
+            assertThat(result.get(i).getFeatures().stream().map(FeatureDto::getName).collect(Collectors.toList()))
+                    .isEqualTo(sortedNames(sets.get(i)));
+        }
+    }
+
+    @Test
+    public void unknownFeatureFailsOnlyItsSet() throws Exception {
+        final List<ResolutionDto<FeatureDto>> result = resolve(request(Arrays.asList("java", "scala"), Arrays.asList("editor")));
+
+        assertThat(result.get(0).getFeatures()).isNull();
+        assertThat(result.get(0).getError().getCode()).isEqualTo("feature_not_found");
+        assertThat(result.get(0).getError().getDetailedMessage()).isEqualTo("Unknown features: scala");
+        assertThat(result.get(1).getFeatures()).extracting(FeatureDto::getName).containsExactly("editor");
+    }
+
+    @Test
+    public void dockerfilesAreStreamed() throws Exception {
+        final ResolutionRequestDto request = request(Arrays.asList("tools"), Arrays.asList("python"));
+        request.setDockerfile(true);
+        request.setOptimize(true);
+
+        final ResponseEntity<String> result = post(request, MediaType.parseMediaType("application/x-ndjson"), String.class);
+
+        assertThat(result.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        // Layer report has derived layers_saved property
+        final ObjectReader reader = mapper.readerFor(new TypeReference<ResolutionDto<FeatureDto>>() {
+        }).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        final List<ResolutionDto<FeatureDto>> lines = new ArrayList<>();
+        for (String line : result.getBody().split("\n")) {
+            lines.add(reader.readValue(line));
+        }
+        assertThat(lines).hasSize(2);
+        for (ResolutionDto<FeatureDto> line : lines) {
+            final String name = line.getIndex() == 0 ? "tools" : "python";
+            final DockerfileDto expected = template.getForObject(url("/api/dockerfile?optimize=1&name=" + name), DockerfileDto.class);
+            assertThat(line.getFeatures()).isNull();
+            assertThat(line.getDockerfile().getFeatures()).isEqualTo(expected.getFeatures());
+            assertThat(line.getDockerfile().getDockerfile()).isEqualTo(expected.getDockerfile());
+            assertThat(line.getDockerfile().getReport().getLayersSaved()).isEqualTo(expected.getReport().getLayersSaved());
+        }
+    }
+
+    @Test
+    public void tooManySetsAreRejected() throws Exception {
+        final List<String>[] sets = new List[1001];
+        Arrays.fill(sets, Collections.singletonList("java"));
+
+        final ResponseEntity<ErrorDto> result = post(request(sets), MediaType.APPLICATION_JSON, ErrorDto.class);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody().getCode()).isEqualTo("resolution_batch_too_large");
+    }
+}
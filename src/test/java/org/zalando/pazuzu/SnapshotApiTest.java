@@ -0,0 +1,30 @@
+package org.zalando.pazuzu;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.zalando.pazuzu.snapshot.RegistrySnapshot;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotApiTest extends AbstractComponentTest {
+
+    @Test
+    public void snapshotContainsFeatures() throws Exception {
+        createFeature("java", "RUN install java", null, "Java");
+        createFeature("scala", "RUN install scala", "scala -version", null, "java");
+
+        ResponseEntity<byte[]> result = template.getForEntity(url("/api/snapshot"), byte[].class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        final RegistrySnapshot snapshot = RegistrySnapshot.of(ByteBuffer.wrap(result.getBody()));
+        assertThat(snapshot.getFeatureCount()).isEqualTo(2);
+        assertThat(Long.toString(snapshot.getChangeCursor())).isEqualTo(result.getHeaders().getFirst("X-Change-Cursor"));
+        final int scala = snapshot.indexOf("scala");
+        assertThat(snapshot.getDependencies(scala).get(0)).isEqualTo(snapshot.indexOf("java"));
+        assertThat(snapshot.getTestInstruction(scala)).isEqualTo("scala -version");
+        assertThat(snapshot.getDescription(snapshot.indexOf("java"))).isEqualTo("Java");
+    }
+}
@@ -0,0 +1,92 @@
+package org.zalando.pazuzu;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.zalando.pazuzu.tracing.TracingFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "pazuzu.tracing.slow-request-ms=0")
+public class TracingApiTest extends AbstractComponentTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @Before
+    public void attachAppender() {
+        appender.start();
+        ((Logger) LoggerFactory.getLogger(TracingFilter.class)).addAppender(appender);
+    }
+
+    @After
+    public void detachAppender() {
+        ((Logger) LoggerFactory.getLogger(TracingFilter.class)).detachAppender(appender);
+    }
+
+    private String slowRequestLog(String traceId) throws InterruptedException {
+        // Logged when the filter completes, the client may already have the response
+        for (int attempt = 0; attempt < 100; ++attempt) {
+            synchronized (appender) {
+                for (ILoggingEvent event : appender.list) {
+                    if (event.getFormattedMessage().contains("trace " + traceId)) {
+                        return event.getFormattedMessage();
+                    }
+                }
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("No slow request log for " + traceId);
+    }
+
+    @Test
+    public void traceIdIsPropagated() throws Exception {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(TracingFilter.X_TRACE_ID, "client-trace.1");
+        final ResponseEntity<String> response = template.exchange(url(featuresUrl), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(TracingFilter.X_TRACE_ID)).isEqualTo("client-trace.1");
+    }
+
+    @Test
+    public void traceIdIsGeneratedWhenMissingOrInvalid() throws Exception {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(TracingFilter.X_TRACE_ID, "not valid\t");
+        final String first = template.exchange(url(featuresUrl), HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getHeaders().getFirst(TracingFilter.X_TRACE_ID);
+        final String second = template.getForEntity(url(featuresUrl), String.class).getHeaders().getFirst(TracingFilter.X_TRACE_ID);
+
+        assertThat(first).matches("[0-9a-f]+");
+        assertThat(second).matches("[0-9a-f]+").isNotEqualTo(first);
+    }
+
+    @Test
+    public void slowRequestIsLoggedWithPhases() throws Exception {
+        createFeature("java", "RUN java", "java -version", "Java");
+        createFeature("scala", "RUN scala", null, null, "java");
+        createFeature("sbt", "RUN sbt", null, null, "java", "scala");
+
+        final ResponseEntity<String> response = template.getForEntity(url(featuresUrl + "?name=sbt&sorted=1"), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        final String log = slowRequestLog(response.getHeaders().getFirst(TracingFilter.X_TRACE_ID));
+        assertThat(log).matches("(?s)Slow request \\d+ ms, [1-9]\\d* SQL statements, status 200, .*")
+                .contains("GET /api/features")
+                .contains("\n  FeaturesResource.")
+                .contains("\n    FeatureService.getSortedFeatures")
+                .contains("closure")
+                .contains("sort")
+                .contains("FeatureRepository.")
+                .contains("\n  json.write");
+    }
+}
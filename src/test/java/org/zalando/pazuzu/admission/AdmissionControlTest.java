@@ -0,0 +1,117 @@
+package org.zalando.pazuzu.admission;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.buffer.BufferCounterService;
+import org.springframework.boot.actuate.metrics.buffer.BufferGaugeService;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.springframework.boot.actuate.metrics.buffer.GaugeBuffers;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zalando.pazuzu.exception.ServiceUnavailableException;
+import org.zalando.pazuzu.exception.TooManyRequestsException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CounterBuffers counters = new CounterBuffers();
+    private AdmissionControl admissionControl;
+
+    @Before
+    public void createAdmissionControl() {
+        final AdmissionProperties properties = new AdmissionProperties();
+        properties.setRequestsPerSecond(2);
+        properties.setBurst(3);
+        properties.setMaxConcurrentResolutions(1);
+        admissionControl = new AdmissionControl(properties, new BufferCounterService(counters),
+                new BufferGaugeService(new GaugeBuffers()), now::get);
+    }
+
+    private Exception rejection(String client, AdmissionControl.Kind kind) {
+        try {
+            admissionControl.release(admissionControl.admit(client, kind));
+        } catch (Exception e) {
+            return e;
+        }
+        return null;
+    }
+
+    private long counter(String name) {
+        return null == counters.find(name) ? 0 : counters.find(name).getValue();
+    }
+
+    @Test
+    public void clientIsThrottledAfterBurst() throws Exception {
+        for (int i = 0; i < 3; ++i) {
+            admissionControl.release(admissionControl.admit("ci", AdmissionControl.Kind.READ));
+        }
+        final Exception rejection = rejection("ci", AdmissionControl.Kind.READ);
+        assertThat(rejection).isInstanceOf(TooManyRequestsException.class);
+        assertThat(((TooManyRequestsException) rejection).getRetryAfterSeconds()).isEqualTo(1);
+
+        // Other clients have their own buckets
+        admissionControl.release(admissionControl.admit("other", AdmissionControl.Kind.READ));
+
+        now.addAndGet(500_000_000L);
+        admissionControl.release(admissionControl.admit("ci", AdmissionControl.Kind.READ));
+        assertThat(counter("counter.admission.bulkhead.read.admitted")).isEqualTo(5);
+        assertThat(counter("counter.admission.bulkhead.read.throttled")).isEqualTo(1);
+        assertThat(counters.find("counter.admission.client.ci.admitted")).isNull();
+    }
+
+    @Test
+    public void anonymousRequestsShareBucket() throws Exception {
+        for (int i = 0; i < 3; ++i) {
+            admissionControl.release(admissionControl.admit(null, AdmissionControl.Kind.READ));
+        }
+        assertThat(rejection(null, AdmissionControl.Kind.READ)).isInstanceOf(TooManyRequestsException.class);
+        assertThat(counter("counter.admission.bulkhead.read.throttled")).isEqualTo(1);
+    }
+
+    @Test
+    public void fullBulkheadRejectsOnlyItsKind() throws Exception {
+        final Bulkhead resolution = admissionControl.admit("a", AdmissionControl.Kind.RESOLUTION);
+
+        assertThat(rejection("b", AdmissionControl.Kind.RESOLUTION)).isInstanceOf(ServiceUnavailableException.class);
+        admissionControl.release(admissionControl.admit("b", AdmissionControl.Kind.READ));
+
+        admissionControl.release(resolution);
+        admissionControl.release(admissionControl.admit("b", AdmissionControl.Kind.RESOLUTION));
+        assertThat(admissionControl.getBulkhead(AdmissionControl.Kind.RESOLUTION).getRejected()).isEqualTo(1);
+        assertThat(admissionControl.getBulkhead(AdmissionControl.Kind.RESOLUTION).getActive()).isEqualTo(0);
+        assertThat(counter("counter.admission.bulkhead.resolution.rejected")).isEqualTo(1);
+    }
+
+    @Test
+    public void interceptorReleasesBulkhead() throws Exception {
+        final AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(admissionControl);
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/features");
+        request.setParameter("sorted", "1");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+        assertThat(admissionControl.getBulkhead(AdmissionControl.Kind.RESOLUTION).getActive()).isEqualTo(1);
+        interceptor.afterCompletion(request, response, null, null);
+        assertThat(admissionControl.getBulkhead(AdmissionControl.Kind.RESOLUTION).getActive()).isEqualTo(0);
+    }
+
+    @Test
+    public void requestsAreClassified() {
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("GET", "/api/features")))
+                .isEqualTo(AdmissionControl.Kind.READ);
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("GET", "/api/dockerfile")))
+                .isEqualTo(AdmissionControl.Kind.RESOLUTION);
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("GET", "/api/feature-levels")))
+                .isEqualTo(AdmissionControl.Kind.RESOLUTION);
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("GET", "/api/features/levels")))
+                .isEqualTo(AdmissionControl.Kind.READ);
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("POST", "/api/resolutions")))
+                .isEqualTo(AdmissionControl.Kind.RESOLUTION);
+        assertThat(AdmissionControlInterceptor.classify(new MockHttpServletRequest("PUT", "/api/features/java")))
+                .isEqualTo(AdmissionControl.Kind.WRITE);
+    }
+}
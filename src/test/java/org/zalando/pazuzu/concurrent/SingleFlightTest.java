@@ -0,0 +1,137 @@
+package org.zalando.pazuzu.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.buffer.BufferCounterService;
+import org.springframework.boot.actuate.metrics.buffer.CounterBuffers;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.exception.ServiceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final CounterBuffers counters = new CounterBuffers();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", new BufferCounterService(counters));
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void awaitWaiting(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && singleFlight.getCoalescedCount() < count; ++i) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void concurrentCallsShareComputation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger computations = new AtomicInteger();
+        final SingleFlight.Computation<String> computation = () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "result";
+        };
+
+        final List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("a,b", computation)));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < CALLERS; ++i) {
+            results.add(executor.submit(() -> singleFlight.execute("a,b", computation)));
+        }
+        awaitWaiting(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        }
+        assertThat(computations.get()).isEqualTo(1);
+        assertThat(counters.find("counter.coalescing.test.coalesced").getValue()).isEqualTo(CALLERS - 1);
+
+        // Completed computation is not reused
+        assertThat(singleFlight.execute("a,b", () -> "next")).isEqualTo("next");
+    }
+
+    @Test
+    public void failureIsSharedWithWaitingCallers() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SingleFlight.Computation<String> computation = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new BadRequestException(Error.FEATURE_NOT_FOUND);
+        };
+
+        final Future<String> leader = executor.submit(() -> singleFlight.execute("x", computation));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        final Future<ServiceException> follower = executor.submit(() -> {
+            try {
+                singleFlight.execute("x", computation);
+                return null;
+            } catch (ServiceException e) {
+                return e;
+            }
+        });
+        awaitWaiting(1);
+        release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isInstanceOf(BadRequestException.class);
+        try {
+            leader.get(5, TimeUnit.SECONDS);
+            fail("Leader should fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(BadRequestException.class);
+        }
+    }
+
+    @Test
+    public void callersAfterChangeDoNotJoinEarlierComputation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Future<String> before = executor.submit(() -> singleFlight.execute("a", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return "old";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        singleFlight.forgetInFlight();
+        final Future<String> after = executor.submit(() -> singleFlight.execute("a", () -> "new"));
+
+        assertThat(after.get(5, TimeUnit.SECONDS)).isEqualTo("new");
+        release.countDown();
+        assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(singleFlight.getCoalescedCount()).isEqualTo(0);
+    }
+}
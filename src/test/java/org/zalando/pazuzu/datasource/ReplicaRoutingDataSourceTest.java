@@ -0,0 +1,110 @@
+package org.zalando.pazuzu.datasource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+
+    private static DataSource database(String name, int lagSeconds) {
+        final DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:routing_" + name, "sa", "");
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE MARKER IF EXISTS");
+        jdbcTemplate.execute("CREATE TABLE MARKER (NAME VARCHAR(16), LAG INT)");
+        jdbcTemplate.update("INSERT INTO MARKER VALUES (?, ?)", name, lagSeconds);
+        return dataSource;
+    }
+
+    @Before
+    public void createDatabases() {
+        primary = database("primary", 0);
+        replica1 = database("replica1", 0);
+        replica2 = database("replica2", 0);
+    }
+
+    private static String marker(DataSource routing, boolean readOnly) {
+        final DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        final TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(dataSource).queryForObject("SELECT NAME FROM MARKER", String.class));
+    }
+
+    private static ReplicaRoutingDataSource routing(DataSource primary, String lagQuery, DataSource... replicas) {
+        final ReplicaRoutingDataSource result = new ReplicaRoutingDataSource(primary, Arrays.asList(replicas), lagQuery, 10);
+        result.afterPropertiesSet();
+        return result;
+    }
+
+    @Test
+    public void readOnlyTransactionsAreSpreadOverReplicas() {
+        final ReplicaRoutingDataSource routing = routing(primary, null, replica1, replica2);
+
+        final Set<String> used = new HashSet<>();
+        for (int i = 0; i < 4; ++i) {
+            used.add(marker(routing, true));
+        }
+        assertThat(used).containsOnly("replica1", "replica2");
+    }
+
+    @Test
+    public void writableTransactionsGoToPrimary() {
+        final ReplicaRoutingDataSource routing = routing(primary, null, replica1, replica2);
+
+        assertThat(marker(routing, false)).isEqualTo("primary");
+        assertThat(new JdbcTemplate(routing).queryForObject("SELECT NAME FROM MARKER", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    public void unreachableReplicaIsSkipped() {
+        final DataSource broken = new DriverManagerDataSource("jdbc:hsqldb:hsql://127.0.0.1:1/none", "sa", "");
+        final ReplicaRoutingDataSource routing = routing(primary, null, broken, replica2);
+
+        assertThat(routing.getHealthyReplicaCount()).isEqualTo(1);
+        assertThat(marker(routing, true)).isEqualTo("replica2");
+        assertThat(marker(routing, true)).isEqualTo("replica2");
+    }
+
+    @Test
+    public void laggingReplicasFallBackToPrimary() {
+        replica1 = database("replica1", 60);
+        final ReplicaRoutingDataSource routing = routing(primary, "SELECT LAG FROM MARKER", replica1);
+
+        assertThat(routing.getHealthyReplicaCount()).isEqualTo(0);
+        assertThat(marker(routing, true)).isEqualTo("primary");
+
+        new JdbcTemplate(replica1).update("UPDATE MARKER SET LAG = 1");
+        routing.checkReplicas();
+        assertThat(marker(routing, true)).isEqualTo("replica1");
+    }
+
+    @Test
+    public void replicaWithUnknownLagIsSkipped() {
+        final ReplicaRoutingDataSource routing = routing(primary, "SELECT CAST(NULL AS DOUBLE) FROM MARKER", replica1);
+
+        assertThat(routing.getHealthyReplicaCount()).isEqualTo(0);
+        assertThat(marker(routing, true)).isEqualTo("primary");
+    }
+
+    @Test
+    public void postgresqlLagQueryFollowsServerVersion() {
+        assertThat(ReplicaRoutingDataSource.postgresqlLagQuery(9)).contains("pg_last_xlog_receive_location()")
+                .contains("pg_last_xact_replay_timestamp()");
+        assertThat(ReplicaRoutingDataSource.postgresqlLagQuery(10)).contains("pg_last_wal_receive_lsn()")
+                .doesNotContain("xlog");
+    }
+}
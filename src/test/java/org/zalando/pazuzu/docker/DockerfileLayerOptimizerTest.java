@@ -0,0 +1,161 @@
+package org.zalando.pazuzu.docker;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DockerfileLayerOptimizerTest {
+
+    private final DockerfileLayerOptimizer optimizer = new DockerfileLayerOptimizer();
+
+    private String optimize(String... snippets) {
+        final List<DockerfileInstruction> instructions = Arrays.stream(snippets)
+                .flatMap(s -> DockerfileParser.parse(s).stream()).collect(Collectors.toList());
+        return DockerfileService.render(optimizer.optimize(instructions));
+    }
+
+    @Test
+    public void adjacentRunInstructionsAreMerged() {
+        final String result = optimize("RUN apt-get update && apt-get install -y curl", "RUN curl -sL x | sh");
+
+        assertThat(result).isEqualTo("RUN apt-get update && apt-get install -y curl \\\n    && curl -sL x | sh");
+        assertThat(optimizer.getReport().getLayersBefore()).isEqualTo(2);
+        assertThat(optimizer.getReport().getLayersAfter()).isEqualTo(1);
+        assertThat(optimizer.getReport().getLayersSaved()).isEqualTo(1);
+        assertThat(optimizer.getReport().getMergedRunInstructions()).isEqualTo(1);
+    }
+
+    @Test
+    public void repeatedIndexRefreshIsRemoved() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y python",
+                "ENV A=1",
+                "RUN apt-get -qq update && apt-get install -y golang");
+
+        assertThat(result).isEqualTo("RUN apt-get update && apt-get install -y python\nENV A=1\nRUN apt-get install -y golang");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    public void indexRefreshIsKeptAfterSourcesChangeOrCleanup() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y x && rm -rf /var/lib/apt/lists/*",
+                "RUN apt-get update && apt-get install -y y",
+                "RUN add-apt-repository ppa:foo/bar",
+                "RUN apt-get update");
+
+        assertThat(result).contains("&& apt-get update && apt-get install -y y")
+                .endsWith("&& add-apt-repository ppa:foo/bar \\\n    && apt-get update");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(0);
+    }
+
+    @Test
+    public void indexRefreshIsKeptAfterFilesAreCopiedToSources() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y x",
+                "ADD foo.list /etc/apt/sources.list.d/",
+                "RUN apt-get update && apt-get install -y foo",
+                "COPY [\"keys\", \"/etc/apt/trusted.gpg.d\"]",
+                "RUN apt-get update && apt-get install -y bar",
+                "COPY --chown=root rootfs /",
+                "RUN apt-get update && apt-get install -y baz");
+
+        assertThat(result).contains("ADD foo.list /etc/apt/sources.list.d/\nRUN apt-get update && apt-get install -y foo")
+                .contains("trusted.gpg.d\"]\nRUN apt-get update && apt-get install -y bar")
+                .endsWith("COPY --chown=root rootfs /\nRUN apt-get update && apt-get install -y baz");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(0);
+    }
+
+    @Test
+    public void indexRefreshIsRemovedAfterFilesAreCopiedElsewhere() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y x",
+                "COPY app.jar /opt/app/",
+                "ADD config.tar.gz conf",
+                "RUN apt-get update && apt-get install -y y");
+
+        assertThat(result).endsWith("ADD config.tar.gz conf\nRUN apt-get install -y y");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    public void indexRefreshIsKeptAfterFrom() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y x",
+                "FROM ubuntu:16.04",
+                "RUN apt-get update && apt-get install -y y");
+
+        assertThat(result).endsWith("FROM ubuntu:16.04\nRUN apt-get update && apt-get install -y y");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(0);
+    }
+
+    @Test
+    public void indexRefreshIsKeptAfterExecFormRun() {
+        final String result = optimize(
+                "RUN apt-get update && apt-get install -y x",
+                "RUN [\"sh\", \"-c\", \"echo deb http://foo ./ > /etc/apt/sources.list.d/foo.list\"]",
+                "RUN apt-get update && apt-get install -y foo");
+
+        assertThat(result).endsWith("foo.list\"]\nRUN apt-get update && apt-get install -y foo");
+        assertThat(optimizer.getReport().getRemovedIndexRefreshes()).isEqualTo(0);
+    }
+
+    @Test
+    public void runConsistingOfRefreshOnlyIsDropped() {
+        final String result = optimize("RUN apt-get update\nRUN apt-get install a", "RUN apt-get update", "# comment\nENV B=2");
+
+        assertThat(result).isEqualTo("RUN apt-get update \\\n    && apt-get install a\n# comment\nENV B=2");
+        assertThat(optimizer.getReport().getLayersBefore()).isEqualTo(4);
+        assertThat(optimizer.getReport().getLayersAfter()).isEqualTo(2);
+    }
+
+    @Test
+    public void statefulOrNonChainableCommandsAreGrouped() {
+        final String result = optimize("RUN cd /tmp && make", "RUN test -f x || touch x", "RUN echo a; echo b", "RUN ls");
+
+        assertThat(result).isEqualTo("RUN (cd /tmp && make) \\\n    && (test -f x || touch x) \\\n    && (echo a; echo b) \\\n    && ls");
+    }
+
+    @Test
+    public void operatorsInsideQuotesAndSubshellsAreIgnored() {
+        final String result = optimize("RUN echo 'a; b' && echo \"$(true; false)\" 2>&1", "RUN ls");
+
+        assertThat(result).isEqualTo("RUN echo 'a; b' && echo \"$(true; false)\" 2>&1 \\\n    && ls");
+    }
+
+    @Test
+    public void execFormAndShellChangeAreNotMerged() {
+        final String result = optimize("RUN [\"/bin/true\"]", "RUN ls", "SHELL [\"powershell\", \"-Command\"]", "RUN dir", "RUN ls");
+
+        assertThat(result).isEqualTo("RUN [\"/bin/true\"]\nRUN ls\nSHELL [\"powershell\", \"-Command\"]\nRUN dir\nRUN ls");
+        assertThat(optimizer.getReport().getLayersSaved()).isEqualTo(0);
+    }
+
+    @Test
+    public void consecutiveEnvInstructionsAreCollapsed() {
+        final String result = optimize("ENV JAVA_HOME /usr/lib/jvm/java-8", "ENV LANG=C.UTF-8 LC_ALL=\"C.UTF-8\"");
+
+        assertThat(result).isEqualTo("ENV JAVA_HOME=\"/usr/lib/jvm/java-8\" \\\n    LANG=C.UTF-8 \\\n    LC_ALL=\"C.UTF-8\"");
+        assertThat(optimizer.getReport().getCollapsedEnvInstructions()).isEqualTo(1);
+    }
+
+    @Test
+    public void envReferringToPreviousVariableIsNotCollapsed() {
+        final String result = optimize("ENV GOPATH=/go", "ENV PATH=${GOPATH}/bin:$PATH", "ENV X=1");
+
+        assertThat(result).isEqualTo("ENV GOPATH=/go\nENV PATH=${GOPATH}/bin:$PATH \\\n    X=1");
+    }
+
+    @Test
+    public void continuationLinesAreJoined() {
+        final List<DockerfileInstruction> instructions = DockerfileParser.parse("RUN a \\\n  # note\n  && b\n\nENV X=1");
+
+        assertThat(instructions).hasSize(2);
+        assertThat(instructions.get(0).getArguments()).isEqualTo("a && b");
+        assertThat(instructions.get(0).render()).isEqualTo("RUN a \\\n  # note\n  && b");
+    }
+}
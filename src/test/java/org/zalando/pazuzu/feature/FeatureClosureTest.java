@@ -0,0 +1,249 @@
+package org.zalando.pazuzu.feature;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.exception.Error;
+import org.zalando.pazuzu.invalidation.InvalidationBus;
+import org.zalando.pazuzu.tracing.Trace;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class FeatureClosureTest {
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private FeatureRepository featureRepository;
+    @Autowired
+    private FeatureGraph featureGraph;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private InvalidationBus invalidationBus;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private void create(String name, String... dependencies) throws Exception {
+        featureService.createFeature(name, "RUN " + name, null, null, Arrays.asList(dependencies),
+                Collections.emptyList(), FeatureDto::ofShort);
+    }
+
+    private static FeatureToCreateDto toCreate(String name, String... dependencies) {
+        final FeatureToCreateDto dto = new FeatureToCreateDto();
+        dto.setName(name);
+        dto.setDockerData("RUN " + name);
+        dto.setDependencies(Arrays.asList(dependencies));
+        return dto;
+    }
+
+    private int id(String name) {
+        return featureRepository.findByName(name).getId();
+    }
+
+    private List<String> dependencies(String name) {
+        return featureRepository.findAllDependencies(id(name)).stream().map(Feature::getName).collect(Collectors.toList());
+    }
+
+    private List<String> dependents(String name) {
+        return featureRepository.findAllDependents(id(name)).stream().map(Feature::getName).collect(Collectors.toList());
+    }
+
+    private int depth(String ancestor, String descendant) {
+        return jdbcTemplate.queryForObject("SELECT DEPTH FROM FEATURE_CLOSURE WHERE ANCESTOR_ID = ? AND DESCENDANT_ID = ?",
+                Integer.class, id(ancestor), id(descendant));
+    }
+
+    @Test
+    public void closureFollowsCreatedFeatures() throws Exception {
+        create("java");
+        create("scala", "java");
+        create("sbt", "scala");
+        create("spark", "scala", "java");
+
+        assertThat(dependencies("sbt")).containsExactly("scala", "java");
+        assertThat(dependents("java")).containsOnly("scala", "sbt", "spark");
+        assertThat(depth("java", "spark")).isEqualTo(1);
+        assertThat(depth("java", "sbt")).isEqualTo(2);
+        assertThat(depth("sbt", "sbt")).isEqualTo(0);
+        assertThat(featureRepository.dependsOn(id("sbt"), id("java"))).isTrue();
+        assertThat(featureRepository.dependsOn(id("java"), id("sbt"))).isFalse();
+        assertThat(featureRepository.dependsOn(id("java"), id("java"))).isFalse();
+    }
+
+    @Test
+    public void dependentsAreUpdatedWithFeature() throws Exception {
+        create("java");
+        create("python");
+        create("scala", "java");
+        create("sbt", "scala");
+
+        featureService.updateFeature("scala", null, null, null, null, Collections.singletonList("python"), FeatureDto::ofShort);
+
+        assertThat(dependencies("sbt")).containsExactly("scala", "python");
+        assertThat(dependents("java")).isEmpty();
+        assertThat(featureRepository.getClosureIds(Collections.singleton(id("sbt"))))
+                .containsOnly(id("sbt"), id("scala"), id("python"));
+    }
+
+    /**
+     * Adds dependency in the database only, as another instance would before its invalidation event arrives.
+     */
+    private void addDependencyBehindGraph(String name, String dependency) {
+        jdbcTemplate.update("INSERT INTO FEATURE_DEPENDENCY (FEATURE_ID, DEPENDENCY_FEATURE_ID) VALUES (?, ?)", id(name), id(dependency));
+        jdbcTemplate.update("INSERT INTO FEATURE_CLOSURE (ANCESTOR_ID, DESCENDANT_ID, DEPTH) VALUES (?, ?, 1)", id(dependency), id(name));
+    }
+
+    @Test
+    public void cycleIsDetectedWhenGraphLagsBehind() throws Exception {
+        create("java");
+        create("scala");
+        assertThat(featureGraph.dependsOn(id("scala"), id("java"))).isFalse();
+        addDependencyBehindGraph("scala", "java");
+
+        try {
+            featureService.updateFeature("java", null, null, null, null, Collections.singletonList("scala"), FeatureDto::ofShort);
+            fail("Cycle is not detected");
+        } catch (BadRequestException e) {
+            assertThat(e.getError()).isEqualTo(Error.FEATURE_HAS_RECURSIVE_DEPENDENCY);
+        }
+        assertThat(featureRepository.dependsOn(id("java"), id("scala"))).isFalse();
+    }
+
+    @Test
+    public void removedDependencyIsNotResolvedWhenGraphLagsBehind() throws Exception {
+        create("java");
+        create("scala", "java");
+        assertThat(featureService.getSortedFeatures(Collections.singletonList("scala"), ResolutionOrder.CANONICAL, Feature::getName))
+                .containsExactly("java", "scala");
+        // Dependency is removed in the database only
+        jdbcTemplate.update("DELETE FROM FEATURE_DEPENDENCY WHERE FEATURE_ID = ?", id("scala"));
+        jdbcTemplate.update("DELETE FROM FEATURE_CLOSURE WHERE DESCENDANT_ID = ? AND DEPTH > 0", id("scala"));
+        assertThat(featureGraph.dependsOn(id("scala"), id("java"))).isTrue();
+
+        assertThat(featureService.getSortedFeatures(Collections.singletonList("scala"), ResolutionOrder.CANONICAL, Feature::getName))
+                .containsExactly("scala");
+    }
+
+    @Test
+    public void graphIsLoadedOutsideOfReadOnlyTransactions() throws Exception {
+        create("java");
+        // Read-only transactions go to replicas, repository calls of the graph are recorded with that flag
+        final List<Boolean> readOnlyCalls = new ArrayList<>();
+        final FeatureRepository recording = (FeatureRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FeatureRepository.class}, (proxy, method, args) -> {
+                    readOnlyCalls.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                    try {
+                        return method.invoke(featureRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        final FeatureGraph graph = new FeatureGraph(recording, invalidationBus, transactionManager);
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.execute(status -> graph.getSortedClosure(Collections.singleton(id("java"))));
+        create("scala", "java");
+        final List<Integer> closure = readOnly.execute(status -> graph.getSortedClosure(Collections.singleton(id("scala"))));
+
+        assertThat(closure).containsExactly(id("java"), id("scala"));
+        assertThat(readOnlyCalls).isNotEmpty().containsOnly(false);
+    }
+
+    @Test
+    public void reductionKeepsDependenciesWhenGraphLagsBehind() throws Exception {
+        create("java");
+        create("scala", "java");
+        assertThat(featureGraph.dependsOn(id("scala"), id("java"))).isTrue();
+        // Dependency is removed in the database only
+        jdbcTemplate.update("DELETE FROM FEATURE_DEPENDENCY WHERE FEATURE_ID = ?", id("scala"));
+        jdbcTemplate.update("DELETE FROM FEATURE_CLOSURE WHERE DESCENDANT_ID = ? AND DEPTH > 0", id("scala"));
+
+        final FeatureFullDto sbt = featureService.createFeature("sbt", "RUN sbt", null, null, Arrays.asList("scala", "java"),
+                Collections.emptyList(), true, FeatureFullDto::makeFull);
+
+        assertThat(sbt.getDependencies()).extracting(FeatureDto::getName).containsOnly("scala", "java");
+    }
+
+    @Test
+    public void depthsFollowRemovedRedundantDependencies() throws Exception {
+        create("jdk");
+        create("java", "jdk");
+        create("scala", "java");
+        create("sbt", "scala", "java", "jdk");
+        create("play", "sbt");
+        assertThat(depth("jdk", "sbt")).isEqualTo(1);
+        assertThat(depth("jdk", "play")).isEqualTo(2);
+
+        assertThat(featureService.removeRedundantDependencies()).hasSize(2);
+
+        assertThat(depth("jdk", "sbt")).isEqualTo(3);
+        assertThat(depth("java", "sbt")).isEqualTo(2);
+        assertThat(depth("jdk", "play")).isEqualTo(4);
+        assertThat(dependencies("play")).containsExactly("sbt", "scala", "java", "jdk");
+    }
+
+    @Test
+    public void deletedFeatureIsRemoved() throws Exception {
+        create("java");
+        create("scala", "java");
+
+        featureService.deleteFeature("scala");
+
+        assertThat(dependents("java")).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEATURE_CLOSURE", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    public void batchCreatedFeaturesAreIncluded() throws Exception {
+        create("java");
+        featureService.createFeatures(Arrays.asList(
+                toCreate("sbt", "scala"),
+                toCreate("scala", "java")), FeatureDto::ofShort);
+
+        assertThat(dependencies("sbt")).containsExactly("scala", "java");
+    }
+
+    @Test
+    public void resolutionDoesNotLoadDependenciesOneByOne() throws Exception {
+        create("f0");
+        for (int i = 1; i < 30; ++i) {
+            create("f" + i, "f" + (i - 1));
+        }
+
+        // Graph catches up with created features first, that is paid once and not per resolution
+        featureService.getSortedFeatures(Collections.singletonList("f29"), ResolutionOrder.CANONICAL, Feature::getName);
+        final Trace trace = Trace.begin("test", "resolve");
+        final List<String> sorted;
+        try {
+            sorted = featureService.getSortedFeatures(Collections.singletonList("f29"), ResolutionOrder.CANONICAL, Feature::getName);
+        } finally {
+            trace.end();
+        }
+
+        assertThat(sorted).hasSize(30).startsWith("f0", "f1").endsWith("f29");
+        assertThat(trace.getStatements()).as(trace.report()).isLessThan(10);
+    }
+}
@@ -0,0 +1,106 @@
+package org.zalando.pazuzu.feature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.feature.tag.TagDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class FeatureJsonCacheTest {
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private FeatureJsonCache featureJsonCache;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void createFeatures() throws Exception {
+        featureService.createFeature("java", "RUN java", "java -version", "Java", Collections.emptyList(),
+                Arrays.asList(TagDto.ofName("jvm"), TagDto.ofName("lang")), FeatureDto::ofShort);
+        featureService.createFeature("Scala", "RUN scala", null, null, Collections.singletonList("java"),
+                Collections.singletonList(TagDto.ofName("jvm")), FeatureDto::ofShort);
+        featureService.createFeature("python", "RUN \"python\" é", null, "Python", Collections.emptyList(),
+                Collections.emptyList(), FeatureDto::ofShort);
+    }
+
+    private JsonNode tree(Object value) throws Exception {
+        return objectMapper.readTree(objectMapper.writeValueAsString(value));
+    }
+
+    @Test
+    public void fragmentsMatchSerializedDtos() throws Exception {
+        final List<FeatureDto> dtos = new ArrayList<>();
+        for (String name : Arrays.asList("java", "Scala", "python")) {
+            dtos.add(featureService.getFeature(name, FeatureDto::ofShort));
+        }
+        assertThat(tree(featureService.listFeatureJson(null))).isEqualTo(tree(dtos));
+        assertThat(tree(featureService.listFeatureJson("SCA"))).isEqualTo(tree(dtos.subList(1, 2)));
+        // Second time from the cache
+        assertThat(tree(featureService.listFeatureJson(null))).isEqualTo(tree(dtos));
+
+        for (String name : Arrays.asList("java", "Scala", "python")) {
+            assertThat(tree(featureService.getFeature(name, featureJsonCache::ofFull)))
+                    .isEqualTo(tree(featureService.getFeature(name, FeatureFullDto::makeFull)));
+        }
+    }
+
+    @Test
+    public void unchangedFeaturesAreNotSerializedAgain() throws Exception {
+        featureService.listFeatureJson(null);
+        final long misses = featureJsonCache.getMisses();
+
+        final List<JsonFragment> first = featureService.listFeatureJson(null);
+        final List<JsonFragment> second = featureService.listFeatureJson(null);
+
+        assertThat(featureJsonCache.getMisses()).isEqualTo(misses);
+        for (int i = 0; i < first.size(); ++i) {
+            assertThat(second.get(i)).isSameAs(first.get(i));
+        }
+        featureService.getFeature("Scala", featureJsonCache::ofFull);
+        final long fullMisses = featureJsonCache.getMisses();
+        assertThat(featureService.getFeature("Scala", featureJsonCache::ofFull))
+                .isSameAs(featureService.getFeature("Scala", featureJsonCache::ofFull));
+        assertThat(featureJsonCache.getMisses()).isEqualTo(fullMisses);
+    }
+
+    @Test
+    public void changesAreVisible() throws Exception {
+        featureService.listFeatureJson(null);
+        featureService.getFeature("Scala", featureJsonCache::ofFull);
+
+        featureService.updateFeature("java", null, "RUN java 8", null, null, null, FeatureDto::ofShort);
+
+        final JsonNode features = tree(featureService.listFeatureJson(null));
+        assertThat(features.get(0).get("docker_data").asText()).isEqualTo("RUN java 8");
+        final JsonNode scala = tree(featureService.getFeature("Scala", featureJsonCache::ofFull));
+        assertThat(scala.get("dependencies").get(0).get("docker_data").asText()).isEqualTo("RUN java 8");
+    }
+
+    @Test
+    public void deletedFeaturesAreEvicted() throws Exception {
+        featureService.listFeatureJson(null);
+        final int size = featureJsonCache.size();
+
+        featureService.deleteFeature("python");
+
+        assertThat(featureJsonCache.size()).isEqualTo(size - 1);
+    }
+}
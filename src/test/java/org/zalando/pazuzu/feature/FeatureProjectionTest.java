@@ -0,0 +1,79 @@
+package org.zalando.pazuzu.feature;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.feature.tag.TagDto;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class FeatureProjectionTest {
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<FeatureDto> read(List<JsonFragment> fragments) throws Exception {
+        return Arrays.asList(objectMapper.readValue(objectMapper.writeValueAsString(fragments), FeatureDto[].class));
+    }
+
+    private static List<String> tagNames(FeatureDto dto) {
+        return dto.getTags().stream().map(TagDto::getName).sorted().collect(Collectors.toList());
+    }
+
+    private void createFeatures() throws Exception {
+        featureService.createFeature("java", "RUN java", "java -version", "Java", Collections.emptyList(),
+                Arrays.asList(TagDto.ofName("jvm"), TagDto.ofName("lang")), FeatureDto::ofShort);
+        featureService.createFeature("Scala", "RUN scala", null, null, Collections.singletonList("java"),
+                Collections.singletonList(TagDto.ofName("jvm")), FeatureDto::ofShort);
+        featureService.createFeature("python", "RUN python", null, "Python", Collections.emptyList(),
+                Collections.emptyList(), FeatureDto::ofShort);
+    }
+
+    @Test
+    public void projectionsMatchEntityPath() throws Exception {
+        createFeatures();
+
+        final List<FeatureDto> entities = featureService.listFeatures("", FeatureDto::ofShort);
+        final List<FeatureDto> projections = read(featureService.listFeatureJson(null));
+
+        assertThat(projections).containsOnlyElementsOf(entities).hasSameSizeAs(entities);
+        for (FeatureDto projection : projections) {
+            final FeatureDto entity = entities.get(entities.indexOf(projection));
+            assertThat(tagNames(projection)).isEqualTo(tagNames(entity));
+        }
+    }
+
+    @Test
+    public void searchIsCaseInsensitive() throws Exception {
+        createFeatures();
+
+        assertThat(read(featureService.listFeatureJson("SCA"))).extracting(FeatureDto::getName).containsExactly("Scala");
+        assertThat(featureService.listFeatureJson("nothing")).isEmpty();
+    }
+
+    @Test
+    public void pagesAreOrderedByCreation() throws Exception {
+        createFeatures();
+
+        final FeaturesWithTotalCount<JsonFragment> page = featureService.getFeatureJsonWithTotalCount(1, 1);
+        assertThat(page.getTotalCount()).isEqualTo(3);
+        final List<FeatureDto> features = read(page.getFeatures());
+        assertThat(features).extracting(FeatureDto::getName).containsExactly("Scala");
+        assertThat(features.get(0).getTestInstruction()).isNull();
+    }
+}
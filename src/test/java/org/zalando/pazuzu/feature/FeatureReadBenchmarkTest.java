@@ -0,0 +1,99 @@
+package org.zalando.pazuzu.feature;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.feature.tag.TagDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares entity and cached JSON list paths. Runs only with -Dpazuzu.benchmark=true.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class FeatureReadBenchmarkTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureReadBenchmarkTest.class);
+    private static final int FEATURES = 500;
+    private static final int WARM_UP = 20;
+    private static final int ITERATIONS = 50;
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeClass
+    public static void enabled() {
+        Assume.assumeTrue(Boolean.getBoolean("pazuzu.benchmark"));
+    }
+
+    private static long[] measure(Supplier<?> read) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP; ++i) {
+            read.get();
+        }
+        final long bytes = threads.getThreadAllocatedBytes(thread);
+        final long cpu = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            read.get();
+        }
+        return new long[]{(threads.getThreadAllocatedBytes(thread) - bytes) / ITERATIONS,
+                (threads.getCurrentThreadCpuTime() - cpu) / ITERATIONS};
+    }
+
+    // Responses are written to a stream, not kept
+    private Object serialize(Object response) {
+        try {
+            objectMapper.writeValue(DISCARD, response);
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void cachedJsonPathIsCheaperThanEntityPath() throws Exception {
+        for (int i = 0; i < FEATURES; ++i) {
+            featureService.createFeature("feature-" + i, "RUN install feature-" + i, "test " + i, "Feature " + i,
+                    Collections.emptyList(), Arrays.asList(TagDto.ofName("tag-" + i % 10), TagDto.ofName("all")),
+                    FeatureDto::ofShort);
+        }
+
+        final long[] entities = measure(() -> serialize(featureService.listFeatures("", FeatureDto::ofShort)));
+        final long[] fragments = measure(() -> serialize(featureService.listFeatureJson(null)));
+
+        LOG.info("Listing {} features, entity path: {} KiB, {} us; cached JSON path: {} KiB, {} us", FEATURES,
+                entities[0] / 1024, entities[1] / 1000, fragments[0] / 1024, fragments[1] / 1000);
+        assertThat(fragments[0]).isLessThan(entities[0]);
+    }
+}
@@ -0,0 +1,76 @@
+package org.zalando.pazuzu.feature;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class FeatureUsageTest {
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private FeatureUsage featureUsage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void flushPreviousResolutions() {
+        featureUsage.flush();
+        jdbcTemplate.update("UPDATE RESOLUTION_COUNTER SET TOTAL = 0");
+    }
+
+    private void create(String name, String... dependencies) throws Exception {
+        featureService.createFeature(name, "RUN " + name, null, null, Arrays.asList(dependencies),
+                Collections.emptyList(), FeatureDto::ofShort);
+    }
+
+    private List<String> sorted(ResolutionOrder order, String... names) throws Exception {
+        return featureService.getSortedFeatures(Arrays.asList(names), order, Feature::getName);
+    }
+
+    @Test
+    public void popularFeaturesGoFirst() throws Exception {
+        create("curl");
+        create("zlib");
+        create("app", "curl", "zlib");
+        for (int i = 0; i < 10; ++i) {
+            sorted(ResolutionOrder.CANONICAL, "zlib");
+        }
+        featureUsage.flush();
+
+        assertThat(sorted(ResolutionOrder.CANONICAL, "app")).containsExactly("curl", "zlib", "app");
+        assertThat(sorted(ResolutionOrder.CACHE, "app")).containsExactly("zlib", "curl", "app");
+    }
+
+    @Test
+    public void sharedPrefixIsEstimatedFromPopularity() throws Exception {
+        create("curl");
+        create("zlib");
+        create("app", "curl", "zlib");
+        for (int i = 0; i < 3; ++i) {
+            sorted(ResolutionOrder.CANONICAL, "zlib");
+        }
+        final List<Feature> canonical = featureService.getSortedFeatures(featureService.loadFeatures(Collections.singletonList("app")));
+        featureUsage.flush();
+
+        // 4 resolutions: zlib is in all of them, curl and app in one
+        assertThat(featureUsage.getSharedPrefixRatio(canonical)).isEqualTo((0.25 + 0.25 + 0.25) / 3);
+        final List<Feature> cache = featureService.sort(canonical, ResolutionOrder.CACHE);
+        assertThat(featureUsage.getSharedPrefixRatio(cache)).isEqualTo((1 + 0.25 + 0.25) / 3);
+    }
+}
@@ -0,0 +1,227 @@
+package org.zalando.pazuzu.feature;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.change.ChangeLogRepository;
+import org.zalando.pazuzu.feature.snippet.SnippetRepository;
+import org.zalando.pazuzu.feature.tag.TagRepository;
+import org.zalando.pazuzu.idempotency.IdempotencyStore;
+import org.zalando.pazuzu.tracing.Trace;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that lookups of repositories are planned on indexes. Repository methods are called and the SQL they
+ * actually run (captured by {@link Trace}) is explained, with parameters left unbound. Listing and substring
+ * search read the whole feature table anyway, their scans of it are expected.
+ * <p>
+ * HSQLDB plans by rules, not by costs: a usable index is always used, whatever the size of the table. So this
+ * test shows that every statement can be served by an index, not that PostgreSQL picks it for a given size.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class QueryPlanTest {
+
+    private static final int FEATURES = 2000;
+    private static final int TAGS = 50;
+    private static final Pattern RANGE_VARIABLE = Pattern.compile("table=(\\w+)(?:\\s+alias=\\w+)?\\s+cardinality=\\d+\\s+access=([A-Z ]+)");
+    private static final String HASH = "0000000000000000000000000000000000000000000000000000000000000000";
+
+    // Run by the database itself on removal of referenced rows, not by repositories
+    private static final String[] FOREIGN_KEY_CHECKS = {
+            "SELECT ID FROM FEATURE WHERE DOCKER_DATA_HASH = '" + HASH + "'",
+            "SELECT ID FROM FEATURE WHERE TEST_INSTRUCTION_HASH = '" + HASH + "'",
+            "SELECT ID FROM FEATURE WHERE DESCRIPTION_HASH = '" + HASH + "'",
+            "SELECT FEATURE_ID FROM FEATURE_TAGS WHERE TAGS_ID = 10",
+    };
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private FeatureRepository featureRepository;
+    @Autowired
+    private TagRepository tagRepository;
+    @Autowired
+    private SnippetRepository snippetRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    @Autowired
+    private FeatureUsage featureUsage;
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Before
+    public void createData() {
+        jdbcTemplate.update("INSERT INTO SNIPPET (HASH, CONTENT, COMPRESSED, CONTENT_LENGTH, REF_COUNT) VALUES (?, ?, FALSE, 0, ?)",
+                HASH, new byte[0], FEATURES);
+        final List<Object[]> features = new ArrayList<>();
+        final List<Object[]> dependencies = new ArrayList<>();
+        final List<Object[]> closure = new ArrayList<>();
+        final List<Object[]> featureTags = new ArrayList<>();
+        final List<Object[]> changes = new ArrayList<>();
+        for (int id = 1; id <= FEATURES; ++id) {
+            features.add(new Object[]{id, "feature-" + id, HASH});
+            closure.add(new Object[]{id, id, 0});
+            if (id > 1) {
+                dependencies.add(new Object[]{id, id / 2});
+                closure.add(new Object[]{id, id / 2, 1});
+            }
+            featureTags.add(new Object[]{id, id % TAGS + 1});
+            changes.add(new Object[]{id, "FEATURE", "feature-" + id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO FEATURE (ID, FEATURE_NAME, DOCKER_DATA_HASH) VALUES (?, ?, ?)", features);
+        jdbcTemplate.batchUpdate("INSERT INTO FEATURE_DEPENDENCY (FEATURE_ID, DEPENDENCY_FEATURE_ID) VALUES (?, ?)", dependencies);
+        jdbcTemplate.batchUpdate("INSERT INTO FEATURE_CLOSURE (DESCENDANT_ID, ANCESTOR_ID, DEPTH) VALUES (?, ?, ?)", closure);
+        final List<Object[]> tags = new ArrayList<>();
+        for (int id = 1; id <= TAGS; ++id) {
+            tags.add(new Object[]{id, "tag-" + id});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO TAG (ID, TAG_NAME) VALUES (?, ?)", tags);
+        jdbcTemplate.batchUpdate("INSERT INTO FEATURE_TAGS (FEATURE_ID, TAGS_ID) VALUES (?, ?)", featureTags);
+        jdbcTemplate.batchUpdate("INSERT INTO CHANGE_LOG (ID, KIND, NAME, ACTION, CHANGED_AT) "
+                + "VALUES (?, ?, ?, 'UPSERT', CURRENT_TIMESTAMP)", changes);
+    }
+
+    @Test
+    public void lookupsUseIndexes() {
+        final List<String> scans = new ArrayList<>();
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.execute(status -> {
+            // Modifying statements are explained as well, their effects are rolled back
+            status.setRollbackOnly();
+            final List<Integer> ids = Arrays.asList(10, 20);
+            check(scans, "findByName", () -> featureRepository.findByName("feature-1000"));
+            check(scans, "findByNameIn", () -> featureRepository.findByNameIn(Arrays.asList("feature-10", "feature-20")));
+            check(scans, "findByNameIgnoreCaseContaining", () -> featureRepository.findByNameIgnoreCaseContaining("feature-1"),
+                    "FEATURE");
+            check(scans, "getFeatureRows", () -> featureRepository.getFeatureRows("feature-1", 0, 10), "FEATURE");
+            check(scans, "getTagNames", () -> featureRepository.getTagNames(ids));
+            check(scans, "findAllWithDependencies", () -> featureRepository.findAllWithDependencies(ids));
+            check(scans, "findByDependenciesContaining",
+                    () -> featureRepository.findByDependenciesContaining(featureRepository.findByName("feature-10")));
+            check(scans, "findAllDependencies", () -> featureRepository.findAllDependencies(10));
+            check(scans, "findAllDependents", () -> featureRepository.findAllDependents(10));
+            check(scans, "getClosureIds", () -> featureRepository.getClosureIds(ids));
+            check(scans, "getDependentIds", () -> featureRepository.getDependentIds(10));
+            check(scans, "getDependencyIdsAmong", () -> featureRepository.getDependencyIdsAmong(ids));
+            check(scans, "dependsOn", () -> featureRepository.dependsOn(10, 20));
+            check(scans, "refreshClosure", () -> featureRepository.refreshClosure(Collections.singleton(10)));
+            check(scans, "tag findByNames", () -> tagRepository.findByNames(Arrays.asList("tag-1", "tag-2")));
+            check(scans, "tag searchByName", () -> tagRepository.searchByName("tag-1"));
+            check(scans, "snippet findByHashes", () -> snippetRepository.findByHashes(Collections.singleton(HASH)));
+            check(scans, "snippet removeReference", () -> snippetRepository.removeReference(HASH));
+            check(scans, "snippet deleteIfUnreferenced", () -> snippetRepository.deleteIfUnreferenced(HASH));
+            check(scans, "change findSince", () -> changeLogRepository.findSince(100, new PageRequest(0, 10)));
+            check(scans, "change advanceCounter", () -> changeLogRepository.advanceCounter(1), "CHANGE_COUNTER");
+            // Single row table
+            check(scans, "change findCounter", changeLogRepository::findCounter, "CHANGE_COUNTER");
+            check(scans, "usage flush", () -> {
+                featureUsage.record(featureRepository.findByNameIn(Collections.singleton("feature-10")));
+                featureUsage.flush();
+            }, "FEATURE_USAGE", "RESOLUTION_COUNTER");
+            check(scans, "idempotency execute", () -> idempotencyStore.execute("test", "key", null, "request",
+                    () -> ResponseEntity.ok("response")));
+            check(scans, "idempotency purge", idempotencyStore::purge);
+            return null;
+        });
+        for (String query : FOREIGN_KEY_CHECKS) {
+            scannedTables(explain(query)).forEach(table -> scans.add(table + " in " + query));
+        }
+        assertThat(scans).isEmpty();
+    }
+
+    /**
+     * Explains statements run by the call, except scans of tables the call is expected to read whole.
+     */
+    private void check(List<String> scans, String name, Call call, String... scannedTables) {
+        final Trace trace = Trace.begin("plan", name).captureSql();
+        try {
+            call.run();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            trace.end();
+        }
+        assertThat(trace.getSql()).as(name).isNotEmpty();
+        for (String sql : trace.getSql()) {
+            scannedTables(explain(sql)).stream()
+                    .filter(table -> !Arrays.asList(scannedTables).contains(table))
+                    .forEach(table -> scans.add(table + " in " + name + ": " + sql));
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            // Plan is compiled on prepare, parameters do not have to be bound
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN PLAN FOR " + sql);
+                 ResultSet result = statement.executeQuery()) {
+                final List<String> lines = new ArrayList<>();
+                while (result.next()) {
+                    lines.add(result.getString(1));
+                }
+                return String.join("\n", lines);
+            }
+        });
+    }
+
+    // Values of IN lists are table SYSTEM_SUBQUERY, scanning those is fine. Limited reads in index order stop early.
+    private static List<String> scannedTables(String plan) {
+        final List<String> result = new ArrayList<>();
+        if (plan.contains("uses index]") && plan.contains("limit=[")) {
+            return result;
+        }
+        final Matcher matcher = RANGE_VARIABLE.matcher(plan);
+        while (matcher.find()) {
+            if (matcher.group(2).equals("FULL SCAN") && !matcher.group(1).equals("SYSTEM_SUBQUERY")) {
+                result.add(matcher.group(1));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void duplicateNamesAreRejected() {
+        for (String insert : new String[]{
+                "INSERT INTO FEATURE (FEATURE_NAME, DOCKER_DATA_HASH) VALUES ('feature-1', '" + HASH + "')",
+                "INSERT INTO TAG (TAG_NAME) VALUES ('tag-1')",
+                "INSERT INTO FEATURE_TAGS (FEATURE_ID, TAGS_ID) VALUES (1, 2)"}) {
+            try {
+                jdbcTemplate.update(insert);
+                fail("Expected unique constraint violation: " + insert);
+            } catch (DataIntegrityViolationException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.zalando.pazuzu.feature.snippet;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.feature.Feature;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureService;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class SnippetStoreTest {
+
+    private static final String LARGE_TEXT = String.join("\n", Collections.nCopies(100, "RUN apt-get install -y something"));
+
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private SnippetRepository snippetRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private void create(String name, String dockerData, String description) throws Exception {
+        featureService.createFeature(name, dockerData, null, description, Collections.emptyList(), Collections.emptyList(), FeatureDto::ofShort);
+    }
+
+    @Test
+    public void identicalTextsAreStoredOnce() throws Exception {
+        create("a", "RUN make", "same");
+        create("b", "RUN make", "same");
+
+        assertThat(snippetRepository.count()).isEqualTo(2);
+        assertThat(snippetRepository.findOne(Snippet.hash("RUN make")).getRefCount()).isEqualTo(2);
+        assertThat(snippetRepository.findOne(Snippet.hash("same")).getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void sameTextInDifferentFieldsIsShared() throws Exception {
+        create("a", "text", "text");
+
+        assertThat(snippetRepository.count()).isEqualTo(1);
+        assertThat(snippetRepository.findOne(Snippet.hash("text")).getRefCount()).isEqualTo(2);
+        assertThat(featureService.getFeature("a", FeatureDto::ofShort).getDescription()).isEqualTo("text");
+    }
+
+    @Test
+    public void concurrentWritersOfNewTextShareSnippet() throws Exception {
+        final int writers = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < writers; ++i) {
+                final String name = "f" + i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    create(name, "RUN make", LARGE_TEXT);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(snippetRepository.count()).isEqualTo(2);
+        assertThat(snippetRepository.findOne(Snippet.hash("RUN make")).getRefCount()).isEqualTo(writers);
+        assertThat(snippetRepository.findOne(Snippet.hash(LARGE_TEXT)).getRefCount()).isEqualTo(writers);
+    }
+
+    @Test
+    public void unreferencedSnippetsAreRemoved() throws Exception {
+        create("a", "RUN make", null);
+        create("b", "RUN make", null);
+
+        featureService.updateFeature("a", null, "RUN make install", null, null, null, FeatureDto::ofShort);
+        assertThat(snippetRepository.findOne(Snippet.hash("RUN make")).getRefCount()).isEqualTo(1);
+
+        featureService.deleteFeature("b");
+        assertThat(snippetRepository.exists(Snippet.hash("RUN make"))).isFalse();
+        assertThat(snippetRepository.exists(Snippet.hash("RUN make install"))).isTrue();
+
+        featureService.deleteFeature("a");
+        assertThat(snippetRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void updateWithSameTextKeepsReference() throws Exception {
+        create("a", "RUN make", null);
+        featureService.updateFeature("a", null, "RUN make", null, null, null, FeatureDto::ofShort);
+
+        assertThat(snippetRepository.findOne(Snippet.hash("RUN make")).getRefCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void largeTextsAreCompressed() throws Exception {
+        create("a", LARGE_TEXT, null);
+
+        final Snippet stored = snippetRepository.findOne(Snippet.hash(LARGE_TEXT));
+        assertThat(stored.isCompressed()).isTrue();
+        assertThat(stored.getContent().length).isLessThan(stored.getContentLength() / 10);
+        assertThat(stored.decode()).isEqualTo(LARGE_TEXT);
+        assertThat(featureService.getFeature("a", FeatureDto::ofShort).getDockerData()).isEqualTo(LARGE_TEXT);
+    }
+
+    @Test
+    public void textsAreNotLimitedInSize() throws Exception {
+        final String text = String.join("\n", Collections.nCopies(20000, "RUN echo $RANDOM"));
+        create("a", text, text);
+
+        final FeatureDto feature = featureService.getFeature("a", FeatureDto::ofShort);
+        assertThat(feature.getDockerData()).isEqualTo(text);
+        assertThat(feature.getDescription()).isEqualTo(text);
+    }
+
+    @Test
+    public void resolutionDoesNotLoadSnippets() throws Exception {
+        create("a", LARGE_TEXT, "A");
+        featureService.createFeature("b", "RUN b", "test b", null, Collections.singletonList("a"),
+                Collections.emptyList(), FeatureDto::ofShort);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                final List<Feature> sorted = featureService.getSortedFeatures(Collections.singletonList("b"),
+                        ResolutionOrder.CANONICAL, Function.identity());
+                assertThat(sorted).extracting(Feature::getName).containsExactly("a", "b");
+                assertThat(Hibernate.isInitialized(sorted.get(0).getDockerDataSnippet())).isFalse();
+                assertThat(Hibernate.isInitialized(sorted.get(0).getDescriptionSnippet())).isFalse();
+                assertThat(Hibernate.isInitialized(sorted.get(1).getTestInstructionSnippet())).isFalse();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void cacheSharesTextInstances() {
+        final SnippetCache cache = new SnippetCache(10);
+        final String first = cache.get("h1", () -> new String("12345"));
+        assertThat(cache.get("h1", () -> "other")).isSameAs(first);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        cache.get("h2", () -> "123456");
+        assertThat(cache.getIfPresent("h1")).isNull();
+        assertThat(cache.getCharacters()).isEqualTo(6);
+    }
+}
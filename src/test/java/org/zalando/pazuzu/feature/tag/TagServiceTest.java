@@ -29,7 +29,7 @@ public class TagServiceTest {
     private TagService tagService;
 
     @Before
-    public void initialize() {
+    public void initialize() throws Exception {
         List<Tag> tags = tagService.upsertTagDtos(TAG_NAMES.stream().map(TagDto::ofName).collect(Collectors.toList()));
     }
 
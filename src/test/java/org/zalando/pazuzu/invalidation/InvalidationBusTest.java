@@ -0,0 +1,93 @@
+package org.zalando.pazuzu.invalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureService;
+import org.zalando.pazuzu.feature.tag.TagDto;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class InvalidationBusTest {
+
+    @Autowired
+    private InvalidationBus invalidationBus;
+    @Autowired
+    private FeatureService featureService;
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<InvalidationEvent> received = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void subscribe() {
+        invalidationBus.subscribe(received::add);
+    }
+
+    private void create(String name, List<TagDto> tags) throws Exception {
+        featureService.createFeature(name, "RUN " + name, null, null, Collections.emptyList(), tags, FeatureDto::ofShort);
+    }
+
+    @Test
+    public void eventsAreDeliveredAfterCommit() throws Exception {
+        create("java", Collections.singletonList(TagDto.ofName("jvm")));
+
+        assertThat(received).containsExactly(InvalidationEvent.tag("jvm"), InvalidationEvent.feature("java"));
+    }
+
+    @Test
+    public void renameInvalidatesBothNames() throws Exception {
+        create("old", Collections.emptyList());
+        received.clear();
+
+        featureService.updateFeature("old", "new", null, null, null, null, FeatureDto::ofShort);
+
+        assertThat(received).containsExactly(InvalidationEvent.feature("old"), InvalidationEvent.feature("new"));
+    }
+
+    @Test
+    public void nothingIsDeliveredOnRollback() throws Exception {
+        create("java", Collections.emptyList());
+        received.clear();
+        try {
+            featureService.updateFeature("java", null, "RUN other", null, null, Collections.singletonList("missing"), FeatureDto::ofShort);
+            fail("Unknown dependency must be rejected");
+        } catch (BadRequestException expected) {
+            assertThat(received).isEmpty();
+        }
+    }
+
+    @Test
+    public void jdbcBusDeliversChangesOfOtherInstances() throws Exception {
+        final JdbcInvalidationBus otherInstance = new JdbcInvalidationBus(dataSource, 100);
+        final List<InvalidationEvent> remote = new CopyOnWriteArrayList<>();
+        otherInstance.subscribe(remote::add);
+        otherInstance.start();
+        try {
+            otherInstance.poll();
+            create("java", Collections.emptyList());
+            featureService.deleteFeature("java");
+
+            otherInstance.poll();
+            assertThat(remote).containsExactly(InvalidationEvent.feature("java"), InvalidationEvent.feature("java"));
+        } finally {
+            otherInstance.destroy();
+        }
+    }
+}
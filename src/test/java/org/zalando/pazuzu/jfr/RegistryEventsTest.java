@@ -0,0 +1,124 @@
+package org.zalando.pazuzu.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.PazuzuAppLauncher;
+import org.zalando.pazuzu.exception.BadRequestException;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureService;
+import org.zalando.pazuzu.feature.ResolutionOrder;
+import org.zalando.pazuzu.feature.tag.TagDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(PazuzuAppLauncher.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:cleanDatabase.sql")
+public class RegistryEventsTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    @Autowired
+    private FeatureService featureService;
+
+    @Before
+    public void requireFlightRecorder() {
+        Assume.assumeTrue(RegistryEvents.isAvailable());
+    }
+
+    private Path record(Runnable operations) throws Exception {
+        final Configuration configuration;
+        try (Reader settings = new InputStreamReader(getClass().getResourceAsStream("/jfr/pazuzu.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(settings);
+        }
+        final Path file = folder.newFile("pazuzu.jfr").toPath();
+        try (Recording recording = new Recording(configuration)) {
+            recording.enable("org.zalando.pazuzu.RepositoryCall").withoutThreshold();
+            recording.enable("org.zalando.pazuzu.CacheStatistics").with("period", "everyChunk");
+            recording.start();
+            operations.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return file;
+    }
+
+    private static List<RecordedEvent> events(Path file, String type) throws Exception {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(RecordingSummary.REGISTRY_EVENTS + type))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void registryOperationsAreRecorded() throws Exception {
+        final Path file = record(() -> {
+            try {
+                featureService.createFeature("java", "RUN java", null, null, Collections.emptyList(),
+                        Arrays.asList(TagDto.ofName("jvm"), TagDto.ofName("lang")), FeatureDto::ofShort);
+                featureService.createFeature("scala", "RUN scala", null, null, Collections.singletonList("java"),
+                        Collections.singletonList(TagDto.ofName("jvm")), FeatureDto::ofShort);
+                featureService.createFeature("sbt", "RUN sbt", null, null, Collections.singletonList("scala"),
+                        Collections.emptyList(), FeatureDto::ofShort);
+                featureService.getSortedFeatures(Collections.singletonList("sbt"), ResolutionOrder.CANONICAL, FeatureDto::ofShort);
+                try {
+                    featureService.updateFeature("java", null, null, null, null, Collections.singletonList("sbt"), FeatureDto::ofShort);
+                } catch (BadRequestException expected) {
+                    // Cycle
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(events(file, "FeatureResolution").stream()
+                .filter(e -> e.getInt("roots") == 1 && e.getInt("closureSize") == 3)
+                .map(e -> e.getString("order"))).containsOnly("canonical");
+        final List<RecordedEvent> cycleChecks = events(file, "CycleCheck");
+        assertThat(cycleChecks).hasSize(1);
+        assertThat(cycleChecks.get(0).getString("feature")).isEqualTo("java");
+        assertThat(cycleChecks.get(0).getBoolean("cycle")).isTrue();
+        assertThat(events(file, "TagUpsert").stream().mapToInt(e -> e.getInt("created")).sum()).isEqualTo(2);
+        assertThat(events(file, "RepositoryCall").stream().map(e -> e.getString("method")))
+                .contains("FeatureRepository.findByName", "TagRepository.findByNames");
+        assertThat(events(file, "CacheStatistics").stream().map(e -> e.getString("cache")).collect(Collectors.toSet()))
+                .contains("features.json", "snippets");
+    }
+
+    @Test
+    public void summaryGroupsEventsByType() throws Exception {
+        final Path file = record(() -> featureService.listFeatureJson(null));
+
+        final RecordingSummary summary = RecordingSummary.read(file);
+        assertThat(summary.getCount("org.zalando.pazuzu.RepositoryCall")).isGreaterThan(0);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        summary.print(new PrintStream(out, true, "UTF-8"));
+        assertThat(out.toString("UTF-8"))
+                .contains("Event type")
+                .contains("Registry operation")
+                .containsPattern("org\\.zalando\\.pazuzu\\.RepositoryCall +\\d+ ");
+    }
+}
@@ -0,0 +1,37 @@
+package org.zalando.pazuzu.serving;
+
+import org.junit.Test;
+import org.zalando.pazuzu.snapshot.SnapshotBuilder;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotHolderTest {
+
+    private static final Path SNAPSHOT_FILE = Paths.get("target/holder-test.snapshot");
+
+    private static void writeSnapshot(long changeCursor) throws Exception {
+        new SnapshotBuilder()
+                .setChangeCursor(changeCursor)
+                .addFeature(1, "java", "RUN install java", null, null)
+                .writeTo(SNAPSHOT_FILE);
+    }
+
+    @Test
+    public void olderSnapshotIsIgnored() throws Exception {
+        writeSnapshot(5);
+        final SnapshotServingProperties properties = new SnapshotServingProperties();
+        properties.setFile(SNAPSHOT_FILE.toString());
+        final SnapshotHolder holder = new SnapshotHolder(properties);
+
+        writeSnapshot(3);
+        holder.reload();
+        assertThat(holder.get().getChangeCursor()).isEqualTo(5);
+
+        writeSnapshot(7);
+        holder.reload();
+        assertThat(holder.get().getChangeCursor()).isEqualTo(7);
+    }
+}
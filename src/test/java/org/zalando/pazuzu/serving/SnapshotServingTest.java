@@ -0,0 +1,113 @@
+package org.zalando.pazuzu.serving;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.zalando.pazuzu.feature.FeatureDto;
+import org.zalando.pazuzu.feature.FeatureFullDto;
+import org.zalando.pazuzu.snapshot.SnapshotBuilder;
+
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(SnapshotServingLauncher.class)
+@WebIntegrationTest(randomPort = true, value = "pazuzu.snapshot.file=" + SnapshotServingTest.SNAPSHOT_FILE)
+public class SnapshotServingTest {
+
+    static final String SNAPSHOT_FILE = "target/serving-test.snapshot";
+
+    private final TestRestTemplate template = new TestRestTemplate();
+    @Value("${local.server.port}")
+    private int port;
+    @Autowired
+    private ApplicationContext context;
+
+    @BeforeClass
+    public static void writeSnapshot() throws Exception {
+        new SnapshotBuilder()
+                .setChangeCursor(3)
+                .addFeature(1, "java", "RUN install java", null, "Java")
+                .addFeature(2, "scala", "RUN install scala", "scala -version", null)
+                .addFeature(3, "sbt", "RUN install sbt", null, null)
+                .addDependency(2, 1)
+                .addDependency(3, 2)
+                .addTag(1, "jvm")
+                .addFeatureTag(1, 1)
+                .writeTo(Paths.get(SNAPSHOT_FILE));
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + port + path;
+    }
+
+    @Test
+    public void featureIsServedFromSnapshot() {
+        ResponseEntity<FeatureFullDto> result = template.getForEntity(url("/api/features/scala"), FeatureFullDto.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody().getTestInstruction()).isEqualTo("scala -version");
+        assertThat(result.getBody().getDependencies()).extracting(FeatureDto::getName).containsExactly("java");
+
+        ResponseEntity<FeatureFullDto> java = template.getForEntity(url("/api/features/java"), FeatureFullDto.class);
+        assertThat(java.getBody().getTags()).extracting("name").containsExactly("jvm");
+
+        assertThat(template.getForEntity(url("/api/features/missing"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void featuresAreListed() {
+        assertThat(names(template.getForEntity(url("/api/features"), FeatureDto[].class).getBody()))
+                .containsExactly("java", "sbt", "scala");
+        assertThat(names(template.getForEntity(url("/api/features/search/SC"), FeatureDto[].class).getBody()))
+                .containsExactly("scala");
+
+        ResponseEntity<FeatureDto[]> page = template.getForEntity(url("/api/features?offset=1&limit=1"), FeatureDto[].class);
+        assertThat(names(page.getBody())).containsExactly("sbt");
+        assertThat(page.getHeaders().getFirst("X-Total-Count")).isEqualTo("3");
+    }
+
+    @Test
+    public void featuresAreSorted() {
+        assertThat(names(template.getForEntity(url("/api/features?name=sbt&sorted=1"), FeatureDto[].class).getBody()))
+                .containsExactly("java", "scala", "sbt");
+        assertThat(template.getForEntity(url("/api/features?name=sbt&name=missing&sorted=1"), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    public void modificationsAreRejected() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> result = template.postForEntity(url("/api/features"),
+                new HttpEntity<>("{\"name\": \"go\"}", headers), String.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.METHOD_NOT_ALLOWED);
+        assertThat(result.getBody()).contains("registry_read_only");
+    }
+
+    @Test
+    public void databaseIsNotUsed() {
+        assertThat(context.getBeanNamesForType(DataSource.class)).isEmpty();
+    }
+
+    private static List<String> names(FeatureDto[] features) {
+        return Arrays.stream(features).map(FeatureDto::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,112 @@
+package org.zalando.pazuzu.snapshot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class RegistrySnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Integer> list(IntBuffer buffer) {
+        final List<Integer> result = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            result.add(buffer.get());
+        }
+        return result;
+    }
+
+    @Test
+    public void contentIsReadBack() throws IOException {
+        final RegistrySnapshot snapshot = RegistrySnapshot.of(new SnapshotBuilder()
+                .setChangeCursor(42)
+                .addFeature(10, "scala", "RUN install scala", null, "Scala")
+                .addFeature(20, "java", "RUN install java", "java -version", null)
+                .addFeature(30, "sbt", "RUN install scala", null, null)
+                .addFeature(40, "äpfel", "RUN install apples", null, null)
+                .addDependency(10, 20)
+                .addDependency(30, 10)
+                .addTag(1, "jvm")
+                .addTag(2, "build")
+                .addFeatureTag(10, 1)
+                .addFeatureTag(20, 1)
+                .addFeatureTag(30, 2)
+                .build());
+
+        assertThat(snapshot.getFeatureCount()).isEqualTo(4);
+        assertThat(snapshot.getChangeCursor()).isEqualTo(42);
+        assertThat(snapshot.getSnippetCount()).isEqualTo(5);
+        final int scala = snapshot.indexOf("scala");
+        final int java = snapshot.indexOf("java");
+        final int sbt = snapshot.indexOf("sbt");
+        assertThat(snapshot.getName(scala)).isEqualTo("scala");
+        assertThat(snapshot.getFeatureId(scala)).isEqualTo(10);
+        assertThat(snapshot.getName(snapshot.indexOf("äpfel"))).isEqualTo("äpfel");
+        assertThat(snapshot.indexOf("python")).isEqualTo(-1);
+        assertThat(list(snapshot.getDependencies(scala))).containsExactly(java);
+        assertThat(list(snapshot.getDependencies(java))).isEmpty();
+        assertThat(list(snapshot.getTopologicalOrder())).containsExactly(java, scala, sbt, snapshot.indexOf("äpfel"));
+        assertThat(snapshot.getDockerData(sbt)).isEqualTo("RUN install scala");
+        assertThat(snapshot.getTestInstruction(java)).isEqualTo("java -version");
+        assertThat(snapshot.getTestInstruction(scala)).isNull();
+        assertThat(snapshot.getDescription(scala)).isEqualTo("Scala");
+
+        final int jvm = snapshot.indexOfTag("jvm");
+        assertThat(snapshot.getTagName(jvm)).isEqualTo("jvm");
+        assertThat(snapshot.hasTag(scala, jvm)).isTrue();
+        assertThat(snapshot.hasTag(sbt, jvm)).isFalse();
+        assertThat(snapshot.hasTag(sbt, snapshot.indexOfTag("build"))).isTrue();
+        assertThat(snapshot.getTagBitmap(jvm).get(0)).isEqualTo((1L << scala) | (1L << java));
+    }
+
+    @Test
+    public void largeSnapshotIsMapped() throws IOException {
+        final int size = 100000;
+        final SnapshotBuilder builder = new SnapshotBuilder().addTag(1, "even");
+        for (int i = 0; i < size; ++i) {
+            builder.addFeature(i, String.format("feature-%06d", i), "RUN install " + (i % 100), null, null);
+            if (i > 0) {
+                builder.addDependency(i, i / 2);
+            }
+            if (i % 2 == 0) {
+                builder.addFeatureTag(i, 1);
+            }
+        }
+        final Path file = folder.getRoot().toPath().resolve("registry.snapshot");
+        builder.writeTo(file);
+
+        final RegistrySnapshot snapshot = RegistrySnapshot.open(file);
+        assertThat(snapshot.getFeatureCount()).isEqualTo(size);
+        assertThat(snapshot.getSnippetCount()).isEqualTo(100);
+        final int feature = snapshot.indexOf("feature-099999");
+        assertThat(snapshot.getFeatureId(feature)).isEqualTo(99999);
+        assertThat(snapshot.getName(list(snapshot.getDependencies(feature)).get(0))).isEqualTo("feature-049999");
+        assertThat(snapshot.getDockerData(feature)).isEqualTo("RUN install 99");
+        assertThat(snapshot.hasTag(snapshot.indexOf("feature-099998"), 0)).isTrue();
+        assertThat(snapshot.hasTag(feature, 0)).isFalse();
+        assertThat(snapshot.getTopologicalOrder().get(0)).isEqualTo(snapshot.indexOf("feature-000000"));
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejected() throws IOException {
+        final ByteBuffer buffer = new SnapshotBuilder().addFeature(1, "java", "RUN install java", null, null).build();
+        buffer.limit(buffer.limit() - 1);
+        try {
+            RegistrySnapshot.of(buffer.slice());
+            fail("Truncated snapshot is accepted");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).startsWith("Snapshot is truncated");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.zalando.pazuzu.sort;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DynamicTopologicalOrderTest {
+
+    private static <T> void assertOrderRespectsEdges(DynamicTopologicalOrder<T> order) {
+        final List<T> vertices = order.getOrder();
+        for (T v : vertices) {
+            for (T s : order.getSuccessors(v)) {
+                assertThat(vertices.indexOf(v)).isLessThan(vertices.indexOf(s));
+            }
+        }
+    }
+
+    private static boolean reachable(boolean[][] edges, int from, int to) {
+        final boolean[] seen = new boolean[edges.length];
+        final Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(from);
+        while (!stack.isEmpty()) {
+            final int v = stack.pop();
+            for (int next = 0; next < edges.length; ++next) {
+                if (edges[v][next] && !seen[next]) {
+                    if (next == to) {
+                        return true;
+                    }
+                    seen[next] = true;
+                    stack.push(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void edgeAgainstOrderReordersAffectedVertices() {
+        final DynamicTopologicalOrder<String> order = new DynamicTopologicalOrder<>();
+        Arrays.asList("a", "b", "c", "d").forEach(order::addVertex);
+
+        assertThat(order.addEdge("c", "b")).isTrue();
+        assertThat(order.addEdge("d", "a")).isTrue();
+
+        assertOrderRespectsEdges(order);
+        assertThat(order.hasPath("d", "a")).isTrue();
+        assertThat(order.hasPath("a", "d")).isFalse();
+    }
+
+    @Test
+    public void cycleIsRejected() {
+        final DynamicTopologicalOrder<String> order = new DynamicTopologicalOrder<>();
+        assertThat(order.addEdge("a", "b")).isTrue();
+        assertThat(order.addEdge("b", "c")).isTrue();
+
+        assertThat(order.addEdge("c", "a")).isFalse();
+        assertThat(order.addEdge("a", "a")).isFalse();
+        assertThat(order.getSuccessors("c")).isEmpty();
+        assertThat(order.getOrder()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    public void ancestorsAreSorted() {
+        final DynamicTopologicalOrder<String> order = new DynamicTopologicalOrder<>();
+        order.addEdge("java", "scala");
+        order.addEdge("scala", "spark");
+        order.addEdge("python", "spark");
+        order.addEdge("java", "maven");
+
+        assertThat(order.getAncestors(Collections.singleton("spark"))).containsExactlyElementsOf(
+                order.sort(Arrays.asList("spark", "python", "scala", "java")));
+        assertThat(order.getAncestors(Collections.singleton("spark"))).doesNotContain("maven");
+    }
+
+    @Test
+    public void removedVertexIsForgotten() {
+        final DynamicTopologicalOrder<Integer> order = new DynamicTopologicalOrder<>();
+        for (int i = 0; i < 200; ++i) {
+            order.addEdge(i, i + 1);
+        }
+        for (int i = 0; i < 150; ++i) {
+            order.removeVertex(i);
+        }
+        assertThat(order.size()).isEqualTo(51);
+        assertThat(order.containsVertex(10)).isFalse();
+        assertThat(order.getPredecessors(150)).isEmpty();
+        assertThat(order.hasPath(150, 200)).isTrue();
+        assertThat(order.addEdge(200, 150)).isFalse();
+        assertOrderRespectsEdges(order);
+    }
+
+    @Test
+    public void randomEdgesAgreeWithBruteForce() {
+        final Random random = new Random(42);
+        final int n = 40;
+        final boolean[][] edges = new boolean[n][n];
+        final DynamicTopologicalOrder<Integer> order = new DynamicTopologicalOrder<>();
+        for (int i = 0; i < n; ++i) {
+            order.addVertex(i);
+        }
+        for (int step = 0; step < 2000; ++step) {
+            final int from = random.nextInt(n);
+            final int to = random.nextInt(n);
+            if (random.nextInt(4) == 0) {
+                order.removeEdge(from, to);
+                edges[from][to] = false;
+            } else {
+                final boolean cycle = from == to || reachable(edges, to, from);
+                assertThat(order.addEdge(from, to)).isEqualTo(!cycle);
+                if (!cycle) {
+                    edges[from][to] = true;
+                }
+            }
+            final int a = random.nextInt(n);
+            final int b = random.nextInt(n);
+            assertThat(order.hasPath(a, b)).isEqualTo(reachable(edges, a, b));
+        }
+        assertOrderRespectsEdges(order);
+    }
+}
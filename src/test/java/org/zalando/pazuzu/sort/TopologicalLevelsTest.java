@@ -0,0 +1,53 @@
+package org.zalando.pazuzu.sort;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TopologicalLevelsTest {
+
+    private static Map<String, Set<String>> graph(String... edges) {
+        final Map<String, Set<String>> result = new HashMap<>();
+        for (String edge : edges) {
+            final String[] ends = edge.split("->");
+            result.computeIfAbsent(ends[0], v -> new HashSet<>()).add(ends[1]);
+        }
+        return result;
+    }
+
+    @Test
+    public void verticesAreGroupedByLongestDependencyChain() {
+        final Map<String, Set<String>> children = graph("spark->scala", "spark->python", "scala->java", "sbt->scala");
+        final List<List<String>> levels = new TopologicalLevels<>(Arrays.asList("java", "python", "sbt", "scala", "spark"),
+                v -> children.getOrDefault(v, Collections.emptySet())).getLevels();
+
+        assertThat(levels).hasSize(3);
+        assertThat(levels.get(0)).containsExactly("java", "python");
+        assertThat(levels.get(1)).containsExactly("scala");
+        assertThat(levels.get(2)).containsExactly("sbt", "spark");
+    }
+
+    @Test
+    public void childrenOutsideOfVerticesAreIgnored() {
+        final Map<String, Set<String>> children = graph("b->a", "c->b");
+        final List<List<String>> levels = new TopologicalLevels<>(Arrays.asList("c", "b"),
+                v -> children.getOrDefault(v, Collections.emptySet())).getLevels();
+
+        assertThat(levels).hasSize(2);
+        assertThat(levels.get(0)).containsExactly("b");
+    }
+
+    @Test
+    public void cycleIsReported() {
+        final Map<String, Set<String>> children = graph("a->b", "b->c", "c->a");
+        try {
+            new TopologicalLevels<>(Arrays.asList("a", "b", "c", "d"), v -> children.getOrDefault(v, Collections.emptySet())).getLevels();
+            fail("Cycle is not detected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).contains("Cycle");
+        }
+    }
+}
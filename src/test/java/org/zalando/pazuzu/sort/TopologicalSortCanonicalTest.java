@@ -0,0 +1,127 @@
+package org.zalando.pazuzu.sort;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TopologicalSortCanonicalTest {
+
+    private static final int GRAPHS = 200;
+
+    /**
+     * Random DAG: edges only go from greater to lesser index, vertex names are shuffled so that name order
+     * has nothing to do with topological order.
+     */
+    private static Map<String, Set<String>> randomDag(Random random, int size) {
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+            names.add("v" + i);
+        }
+        Collections.shuffle(names, random);
+        final Map<String, Set<String>> children = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            final Set<String> edges = new HashSet<>();
+            for (int j = 0; j < i; ++j) {
+                if (random.nextInt(4) == 0) {
+                    edges.add(names.get(j));
+                }
+            }
+            children.put(names.get(i), edges);
+        }
+        return children;
+    }
+
+    private static List<String> sort(Collection<String> vertices, Map<String, Set<String>> children) {
+        return new TopologicalSortCanonical<>(vertices, children::get, Comparator.<String>naturalOrder()).getTopSorted();
+    }
+
+    /**
+     * Same graph with shuffled vertices and reordered children sets.
+     */
+    private static Map<String, Set<String>> shuffled(Random random, Map<String, Set<String>> children) {
+        final List<String> vertices = new ArrayList<>(children.keySet());
+        Collections.shuffle(vertices, random);
+        final Map<String, Set<String>> result = new LinkedHashMap<>();
+        for (String v : vertices) {
+            final List<String> edges = new ArrayList<>(children.get(v));
+            Collections.shuffle(edges, random);
+            result.put(v, new LinkedHashSet<>(edges));
+        }
+        return result;
+    }
+
+    @Test
+    public void childrenGoFirstAndTiesAreBrokenByName() {
+        final Map<String, Set<String>> children = new HashMap<>();
+        children.put("spark", new HashSet<>(Arrays.asList("scala", "python")));
+        children.put("scala", Collections.singleton("java"));
+        children.put("java", Collections.emptySet());
+        children.put("python", Collections.emptySet());
+
+        assertThat(sort(Arrays.asList("spark", "scala", "python", "java"), children))
+                .containsExactly("java", "python", "scala", "spark");
+    }
+
+    @Test
+    public void orderRespectsEdgesOfRandomGraphs() {
+        final Random random = new Random(7);
+        for (int g = 0; g < GRAPHS; ++g) {
+            final Map<String, Set<String>> children = randomDag(random, 1 + random.nextInt(30));
+            final List<String> sorted = sort(children.keySet(), children);
+            assertThat(sorted).hasSameSizeAs(children.keySet());
+            for (String v : sorted) {
+                for (String child : children.get(v)) {
+                    assertThat(sorted.indexOf(child)).isLessThan(sorted.indexOf(v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void orderDoesNotDependOnIterationOrder() {
+        final Random random = new Random(11);
+        for (int g = 0; g < GRAPHS; ++g) {
+            final Map<String, Set<String>> children = randomDag(random, 1 + random.nextInt(30));
+            final List<String> expected = sort(children.keySet(), children);
+            for (int attempt = 0; attempt < 5; ++attempt) {
+                final Map<String, Set<String>> other = shuffled(random, children);
+                assertThat(sort(other.keySet(), other)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void leastReadyVertexIsAlwaysTakenNext() {
+        final Random random = new Random(13);
+        for (int g = 0; g < GRAPHS; ++g) {
+            final Map<String, Set<String>> children = randomDag(random, 1 + random.nextInt(30));
+            final List<String> sorted = sort(children.keySet(), children);
+            final Set<String> placed = new HashSet<>();
+            for (String v : sorted) {
+                for (String other : children.keySet()) {
+                    if (!placed.contains(other) && placed.containsAll(children.get(other))) {
+                        assertThat(v.compareTo(other)).isLessThanOrEqualTo(0);
+                    }
+                }
+                placed.add(v);
+            }
+        }
+    }
+
+    @Test
+    public void cycleIsReported() {
+        final Map<String, Set<String>> children = new HashMap<>();
+        children.put("a", Collections.singleton("b"));
+        children.put("b", Collections.singleton("a"));
+        children.put("c", Collections.emptySet());
+        try {
+            sort(children.keySet(), children);
+            fail("Cycle is not detected");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).endsWith("[a, b]");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.zalando.pazuzu.sort;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransitiveClosureTest {
+
+    private static void assertSameClosures(DynamicTopologicalOrder<Integer> expected, TransitiveClosure<Integer> actual) {
+        assertThat(actual.getOrder()).containsOnlyElementsOf(expected.getOrder());
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (Integer v : expected.getOrder()) {
+            assertThat(actual.getAncestors(Collections.singleton(v)))
+                    .as("ancestors of %s", v)
+                    .containsOnlyElementsOf(expected.getAncestors(Collections.singleton(v)))
+                    .hasSameSizeAs(expected.getAncestors(Collections.singleton(v)));
+            for (Integer w : expected.getOrder()) {
+                assertThat(actual.hasPath(v, w)).as("path %s -> %s", v, w).isEqualTo(expected.hasPath(v, w));
+            }
+        }
+    }
+
+    @Test
+    public void pathsFollowAddedAndRemovedEdges() {
+        final TransitiveClosure<String> closure = new TransitiveClosure<>();
+        assertThat(closure.addEdge("jdk", "java")).isTrue();
+        assertThat(closure.addEdge("scala", "sbt")).isTrue();
+        assertThat(closure.hasPath("jdk", "sbt")).isFalse();
+
+        assertThat(closure.addEdge("java", "scala")).isTrue();
+        assertThat(closure.hasPath("jdk", "sbt")).isTrue();
+        assertThat(closure.getAncestors(Collections.singleton("sbt"))).containsExactly("jdk", "java", "scala", "sbt");
+        assertThat(closure.addEdge("sbt", "jdk")).isFalse();
+        assertThat(closure.hasPath("sbt", "jdk")).isFalse();
+
+        closure.removeEdge("java", "scala");
+        assertThat(closure.hasPath("jdk", "sbt")).isFalse();
+        assertThat(closure.getAncestors(Arrays.asList("sbt", "java"))).containsOnly("jdk", "java", "scala", "sbt");
+        assertThat(closure.addEdge("sbt", "jdk")).isTrue();
+        assertThat(closure.getAncestors(Collections.singleton("java"))).containsExactly("scala", "sbt", "jdk", "java");
+    }
+
+    @Test
+    public void removedVertexIsForgotten() {
+        final TransitiveClosure<String> closure = new TransitiveClosure<>();
+        closure.addEdge("a", "b");
+        closure.addEdge("b", "c");
+        closure.removeVertex("b");
+        assertThat(closure.hasPath("a", "c")).isFalse();
+        assertThat(closure.getAncestors(Collections.singleton("c"))).containsExactly("c");
+
+        // Index of removed vertex is reused
+        closure.addEdge("c", "d");
+        assertThat(closure.getAncestors(Arrays.asList("d", "b"))).containsExactly("c", "d");
+        assertThat(closure.hasPath("b", "d")).isFalse();
+    }
+
+    @Test
+    public void randomChangesMatchSearch() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 20; ++round) {
+            final DynamicTopologicalOrder<Integer> expected = new DynamicTopologicalOrder<>();
+            final TransitiveClosure<Integer> actual = new TransitiveClosure<>();
+            final int n = 5 + random.nextInt(20);
+            for (int step = 0; step < 200; ++step) {
+                final int from = random.nextInt(n);
+                final int to = random.nextInt(n);
+                final int action = random.nextInt(10);
+                if (action < 6) {
+                    assertThat(actual.addEdge(from, to)).isEqualTo(expected.addEdge(from, to));
+                } else if (action < 9) {
+                    expected.removeEdge(from, to);
+                    actual.removeEdge(from, to);
+                } else {
+                    expected.removeVertex(from);
+                    actual.removeVertex(from);
+                }
+            }
+            assertSameClosures(expected, actual);
+        }
+    }
+
+    @Test
+    public void builtClosuresMatchIncrementalOnes() {
+        final Random random = new Random(7);
+        // Wide levels are computed in parallel
+        final int n = TransitiveClosure.PARALLEL_THRESHOLD * 6;
+        final Map<Integer, Set<Integer>> predecessors = new HashMap<>();
+        final TransitiveClosure<Integer> incremental = new TransitiveClosure<>();
+        final List<Integer> sorted = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            final int v = i;
+            sorted.add(v);
+            incremental.addVertex(v);
+            final Set<Integer> vertexPredecessors = new HashSet<>();
+            if (v >= 2 * TransitiveClosure.PARALLEL_THRESHOLD) {
+                for (int j = 0; j < 3; ++j) {
+                    vertexPredecessors.add(random.nextInt(v / TransitiveClosure.PARALLEL_THRESHOLD * TransitiveClosure.PARALLEL_THRESHOLD));
+                }
+            }
+            vertexPredecessors.forEach(p -> incremental.addEdge(p, v));
+            predecessors.put(v, vertexPredecessors);
+        }
+        final TransitiveClosure<Integer> built = TransitiveClosure.build(sorted, predecessors::get);
+
+        for (int v = 0; v < n; v += 17) {
+            assertThat(new HashSet<>(built.getAncestors(Collections.singleton(v))))
+                    .isEqualTo(new HashSet<>(incremental.getAncestors(Collections.singleton(v))));
+        }
+        assertThat(new HashSet<>(built.getAncestors(Arrays.asList(n - 1, n - 2, n - 3))))
+                .isEqualTo(new HashSet<>(incremental.getAncestors(Arrays.asList(n - 1, n - 2, n - 3))));
+    }
+}
@@ -0,0 +1,95 @@
+package org.zalando.pazuzu.sort;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.fail;
+
+public class TransitiveReductionTest {
+
+    private static Map<String, Set<String>> graph(String... edges) {
+        final Map<String, Set<String>> result = new HashMap<>();
+        for (String edge : edges) {
+            final String[] ends = edge.split("->");
+            result.computeIfAbsent(ends[0], v -> new HashSet<>()).add(ends[1]);
+        }
+        return result;
+    }
+
+    private static Map<String, Map<String, String>> redundant(Map<String, Set<String>> children, String... vertices) {
+        return new TransitiveReduction<>(Arrays.asList(vertices),
+                v -> children.getOrDefault(v, Collections.emptySet())).getRedundantEdges();
+    }
+
+    @Test
+    public void edgesReachableThroughOtherChildrenAreRedundant() {
+        final Map<String, Set<String>> children = graph("sbt->scala", "sbt->java", "scala->java", "spark->scala",
+                "spark->python", "spark->jdk", "java->jdk");
+        final Map<String, Map<String, String>> redundant = redundant(children, "jdk", "java", "scala", "sbt", "python", "spark");
+
+        assertThat(redundant.keySet()).containsExactly("sbt", "spark");
+        assertThat(redundant.get("sbt")).containsOnly(entry("java", "scala"));
+        assertThat(redundant.get("spark")).containsOnly(entry("jdk", "scala"));
+    }
+
+    @Test
+    public void reducedGraphHasSameClosuresAndLevels() {
+        final Map<String, Set<String>> children = graph("a->b", "a->c", "a->d", "b->c", "c->d", "e->a", "e->d", "e->f");
+        final List<String> vertices = Arrays.asList("a", "b", "c", "d", "e", "f");
+        final Map<String, Map<String, String>> redundant = new TransitiveReduction<>(vertices,
+                v -> children.getOrDefault(v, Collections.emptySet())).getRedundantEdges();
+        final Map<String, Set<String>> reduced = new HashMap<>();
+        children.forEach((v, c) -> {
+            final Set<String> kept = new HashSet<>(c);
+            kept.removeAll(redundant.getOrDefault(v, Collections.emptyMap()).keySet());
+            reduced.put(v, kept);
+        });
+
+        assertThat(reduced).containsOnly(entry("a", set("b")), entry("b", set("c")), entry("c", set("d")),
+                entry("e", set("a", "f")));
+        assertThat(new TransitiveReduction<>(vertices, v -> reduced.getOrDefault(v, Collections.emptySet()))
+                .getRedundantEdges()).isEmpty();
+        for (String v : vertices) {
+            assertThat(new TopologicalSortCanonical<>(closure(reduced, v), x -> reduced.getOrDefault(x, Collections.emptySet()), Comparator.<String>naturalOrder()).getTopSorted())
+                    .isEqualTo(new TopologicalSortCanonical<>(closure(children, v), x -> children.getOrDefault(x, Collections.emptySet()), Comparator.<String>naturalOrder()).getTopSorted());
+        }
+        assertThat(new TopologicalLevels<>(vertices, v -> reduced.getOrDefault(v, Collections.emptySet())).getLevels())
+                .isEqualTo(new TopologicalLevels<>(vertices, v -> children.getOrDefault(v, Collections.emptySet())).getLevels());
+    }
+
+    @Test
+    public void childrenOutsideOfVerticesAreIgnored() {
+        final Map<String, Set<String>> children = graph("a->b", "a->c", "b->c");
+
+        assertThat(redundant(children, "a", "c")).isEmpty();
+    }
+
+    @Test
+    public void cycleIsReported() {
+        final Map<String, Set<String>> children = graph("a->b", "b->a");
+        try {
+            redundant(children, "a", "b");
+            fail("Cycle is not detected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static Set<String> closure(Map<String, Set<String>> children, String vertex) {
+        final Set<String> result = new HashSet<>();
+        final Deque<String> pending = new ArrayDeque<>(Collections.singleton(vertex));
+        while (!pending.isEmpty()) {
+            final String v = pending.pop();
+            if (result.add(v)) {
+                pending.addAll(children.getOrDefault(v, Collections.emptySet()));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
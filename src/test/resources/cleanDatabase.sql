@@ -1,4 +1,10 @@
+DELETE FROM FEATURE_CLOSURE;
+DELETE FROM FEATURE_USAGE;
+UPDATE RESOLUTION_COUNTER SET TOTAL = 0;
 DELETE FROM FEATURE_TAGS;
 DELETE FROM FEATURE_DEPENDENCY;
 DELETE FROM FEATURE;
+DELETE FROM SNIPPET;
 DELETE FROM TAG;
+DELETE FROM CHANGE_LOG;
+DELETE FROM IDEMPOTENCY_KEY;